@@ -24,20 +24,16 @@
 
 package edu.cmu.sv.badger.analysis;
 
-import gov.nasa.jpf.jvm.bytecode.DCMPG;
-import gov.nasa.jpf.jvm.bytecode.DCMPL;
-import gov.nasa.jpf.jvm.bytecode.FCMPG;
-import gov.nasa.jpf.jvm.bytecode.FCMPL;
-import gov.nasa.jpf.jvm.bytecode.GOTO;
-import gov.nasa.jpf.jvm.bytecode.IfInstruction;
-import gov.nasa.jpf.jvm.bytecode.JSR;
-import gov.nasa.jpf.jvm.bytecode.LCMP;
-import gov.nasa.jpf.jvm.bytecode.SwitchInstruction;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.objectweb.asm.Opcodes;
+
 import gov.nasa.jpf.symbc.Observations;
 import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
 import gov.nasa.jpf.symbc.numeric.PathCondition;
-import gov.nasa.jpf.vm.ChoiceGenerator;
 import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.MethodInfo;
 import gov.nasa.jpf.vm.ThreadInfo;
 import gov.nasa.jpf.vm.VM;
 
@@ -57,76 +53,79 @@ public final class BranchCountState extends State {
 
     }
 
+    /* Not defined in asm's Opcodes, because the class writer chooses the wide jumps itself. */
+    private final static int GOTO_W = 200;
+    private final static int JSR_W = 201;
+
+    /* Opcodes of the branch instructions, i.e. jumps, switches and comparisons, which are counted. */
+    private final static boolean[] BRANCH_OPCODES = new boolean[256];
+    static {
+        for (int opcode = Opcodes.IFEQ; opcode <= Opcodes.LOOKUPSWITCH; opcode++) {
+            BRANCH_OPCODES[opcode] = opcode != Opcodes.RET; // if*, goto, jsr, tableswitch, lookupswitch
+        }
+        for (int opcode = Opcodes.LCMP; opcode <= Opcodes.DCMPG; opcode++) {
+            BRANCH_OPCODES[opcode] = true; // lcmp, fcmpl, fcmpg, dcmpl, dcmpg
+        }
+        BRANCH_OPCODES[Opcodes.IFNULL] = true;
+        BRANCH_OPCODES[Opcodes.IFNONNULL] = true;
+        BRANCH_OPCODES[GOTO_W] = true;
+        BRANCH_OPCODES[JSR_W] = true;
+    }
+
     public final static class BranchCountStateBuilder extends StateBuilderAdapter {
 
+        /*
+         * Whether branches of a method are counted, decided once per method. The MethodInfo objects are only valid
+         * during one JPF run, just as this builder and its copies, which share the map.
+         */
+        private final Map<MethodInfo, Boolean> includedMethods;
+
+        /* Last looked up method, because most consecutive instructions are in the same method. */
+        private MethodInfo lastMethod;
+        private boolean lastMethodIncluded;
+
         public BranchCountStateBuilder() {
+            this.includedMethods = new IdentityHashMap<>();
         }
 
-        private BranchCountStateBuilder(double instrCount) {
+        private BranchCountStateBuilder(double instrCount, Map<MethodInfo, Boolean> includedMethods) {
+            this.includedMethods = includedMethods;
             Observations.lastMeasuredMetricValue = instrCount;
         }
 
         @Override
         public void handleInstructionExecuted(VM vm, ThreadInfo currentThread, Instruction nextInstruction,
                 Instruction executedInstruction) {
-            ChoiceGenerator<?> cg = vm.getChoiceGenerator();
-            if (cg != null && cg instanceof PCChoiceGenerator) {
-                if (executedInstruction.getMethodInfo().isClinit()) {
-                    return;
-                }
-                if (executedInstruction.getMethodInfo().isInit()) {
-                    return;
-                }
-                if (executedInstruction.getMethodInfo().getName().contains("main")) {
-                    return;
-                }
-                if (isBranchInstruction(executedInstruction)) {
-                    Observations.lastMeasuredMetricValue++;
-                }
+            // Checks ordered by cost: most instructions are no branches.
+            int opcode = executedInstruction.getByteCode();
+            if (opcode >= BRANCH_OPCODES.length || !BRANCH_OPCODES[opcode]) {
+                return;
             }
-        }
-
-        private boolean isBranchInstruction(Instruction executedInstruction) {
-            if (executedInstruction instanceof IfInstruction) {
-                return true;
-            }
-
-            if (executedInstruction instanceof SwitchInstruction) {
-                return true;
+            if (!isIncluded(executedInstruction.getMethodInfo())) {
+                return;
             }
-
-            if (executedInstruction instanceof GOTO) {
-                return true;
-            }
-            if (executedInstruction instanceof JSR) {
-                return true;
-            }
-            if (executedInstruction instanceof LCMP) {
-                return true;
+            if (vm.getChoiceGenerator() instanceof PCChoiceGenerator) {
+                Observations.lastMeasuredMetricValue++;
             }
+        }
 
-            if (executedInstruction instanceof LCMP) {
-                return true;
-            }
-            if (executedInstruction instanceof FCMPL) {
-                return true;
-            }
-            if (executedInstruction instanceof FCMPG) {
-                return true;
-            }
-            if (executedInstruction instanceof DCMPL) {
-                return true;
-            }
-            if (executedInstruction instanceof DCMPG) {
-                return true;
+        private boolean isIncluded(MethodInfo methodInfo) {
+            if (methodInfo != lastMethod) {
+                Boolean included = includedMethods.get(methodInfo);
+                if (included == null) {
+                    included = !methodInfo.isClinit() && !methodInfo.isInit()
+                            && !methodInfo.getName().contains("main");
+                    includedMethods.put(methodInfo, included);
+                }
+                lastMethod = methodInfo;
+                lastMethodIncluded = included;
             }
-
-            return false;
+            return lastMethodIncluded;
         }
 
         @Override
         public StateBuilder copy() {
-            return new BranchCountStateBuilder(Observations.lastMeasuredMetricValue);
+            return new BranchCountStateBuilder(Observations.lastMeasuredMetricValue, includedMethods);
         }
 
         @Override
@@ -0,0 +1,147 @@
+package edu.cmu.sv.badger.analysis;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import edu.cmu.sv.badger.util.BytecodeUtils;
+import gov.nasa.jpf.jvm.bytecode.JVMArrayElementInstruction;
+import gov.nasa.jpf.symbc.Observations;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * Memory access locality cost model: counts the misses of a simulated cache for the array loads and stores on the path.
+ * The cache is fully associative with LRU replacement, so an access misses if more distinct cache lines were accessed
+ * since the last access of its line than the cache can hold, i.e. if its reuse distance is too large. Accesses that
+ * continue a sequential stride over an array are counted as hits, because the hardware prefetcher would have loaded
+ * them.
+ *
+ * Arrays are identified by their JPF object reference, elements are mapped to lines by their offset in the array.
+ */
+public final class CacheMissState extends State {
+
+    public final static String ID = "cache";
+
+    private final static int LINE_SIZE = 64;
+
+    public final static class CacheMissBuilderFactory extends StateBuilderFactory {
+
+        private final int numberOfLines;
+
+        public CacheMissBuilderFactory(int numberOfLines) {
+            this.numberOfLines = numberOfLines;
+        }
+
+        @Override
+        public StateBuilder createStateBuilder() {
+            return new CacheMissStateBuilder(numberOfLines);
+        }
+
+    }
+
+    public final static class CacheMissStateBuilder extends StateBuilderAdapter {
+
+        private final int numberOfLines;
+
+        /* Cached lines in access order, key is the array reference in the upper and the line in the lower half. */
+        private final LinkedHashMap<Long, Boolean> cache;
+
+        /* Last accessed line by array reference, to detect sequential strides. */
+        private final Map<Integer, Integer> lastLines;
+
+        public CacheMissStateBuilder(int numberOfLines) {
+            this.numberOfLines = numberOfLines;
+            this.cache = createCache(numberOfLines);
+            this.lastLines = new HashMap<>();
+        }
+
+        private CacheMissStateBuilder(CacheMissStateBuilder other, double misses) {
+            this.numberOfLines = other.numberOfLines;
+            this.cache = createCache(numberOfLines);
+            this.cache.putAll(other.cache);
+            this.lastLines = new HashMap<>(other.lastLines);
+            Observations.lastMeasuredMetricValue = misses;
+        }
+
+        private static LinkedHashMap<Long, Boolean> createCache(int numberOfLines) {
+            return new LinkedHashMap<Long, Boolean>(numberOfLines * 4 / 3 + 1, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                    return size() > numberOfLines;
+                }
+            };
+        }
+
+        @Override
+        public void handleInstructionExecuted(VM vm, ThreadInfo currentThread, Instruction nextInstruction,
+                Instruction executedInstruction) {
+            if (!(executedInstruction instanceof JVMArrayElementInstruction)) {
+                return;
+            }
+            if (executedInstruction.getMethodInfo().isClinit()) {
+                return;
+            }
+            int elementSize = BytecodeUtils.getArrayElementSize(executedInstruction);
+            if (elementSize == 0) {
+                return;
+            }
+            JVMArrayElementInstruction arrayInstruction = (JVMArrayElementInstruction) executedInstruction;
+            int arrayRef = arrayInstruction.getArrayRef(currentThread);
+            int line = (int) ((long) arrayInstruction.getIndex(currentThread) * elementSize / LINE_SIZE);
+            access(arrayRef, line);
+        }
+
+        void access(int arrayRef, int line) {
+            long key = ((long) arrayRef << 32) | (line & 0xFFFFFFFFL);
+            Integer lastLine = lastLines.put(arrayRef, line);
+            if (cache.put(key, Boolean.TRUE) != null) {
+                return;
+            }
+            if (lastLine != null && Math.abs(line - lastLine) == 1) {
+                return; // prefetched
+            }
+            Observations.lastMeasuredMetricValue++;
+        }
+
+        @Override
+        public StateBuilder copy() {
+            return new CacheMissStateBuilder(this, Observations.lastMeasuredMetricValue);
+        }
+
+        @Override
+        public State build(PathCondition resultingPC) {
+            return new CacheMissState(Observations.lastMeasuredMetricValue, resultingPC);
+        }
+
+    }
+
+    private final double misses;
+
+    private CacheMissState(double misses, PathCondition pc) {
+        super(pc);
+        this.misses = misses;
+    }
+
+    @Override
+    public int compareTo(State o) {
+        if (!(o instanceof CacheMissState)) {
+            throw new IllegalStateException("Expected state of type " + CacheMissState.class.getName());
+        }
+        CacheMissState other = (CacheMissState) o;
+        return this.misses < other.misses ? -1 : this.misses > other.misses ? 1 : 0;
+    }
+
+    public double getMisses() {
+        return this.misses;
+    }
+
+    @Override
+    public double getWC() {
+        return this.getMisses();
+    }
+}
@@ -0,0 +1,121 @@
+package edu.cmu.sv.badger.analysis;
+
+import gov.nasa.jpf.symbc.Observations;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.vm.ElementInfo;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * Heap allocation cost model: measures the bytes of all objects and arrays created on the path, based on the heap size
+ * that JPF reports for their ElementInfo. The peak variant measures the high-water mark of the live heap instead, i.e.
+ * objects released by the JPF garbage collector are subtracted again.
+ *
+ * Allocations in static initializers are ignored, because they depend on the class loading order and not on the input.
+ */
+public final class HeapAllocationState extends State {
+
+    public final static String ID = "heap";
+    public final static String PEAK_ID = "heap-peak";
+
+    public final static class HeapAllocationBuilderFactory extends StateBuilderFactory {
+
+        private final boolean measurePeak;
+
+        public HeapAllocationBuilderFactory(boolean measurePeak) {
+            this.measurePeak = measurePeak;
+        }
+
+        @Override
+        public StateBuilder createStateBuilder() {
+            return new HeapAllocationStateBuilder(measurePeak);
+        }
+
+    }
+
+    public final static class HeapAllocationStateBuilder extends StateBuilderAdapter {
+
+        private final boolean measurePeak;
+        private long liveBytes;
+
+        public HeapAllocationStateBuilder(boolean measurePeak) {
+            this.measurePeak = measurePeak;
+        }
+
+        private HeapAllocationStateBuilder(boolean measurePeak, long liveBytes, double metricValue) {
+            this.measurePeak = measurePeak;
+            this.liveBytes = liveBytes;
+            Observations.lastMeasuredMetricValue = metricValue;
+        }
+
+        @Override
+        public void handleObjectCreated(VM vm, ThreadInfo ti, ElementInfo ei) {
+            if (ei == null || isStaticInitialization(ti)) {
+                return;
+            }
+            int size = ei.getHeapSize();
+            liveBytes += size;
+            if (measurePeak) {
+                if (liveBytes > Observations.lastMeasuredMetricValue) {
+                    Observations.lastMeasuredMetricValue = liveBytes;
+                }
+            } else {
+                Observations.lastMeasuredMetricValue += size;
+            }
+        }
+
+        @Override
+        public void handleObjectReleased(VM vm, ThreadInfo ti, ElementInfo ei) {
+            if (ei == null || !measurePeak) {
+                return;
+            }
+            // Objects from static initializers were never counted, so the live heap must not become negative.
+            liveBytes = Math.max(0, liveBytes - ei.getHeapSize());
+        }
+
+        private static boolean isStaticInitialization(ThreadInfo ti) {
+            if (ti == null) {
+                return false;
+            }
+            MethodInfo mi = ti.getTopFrameMethodInfo();
+            return mi != null && mi.isClinit();
+        }
+
+        @Override
+        public StateBuilder copy() {
+            return new HeapAllocationStateBuilder(measurePeak, liveBytes, Observations.lastMeasuredMetricValue);
+        }
+
+        @Override
+        public State build(PathCondition resultingPC) {
+            return new HeapAllocationState(Observations.lastMeasuredMetricValue, resultingPC);
+        }
+
+    }
+
+    private final double allocatedBytes;
+
+    private HeapAllocationState(double allocatedBytes, PathCondition pc) {
+        super(pc);
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    @Override
+    public int compareTo(State o) {
+        if (!(o instanceof HeapAllocationState)) {
+            throw new IllegalStateException("Expected state of type " + HeapAllocationState.class.getName());
+        }
+        HeapAllocationState other = (HeapAllocationState) o;
+        return this.allocatedBytes < other.allocatedBytes ? -1 : this.allocatedBytes > other.allocatedBytes ? 1 : 0;
+    }
+
+    public double getAllocatedBytes() {
+        return this.allocatedBytes;
+    }
+
+    @Override
+    public double getWC() {
+        return this.getAllocatedBytes();
+    }
+}
@@ -0,0 +1,89 @@
+package edu.cmu.sv.badger.analysis;
+
+import edu.cmu.sv.badger.trie.Trie;
+import edu.cmu.sv.badger.trie.TrieNode;
+import gov.nasa.jpf.vm.Instruction;
+
+/**
+ * Worst-case analysis that selects the next node for exploration in the style of a Monte-Carlo tree search instead of
+ * the static order of the exploration heuristic. Every exploration of a node is rewarded with its outcome, i.e. whether
+ * the generated inputs led to a new highscore and whether they covered new branches, and the reward is backpropagated
+ * to all ancestors of the node. The nodes are then selected by the UCB1 score of their region of the trie, see
+ * {@link UCBNodeQueue}, which balances rewarding regions against rarely explored ones. The exploration heuristic
+ * determines the cost direction and breaks ties.
+ */
+public class MCTSAnalyzer extends WCAAnalyzer {
+
+    public final static String ID = "ucb";
+
+    public final static double DEFAULT_EXPLORATION_CONSTANT = Math.sqrt(2);
+
+    /* Reward components for the outcome of an exploration, the reward is between 0 and 1. */
+    static final double HIGHSCORE_REWARD = 0.5;
+    static final double NEW_BRANCH_REWARD = 0.5;
+
+    private final UCBNodeQueue nodeQueue;
+
+    /* Node returned by the last call of analyze() and the outcome observed since then. */
+    private TrieNode exploredNode;
+    private double bestCostValueBeforeExploration;
+    private boolean observedNewChoice;
+
+    /**
+     * @param explorationConstant
+     *            - weight of the exploration term of the UCB1 score, higher values explore more
+     */
+    public MCTSAnalyzer(ExplorationHeuristic heuristic, double explorationConstant) {
+        this(heuristic, new UCBNodeQueue(heuristic, explorationConstant));
+    }
+
+    private MCTSAnalyzer(ExplorationHeuristic heuristic, UCBNodeQueue nodeQueue) {
+        super(heuristic, nodeQueue);
+        this.nodeQueue = nodeQueue;
+    }
+
+    @Override
+    public TrieNode analyze(Trie trie) {
+        TrieNode node = super.analyze(trie);
+        exploredNode = node;
+        bestCostValueBeforeExploration = currentBestCostValue;
+        observedNewChoice = false;
+        return node;
+    }
+
+    @Override
+    public void explorationFinished(TrieNode node) {
+        if (node == null || node != exploredNode) {
+            return;
+        }
+        double reward = 0.0;
+        if (currentBestCostValue != bestCostValueBeforeExploration) {
+            reward += HIGHSCORE_REWARD;
+        }
+        if (observedNewChoice) {
+            reward += NEW_BRANCH_REWARD;
+        }
+        nodeQueue.backpropagate(node, reward);
+        exploredNode = null;
+    }
+
+    @Override
+    public boolean addObservedChoice(Instruction instr, int choice) {
+        boolean addedNewChoice = super.addObservedChoice(instr, choice);
+        if (addedNewChoice) {
+            observedNewChoice = true;
+        }
+        return addedNewChoice;
+    }
+
+    @Override
+    public void removeNode(TrieNode node) {
+        super.removeNode(node);
+        nodeQueue.removeStatistics(node);
+    }
+
+    public int getNumberOfExplorations() {
+        return nodeQueue.getNumberOfExplorations();
+    }
+
+}
@@ -0,0 +1,174 @@
+package edu.cmu.sv.badger.analysis;
+
+import java.util.List;
+
+import gov.nasa.jpf.symbc.Observations;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.vm.ChoiceGenerator;
+import gov.nasa.jpf.vm.ElementInfo;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * Combines several cost models into one vector of metric values for the multi-objective worst-case analysis. The
+ * first cost model is the primary one, whose value is reported as scalar worst-case value.
+ *
+ * All cost models accumulate their value in {@link Observations#lastMeasuredMetricValue}, so the builder swaps the
+ * value of each cost model in before it delegates an event to it, and leaves the value of the primary cost model there.
+ */
+public final class MultiObjectiveState extends State {
+
+    public final static class MultiObjectiveBuilderFactory extends StateBuilderFactory {
+
+        private final List<StateBuilderFactory> factories;
+
+        public MultiObjectiveBuilderFactory(List<StateBuilderFactory> factories) {
+            this.factories = factories;
+        }
+
+        @Override
+        public StateBuilder createStateBuilder() {
+            StateBuilder[] builders = new StateBuilder[factories.size()];
+            for (int i = 0; i < builders.length; i++) {
+                Observations.lastMeasuredMetricValue = 0.0;
+                builders[i] = factories.get(i).createStateBuilder();
+            }
+            return new MultiObjectiveStateBuilder(builders, new double[builders.length]);
+        }
+
+    }
+
+    public final static class MultiObjectiveStateBuilder implements StateBuilder {
+
+        private final StateBuilder[] builders;
+        private final double[] values;
+
+        private MultiObjectiveStateBuilder(StateBuilder[] builders, double[] values) {
+            this.builders = builders;
+            this.values = values;
+            Observations.lastMeasuredMetricValue = values[0];
+        }
+
+        @Override
+        public void handleChoiceGeneratorAdvanced(VM vm, ChoiceGenerator<?> currentCG) {
+            for (int i = 0; i < builders.length; i++) {
+                Observations.lastMeasuredMetricValue = values[i];
+                builders[i].handleChoiceGeneratorAdvanced(vm, currentCG);
+                values[i] = Observations.lastMeasuredMetricValue;
+            }
+            Observations.lastMeasuredMetricValue = values[0];
+        }
+
+        @Override
+        public void handleExecuteInstruction(VM vm, ThreadInfo currentThread, Instruction instructionToExecute) {
+            for (int i = 0; i < builders.length; i++) {
+                Observations.lastMeasuredMetricValue = values[i];
+                builders[i].handleExecuteInstruction(vm, currentThread, instructionToExecute);
+                values[i] = Observations.lastMeasuredMetricValue;
+            }
+            Observations.lastMeasuredMetricValue = values[0];
+        }
+
+        @Override
+        public void handleInstructionExecuted(VM vm, ThreadInfo currentThread, Instruction nextInstruction,
+                Instruction executedInstruction) {
+            for (int i = 0; i < builders.length; i++) {
+                Observations.lastMeasuredMetricValue = values[i];
+                builders[i].handleInstructionExecuted(vm, currentThread, nextInstruction, executedInstruction);
+                values[i] = Observations.lastMeasuredMetricValue;
+            }
+            Observations.lastMeasuredMetricValue = values[0];
+        }
+
+        @Override
+        public void handleObjectCreated(VM vm, ThreadInfo ti, ElementInfo ei) {
+            for (int i = 0; i < builders.length; i++) {
+                Observations.lastMeasuredMetricValue = values[i];
+                builders[i].handleObjectCreated(vm, ti, ei);
+                values[i] = Observations.lastMeasuredMetricValue;
+            }
+            Observations.lastMeasuredMetricValue = values[0];
+        }
+
+        @Override
+        public void handleObjectReleased(VM vm, ThreadInfo ti, ElementInfo ei) {
+            for (int i = 0; i < builders.length; i++) {
+                Observations.lastMeasuredMetricValue = values[i];
+                builders[i].handleObjectReleased(vm, ti, ei);
+                values[i] = Observations.lastMeasuredMetricValue;
+            }
+            Observations.lastMeasuredMetricValue = values[0];
+        }
+
+        @Override
+        public void handleMethodEntered(VM vm, ThreadInfo ti, MethodInfo mi) {
+            for (int i = 0; i < builders.length; i++) {
+                Observations.lastMeasuredMetricValue = values[i];
+                builders[i].handleMethodEntered(vm, ti, mi);
+                values[i] = Observations.lastMeasuredMetricValue;
+            }
+            Observations.lastMeasuredMetricValue = values[0];
+        }
+
+        @Override
+        public void handleMethodExited(VM vm, ThreadInfo ti, MethodInfo mi) {
+            for (int i = 0; i < builders.length; i++) {
+                Observations.lastMeasuredMetricValue = values[i];
+                builders[i].handleMethodExited(vm, ti, mi);
+                values[i] = Observations.lastMeasuredMetricValue;
+            }
+            Observations.lastMeasuredMetricValue = values[0];
+        }
+
+        @Override
+        public StateBuilder copy() {
+            StateBuilder[] copies = new StateBuilder[builders.length];
+            for (int i = 0; i < builders.length; i++) {
+                Observations.lastMeasuredMetricValue = values[i];
+                copies[i] = builders[i].copy();
+            }
+            return new MultiObjectiveStateBuilder(copies, values.clone());
+        }
+
+        @Override
+        public State build(PathCondition resultingPC) {
+            double[] metricValues = new double[builders.length];
+            for (int i = 0; i < builders.length; i++) {
+                Observations.lastMeasuredMetricValue = values[i];
+                metricValues[i] = builders[i].build(resultingPC).getWC();
+            }
+            Observations.lastMeasuredMetricValue = values[0];
+            return new MultiObjectiveState(metricValues, resultingPC);
+        }
+
+    }
+
+    private final double[] metricValues;
+
+    private MultiObjectiveState(double[] metricValues, PathCondition pc) {
+        super(pc);
+        this.metricValues = metricValues;
+    }
+
+    /**
+     * Compares the primary metric value. Use {@link ParetoFront#dominates} to compare all metric values.
+     */
+    @Override
+    public int compareTo(State o) {
+        if (!(o instanceof MultiObjectiveState)) {
+            throw new IllegalStateException("Expected state of type " + MultiObjectiveState.class.getName());
+        }
+        return Double.compare(this.metricValues[0], ((MultiObjectiveState) o).metricValues[0]);
+    }
+
+    public double[] getMetricValues() {
+        return this.metricValues;
+    }
+
+    @Override
+    public double getWC() {
+        return this.metricValues[0];
+    }
+}
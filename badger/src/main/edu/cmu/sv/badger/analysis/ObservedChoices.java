@@ -0,0 +1,59 @@
+package edu.cmu.sv.badger.analysis;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Stores the choices observed so far for every instruction as bit set, indexed by the instruction id of
+ * {@link edu.cmu.sv.badger.util.InstructionIds}. The number of choices is maintained separately, so that coverage checks
+ * take constant time.
+ */
+public class ObservedChoices {
+
+    private BitSet[] choices = new BitSet[1024];
+    private int[] numberOfChoices = new int[1024];
+
+    /**
+     * @return true if the choice was new for this instruction, false otherwise.
+     */
+    public boolean add(int instructionId, int choice) {
+        if (instructionId < 0 || choice < 0) {
+            return false;
+        }
+        ensureCapacity(instructionId);
+        BitSet observed = choices[instructionId];
+        if (observed == null) {
+            observed = new BitSet(2); // most branching instructions have two choices
+            choices[instructionId] = observed;
+        }
+        if (observed.get(choice)) {
+            return false;
+        }
+        observed.set(choice);
+        numberOfChoices[instructionId]++;
+        return true;
+    }
+
+    public boolean contains(int instructionId, int choice) {
+        if (instructionId < 0 || instructionId >= choices.length || choices[instructionId] == null || choice < 0) {
+            return false;
+        }
+        return choices[instructionId].get(choice);
+    }
+
+    public int size(int instructionId) {
+        if (instructionId < 0 || instructionId >= numberOfChoices.length) {
+            return 0;
+        }
+        return numberOfChoices[instructionId];
+    }
+
+    private void ensureCapacity(int instructionId) {
+        if (instructionId >= choices.length) {
+            int newLength = Math.max(choices.length * 2, instructionId + 1);
+            choices = Arrays.copyOf(choices, newLength);
+            numberOfChoices = Arrays.copyOf(numberOfChoices, newLength);
+        }
+    }
+
+}
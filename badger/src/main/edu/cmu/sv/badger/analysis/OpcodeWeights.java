@@ -0,0 +1,115 @@
+package edu.cmu.sv.badger.analysis;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Cost of every JVM opcode relative to a local variable load, used by {@link WeightedInstructionState}.
+ *
+ * The default table reflects the typical relative cost of the instructions in JIT compiled code on HotSpot: division,
+ * allocation, interface dispatch, monitors and exceptions are one to two orders of magnitude more expensive than loads,
+ * stores and simple arithmetic. It can be overridden by a properties file with entries <code>mnemonic=weight</code>,
+ * e.g. with a table measured with JMH on the host that runs the target.
+ */
+public final class OpcodeWeights {
+
+    private static final String[] MNEMONICS = { "nop", "aconst_null", "iconst_m1", "iconst_0", "iconst_1", "iconst_2",
+            "iconst_3", "iconst_4", "iconst_5", "lconst_0", "lconst_1", "fconst_0", "fconst_1", "fconst_2", "dconst_0",
+            "dconst_1", "bipush", "sipush", "ldc", "ldc_w", "ldc2_w", "iload", "lload", "fload", "dload", "aload",
+            "iload_0", "iload_1", "iload_2", "iload_3", "lload_0", "lload_1", "lload_2", "lload_3", "fload_0",
+            "fload_1", "fload_2", "fload_3", "dload_0", "dload_1", "dload_2", "dload_3", "aload_0", "aload_1",
+            "aload_2", "aload_3", "iaload", "laload", "faload", "daload", "aaload", "baload", "caload", "saload",
+            "istore", "lstore", "fstore", "dstore", "astore", "istore_0", "istore_1", "istore_2", "istore_3",
+            "lstore_0", "lstore_1", "lstore_2", "lstore_3", "fstore_0", "fstore_1", "fstore_2", "fstore_3", "dstore_0",
+            "dstore_1", "dstore_2", "dstore_3", "astore_0", "astore_1", "astore_2", "astore_3", "iastore", "lastore",
+            "fastore", "dastore", "aastore", "bastore", "castore", "sastore", "pop", "pop2", "dup", "dup_x1", "dup_x2",
+            "dup2", "dup2_x1", "dup2_x2", "swap", "iadd", "ladd", "fadd", "dadd", "isub", "lsub", "fsub", "dsub",
+            "imul", "lmul", "fmul", "dmul", "idiv", "ldiv", "fdiv", "ddiv", "irem", "lrem", "frem", "drem", "ineg",
+            "lneg", "fneg", "dneg", "ishl", "lshl", "ishr", "lshr", "iushr", "lushr", "iand", "land", "ior", "lor",
+            "ixor", "lxor", "iinc", "i2l", "i2f", "i2d", "l2i", "l2f", "l2d", "f2i", "f2l", "f2d", "d2i", "d2l", "d2f",
+            "i2b", "i2c", "i2s", "lcmp", "fcmpl", "fcmpg", "dcmpl", "dcmpg", "ifeq", "ifne", "iflt", "ifge", "ifgt",
+            "ifle", "if_icmpeq", "if_icmpne", "if_icmplt", "if_icmpge", "if_icmpgt", "if_icmple", "if_acmpeq",
+            "if_acmpne", "goto", "jsr", "ret", "tableswitch", "lookupswitch", "ireturn", "lreturn", "freturn",
+            "dreturn", "areturn", "return", "getstatic", "putstatic", "getfield", "putfield", "invokevirtual",
+            "invokespecial", "invokestatic", "invokeinterface", "invokedynamic", "new", "newarray", "anewarray",
+            "arraylength", "athrow", "checkcast", "instanceof", "monitorenter", "monitorexit", "wide",
+            "multianewarray", "ifnull", "ifnonnull", "goto_w", "jsr_w" };
+
+    private static final Map<String, Integer> OPCODES = new HashMap<>();
+    static {
+        for (int opcode = 0; opcode < MNEMONICS.length; opcode++) {
+            OPCODES.put(MNEMONICS[opcode], opcode);
+        }
+    }
+
+    private final double[] weights;
+
+    private OpcodeWeights(double[] weights) {
+        this.weights = weights;
+    }
+
+    /**
+     * @return weight of the given opcode, 0 for the JPF specific pseudo instructions beyond the JVM opcodes.
+     */
+    public double get(int opcode) {
+        return opcode >= 0 && opcode < weights.length ? weights[opcode] : 0.0;
+    }
+
+    public static OpcodeWeights createDefault() {
+        double[] weights = new double[MNEMONICS.length];
+        Arrays.fill(weights, 1.0);
+        set(weights, 2.0, "imul", "lmul", "i2f", "i2d", "l2f", "l2d", "f2d", "d2f", "areturn", "ireturn", "lreturn",
+                "freturn", "dreturn", "return", "getfield", "putfield", "getstatic", "putstatic", "iaload", "laload",
+                "faload", "daload", "baload", "caload", "saload", "iastore", "lastore", "fastore", "dastore",
+                "bastore", "castore", "sastore");
+        set(weights, 3.0, "fadd", "dadd", "fsub", "dsub", "fmul", "dmul", "aaload", "checkcast", "instanceof",
+                "tableswitch", "lookupswitch", "invokespecial", "invokestatic");
+        set(weights, 4.0, "aastore", "f2i", "f2l", "d2i", "d2l");
+        set(weights, 5.0, "invokevirtual");
+        set(weights, 8.0, "invokeinterface");
+        set(weights, 10.0, "fdiv", "new");
+        set(weights, 15.0, "ddiv", "newarray", "anewarray", "invokedynamic");
+        set(weights, 20.0, "idiv", "irem", "monitorenter", "monitorexit");
+        set(weights, 25.0, "ldiv", "lrem");
+        set(weights, 30.0, "frem", "drem");
+        set(weights, 40.0, "multianewarray");
+        set(weights, 100.0, "athrow");
+        return new OpcodeWeights(weights);
+    }
+
+    private static void set(double[] weights, double weight, String... mnemonics) {
+        for (String mnemonic : mnemonics) {
+            weights[OPCODES.get(mnemonic)] = weight;
+        }
+    }
+
+    /**
+     * Reads the weights from the given properties file. Opcodes, which are not listed in the file, keep their default
+     * weight.
+     */
+    public static OpcodeWeights load(String fileName) throws IOException {
+        Properties prop = new Properties();
+        try (InputStream in = new FileInputStream(fileName)) {
+            prop.load(in);
+        }
+        OpcodeWeights result = createDefault();
+        for (String mnemonic : prop.stringPropertyNames()) {
+            Integer opcode = OPCODES.get(mnemonic.toLowerCase());
+            if (opcode == null) {
+                throw new IllegalArgumentException("Unknown opcode in " + fileName + ": " + mnemonic);
+            }
+            try {
+                result.weights[opcode] = Double.parseDouble(prop.getProperty(mnemonic).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Weight of " + mnemonic + " in " + fileName + " is not a number!");
+            }
+        }
+        return result;
+    }
+
+}
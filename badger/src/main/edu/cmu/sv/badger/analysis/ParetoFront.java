@@ -0,0 +1,105 @@
+package edu.cmu.sv.badger.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Archive of the non-dominated metric vectors observed so far, together with the Pareto dominance and crowding
+ * distance computations of the multi-objective worst-case analysis.
+ */
+public class ParetoFront {
+
+    private final boolean maximize;
+    private final List<double[]> front = new ArrayList<>();
+
+    public ParetoFront(boolean maximize) {
+        this.maximize = maximize;
+    }
+
+    /**
+     * Adds the given vector if it is not dominated by any vector of the front, and removes all vectors that it
+     * dominates.
+     *
+     * @return true if the front was extended, false if the vector is dominated by or equal to a vector of the front.
+     */
+    public boolean add(double[] vector) {
+        for (double[] member : front) {
+            if (Arrays.equals(member, vector) || dominates(member, vector, maximize)) {
+                return false;
+            }
+        }
+        Iterator<double[]> it = front.iterator();
+        while (it.hasNext()) {
+            if (dominates(vector, it.next(), maximize)) {
+                it.remove();
+            }
+        }
+        front.add(vector.clone());
+        return true;
+    }
+
+    public List<double[]> getFront() {
+        return Collections.unmodifiableList(front);
+    }
+
+    public int size() {
+        return front.size();
+    }
+
+    /**
+     * @return true if a is at least as good as b in all objectives and better in at least one.
+     */
+    public static boolean dominates(double[] a, double[] b, boolean maximize) {
+        boolean better = false;
+        for (int i = 0; i < a.length; i++) {
+            double diff = maximize ? a[i] - b[i] : b[i] - a[i];
+            if (diff < 0) {
+                return false;
+            } else if (diff > 0) {
+                better = true;
+            }
+        }
+        return better;
+    }
+
+    /**
+     * Calculates the crowding distance of every vector of a front, i.e. the sum over all objectives of the normalized
+     * distance between its neighbors in this objective. The extreme vectors of every objective get an infinite
+     * distance, so that the boundaries of the front are preferred.
+     */
+    public static double[] getCrowdingDistances(List<double[]> vectors) {
+        int n = vectors.size();
+        double[] distances = new double[n];
+        if (n == 0) {
+            return distances;
+        }
+        if (n <= 2) {
+            Arrays.fill(distances, Double.POSITIVE_INFINITY);
+            return distances;
+        }
+        Integer[] order = new Integer[n];
+        for (int objective = 0; objective < vectors.get(0).length; objective++) {
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            final int o = objective;
+            Arrays.sort(order, (i, j) -> Double.compare(vectors.get(i)[o], vectors.get(j)[o]));
+            double min = vectors.get(order[0])[objective];
+            double max = vectors.get(order[n - 1])[objective];
+            distances[order[0]] = Double.POSITIVE_INFINITY;
+            distances[order[n - 1]] = Double.POSITIVE_INFINITY;
+            if (max == min) {
+                continue;
+            }
+            for (int i = 1; i < n - 1; i++) {
+                distances[order[i]] += (vectors.get(order[i + 1])[objective] - vectors.get(order[i - 1])[objective])
+                        / (max - min);
+            }
+        }
+        return distances;
+    }
+
+}
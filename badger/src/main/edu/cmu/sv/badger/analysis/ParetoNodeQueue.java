@@ -0,0 +1,216 @@
+package edu.cmu.sv.badger.analysis;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import edu.cmu.sv.badger.trie.TrieNode;
+
+/**
+ * Exploration queue of the multi-objective worst-case analysis. The head of the queue is determined when it is polled,
+ * because the Pareto rank of a node depends on all other nodes in the queue:
+ * <ol>
+ * <li>nodes that can expose new branches are preferred, as for the single objective heuristics,</li>
+ * <li>only nodes of the first Pareto front of the remaining nodes are considered,</li>
+ * <li>among them the node with the highest crowding distance is selected, so that the front is extended evenly,</li>
+ * <li>ties are broken by the exploration heuristic, i.e. by primary metric value and depth.</li>
+ * </ol>
+ * Nodes without metric vector are only selected if no node has one.
+ *
+ * The first front is maintained on every change of the queue, so that a poll only computes the crowding distances of
+ * the front. Like in the priority queue of the single objective analyses, the metric vector and the branch potential
+ * of a node are taken when it is added, the analyzer re-adds the node if they change.
+ */
+class ParetoNodeQueue extends AbstractQueue<TrieNode> {
+
+    /* Queued nodes that can, or cannot, expose new branches. */
+    private final class Pool {
+        final List<TrieNode> front = new ArrayList<>(); // non-dominated nodes with metric vector
+        final Set<TrieNode> dominated = new LinkedHashSet<>(); // nodes with metric vector, dominated by the front
+        final PriorityQueue<TrieNode> withoutVector = new PriorityQueue<>(heuristic);
+
+        boolean isEmpty() {
+            return front.isEmpty() && withoutVector.isEmpty();
+        }
+
+        void add(TrieNode node) {
+            if (vectors.containsKey(node)) {
+                addToFront(node);
+            } else {
+                withoutVector.add(node);
+            }
+        }
+
+        private void addToFront(TrieNode node) {
+            double[] vector = vectors.get(node);
+            if (isDominatedByFront(vector)) {
+                dominated.add(node);
+                return;
+            }
+            for (Iterator<TrieNode> it = front.iterator(); it.hasNext();) {
+                TrieNode member = it.next();
+                if (ParetoFront.dominates(vector, vectors.get(member), maximize)) {
+                    it.remove();
+                    dominated.add(member);
+                }
+            }
+            front.add(node);
+        }
+
+        private boolean isDominatedByFront(double[] vector) {
+            for (TrieNode member : front) {
+                if (ParetoFront.dominates(vectors.get(member), vector, maximize)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void remove(TrieNode node, double[] vector) {
+            if (vector == null) {
+                withoutVector.remove(node);
+            } else if (!dominated.remove(node)) {
+                front.remove(node);
+                // Only the nodes that were dominated by the removed node can move up to the front.
+                List<TrieNode> uncovered = new ArrayList<>();
+                for (Iterator<TrieNode> it = dominated.iterator(); it.hasNext();) {
+                    TrieNode candidate = it.next();
+                    double[] candidateVector = vectors.get(candidate);
+                    if (ParetoFront.dominates(vector, candidateVector, maximize)
+                            && !isDominatedByFront(candidateVector)) {
+                        it.remove();
+                        uncovered.add(candidate);
+                    }
+                }
+                for (TrieNode candidate : uncovered) {
+                    addToFront(candidate);
+                }
+            }
+        }
+
+        void clear() {
+            front.clear();
+            dominated.clear();
+            withoutVector.clear();
+        }
+    }
+
+    private final ExplorationHeuristic heuristic;
+    private boolean maximize = true;
+    private final Map<TrieNode, Pool> poolOfNode = new LinkedHashMap<>();
+    private final Map<TrieNode, double[]> vectors = new HashMap<>(); // metric vectors at the time of offer
+    private final Pool newBranchPool;
+    private final Pool otherPool;
+
+    ParetoNodeQueue(ExplorationHeuristic heuristic) {
+        this.heuristic = heuristic;
+        this.newBranchPool = new Pool();
+        this.otherPool = new Pool();
+    }
+
+    void setMaximize(boolean maximize) {
+        if (this.maximize == maximize) {
+            return;
+        }
+        this.maximize = maximize;
+        // The fronts depend on the direction, so rebuild them.
+        newBranchPool.clear();
+        otherPool.clear();
+        for (Map.Entry<TrieNode, Pool> entry : poolOfNode.entrySet()) {
+            entry.getValue().add(entry.getKey());
+        }
+    }
+
+    @Override
+    public boolean offer(TrieNode node) {
+        if (poolOfNode.containsKey(node)) {
+            return true;
+        }
+        double[] vector = node.getMetricVector();
+        if (vector != null) {
+            vectors.put(node, vector.clone());
+        }
+        Pool pool = node.canExposeNewBranches() ? newBranchPool : otherPool;
+        poolOfNode.put(node, pool);
+        pool.add(node);
+        return true;
+    }
+
+    @Override
+    public TrieNode poll() {
+        TrieNode head = peek();
+        if (head != null) {
+            remove(head);
+        }
+        return head;
+    }
+
+    @Override
+    public TrieNode peek() {
+        Pool pool = !newBranchPool.isEmpty() ? newBranchPool : otherPool;
+        List<TrieNode> front = pool.front;
+        if (front.isEmpty()) {
+            return pool.withoutVector.peek();
+        }
+
+        List<double[]> frontVectors = new ArrayList<>(front.size());
+        for (TrieNode member : front) {
+            frontVectors.add(vectors.get(member));
+        }
+        double[] crowdingDistances = ParetoFront.getCrowdingDistances(frontVectors);
+
+        TrieNode head = front.get(0);
+        double headDistance = crowdingDistances[0];
+        for (int i = 1; i < front.size(); i++) {
+            TrieNode node = front.get(i);
+            if (crowdingDistances[i] > headDistance
+                    || (crowdingDistances[i] == headDistance && heuristic.compare(node, head) < 0)) {
+                head = node;
+                headDistance = crowdingDistances[i];
+            }
+        }
+        return head;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        Pool pool = poolOfNode.remove(o);
+        if (pool == null) {
+            return false;
+        }
+        pool.remove((TrieNode) o, vectors.remove(o));
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return poolOfNode.containsKey(o);
+    }
+
+    @Override
+    public void clear() {
+        poolOfNode.clear();
+        vectors.clear();
+        newBranchPool.clear();
+        otherPool.clear();
+    }
+
+    @Override
+    public Iterator<TrieNode> iterator() {
+        return Collections.unmodifiableSet(poolOfNode.keySet()).iterator();
+    }
+
+    @Override
+    public int size() {
+        return poolOfNode.size();
+    }
+
+}
@@ -0,0 +1,38 @@
+package edu.cmu.sv.badger.analysis;
+
+/**
+ * Worst-case analysis for several cost metrics at once. The nodes carry a vector of metric values, see
+ * {@link MultiObjectiveState}, and are explored in the order of their Pareto rank and crowding distance, see
+ * {@link ParetoNodeQueue}. The direction of the heuristic, i.e. highest or lowest cost, applies to all metrics.
+ *
+ * An input is considered as better score if its metric vector extends the Pareto front of all inputs so far.
+ */
+public class ParetoWCAAnalyzer extends WCAAnalyzer {
+
+    private final ParetoFront paretoFront;
+
+    public ParetoWCAAnalyzer(ExplorationHeuristic heuristic) {
+        this(heuristic, new ParetoNodeQueue(heuristic));
+    }
+
+    private ParetoWCAAnalyzer(ExplorationHeuristic heuristic, ParetoNodeQueue nodeQueue) {
+        super(heuristic, nodeQueue);
+        boolean maximize = getCostStrategy().equals(CostStrategy.MAXIMIZE);
+        nodeQueue.setMaximize(maximize);
+        this.paretoFront = new ParetoFront(maximize);
+    }
+
+    /**
+     * Adds the metric vector of an observed input to the Pareto front.
+     *
+     * @return true if the input extends the front, i.e. it is not dominated by any previous input.
+     */
+    public boolean addToParetoFront(double[] metricVector) {
+        return metricVector != null && paretoFront.add(metricVector);
+    }
+
+    public ParetoFront getParetoFront() {
+        return paretoFront;
+    }
+
+}
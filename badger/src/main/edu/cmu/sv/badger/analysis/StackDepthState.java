@@ -0,0 +1,121 @@
+package edu.cmu.sv.badger.analysis;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import gov.nasa.jpf.symbc.Observations;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * Stack depth cost model: measures the maximum number of frames on the call stack of any thread on the path. The bytes
+ * variant weights every frame with the size of its local variables and operand stack, so that deep recursion of
+ * methods with large frames ranks higher.
+ *
+ * Static initializers are ignored, because when they run depends on the class loading order and not on the input.
+ */
+public final class StackDepthState extends State {
+
+    public final static String ID = "stack";
+    public final static String BYTES_ID = "stack-bytes";
+
+    /* JPF stores every local variable and operand stack entry in one int slot. */
+    private final static int SLOT_SIZE = 4;
+
+    public final static class StackDepthBuilderFactory extends StateBuilderFactory {
+
+        private final boolean measureBytes;
+
+        public StackDepthBuilderFactory(boolean measureBytes) {
+            this.measureBytes = measureBytes;
+        }
+
+        @Override
+        public StateBuilder createStateBuilder() {
+            return new StackDepthStateBuilder(measureBytes);
+        }
+
+    }
+
+    public final static class StackDepthStateBuilder extends StateBuilderAdapter {
+
+        private final boolean measureBytes;
+
+        /* Current stack size by thread id, in frames or bytes. */
+        private final Map<Integer, Long> stackSizes;
+
+        public StackDepthStateBuilder(boolean measureBytes) {
+            this.measureBytes = measureBytes;
+            this.stackSizes = new HashMap<>();
+        }
+
+        private StackDepthStateBuilder(boolean measureBytes, Map<Integer, Long> stackSizes, double maxStackSize) {
+            this.measureBytes = measureBytes;
+            this.stackSizes = new HashMap<>(stackSizes);
+            Observations.lastMeasuredMetricValue = maxStackSize;
+        }
+
+        @Override
+        public void handleMethodEntered(VM vm, ThreadInfo ti, MethodInfo mi) {
+            if (mi == null || mi.isClinit()) {
+                return;
+            }
+            long stackSize = stackSizes.getOrDefault(ti.getId(), 0L) + getFrameSize(mi);
+            stackSizes.put(ti.getId(), stackSize);
+            if (stackSize > Observations.lastMeasuredMetricValue) {
+                Observations.lastMeasuredMetricValue = stackSize;
+            }
+        }
+
+        @Override
+        public void handleMethodExited(VM vm, ThreadInfo ti, MethodInfo mi) {
+            if (mi == null || mi.isClinit()) {
+                return;
+            }
+            // Frames entered before the listener was registered are not counted, so do not become negative.
+            stackSizes.put(ti.getId(), Math.max(0L, stackSizes.getOrDefault(ti.getId(), 0L) - getFrameSize(mi)));
+        }
+
+        private long getFrameSize(MethodInfo mi) {
+            return measureBytes ? (long) (mi.getMaxLocals() + mi.getMaxStack()) * SLOT_SIZE : 1L;
+        }
+
+        @Override
+        public StateBuilder copy() {
+            return new StackDepthStateBuilder(measureBytes, stackSizes, Observations.lastMeasuredMetricValue);
+        }
+
+        @Override
+        public State build(PathCondition resultingPC) {
+            return new StackDepthState(Observations.lastMeasuredMetricValue, resultingPC);
+        }
+
+    }
+
+    private final double maxStackSize;
+
+    private StackDepthState(double maxStackSize, PathCondition pc) {
+        super(pc);
+        this.maxStackSize = maxStackSize;
+    }
+
+    @Override
+    public int compareTo(State o) {
+        if (!(o instanceof StackDepthState)) {
+            throw new IllegalStateException("Expected state of type " + StackDepthState.class.getName());
+        }
+        StackDepthState other = (StackDepthState) o;
+        return this.maxStackSize < other.maxStackSize ? -1 : this.maxStackSize > other.maxStackSize ? 1 : 0;
+    }
+
+    public double getMaxStackSize() {
+        return this.maxStackSize;
+    }
+
+    @Override
+    public double getWC() {
+        return this.getMaxStackSize();
+    }
+}
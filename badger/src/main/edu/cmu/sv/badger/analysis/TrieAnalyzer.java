@@ -1,7 +1,5 @@
 package edu.cmu.sv.badger.analysis;
 
-import java.util.Set;
-
 import edu.cmu.sv.badger.trie.Trie;
 import edu.cmu.sv.badger.trie.TrieNode;
 import gov.nasa.jpf.vm.Instruction;
@@ -31,6 +29,15 @@ public abstract class TrieAnalyzer { // TODO think about having only one and eve
      */
     public abstract boolean updateNode(TrieNode node);
 
+    /**
+     * Removes a pruned node from all internal data structures. Pruned nodes are completed, leaf or unsat nodes, i.e.
+     * they are not part of the exploration queue anymore.
+     * 
+     * @param node
+     *            - TrieNode
+     */
+    public abstract void removeNode(TrieNode node);
+
     /**
      * Generate a String that includes several statistics about the current run.
      * 
@@ -38,6 +45,20 @@ public abstract class TrieAnalyzer { // TODO think about having only one and eve
      */
     public abstract String getStatistics();
 
+    /**
+     * Returns the number of nodes that are currently available for exploration, in constant time.
+     * 
+     * @return int
+     */
+    public abstract int getNumberOfNodesForExploration();
+
+    /**
+     * Returns the number of nodes that are mapped to the instruction of their next decision, in constant time.
+     * 
+     * @return long
+     */
+    public abstract long getNumberOfMappedNodes();
+
     /**
      * Checks whether there is any node left that is available for exploration.
      * 
@@ -45,17 +66,38 @@ public abstract class TrieAnalyzer { // TODO think about having only one and eve
      */
     public abstract boolean isNodeLeftforAnalysis();
 
+    /**
+     * Called after the node returned by {@link #analyze(Trie)} was explored and the generated inputs were added to the
+     * trie, so that the analyzer can learn from the outcome. Does nothing by default.
+     * 
+     * @param node
+     *            - explored TrieNode
+     */
+    public void explorationFinished(TrieNode node) {
+    }
+
     public abstract boolean addObservedChoice(Instruction instr, int choice);
 
     /**
-     * Returns all choices observed so far for this instruction, i.e. returns which branches from this condition already
-     * occurred during execution.
+     * Returns the number of choices observed so far for this instruction, i.e. how many branches from this condition
+     * already occurred during execution.
      * 
-     * @param instr
-     *            - int hashcode
-     * @return Set of int values.
+     * @param instructionId
+     *            - id of InstructionIds
+     * @return int
      */
-    public abstract Set<Integer> getObservedChoices(int instructionHashCode);
+    public abstract int getNumberOfObservedChoices(int instructionId);
+
+    /**
+     * Checks whether the given choice was already observed for this instruction.
+     * 
+     * @param instructionId
+     *            - id of InstructionIds
+     * @param choice
+     *            - choice integer value
+     * @return true for yes, otherwise false
+     */
+    public abstract boolean isObservedChoice(int instructionId, int choice);
 
     /**
      * Adds a new observed choice, and updates all necessary data structures.
@@ -67,17 +109,17 @@ public abstract class TrieAnalyzer { // TODO think about having only one and eve
      * @return true if choice was new, false otherwise.
      */
     protected void enablePathToNode(TrieNode node, int nextChoice) {
-        if (node == null) {
-            return;
-        }
+        // Iterative, because the path can be deeper than the call stack.
+        while (node != null) {
+            node.setEnabled();
 
-        node.setEnabled();
+            if (nextChoice >= 0) {
+                node.setGuidedChoice(nextChoice);
+            }
 
-        if (nextChoice >= 0) {
-            node.setGuidedChoice(nextChoice);
+            nextChoice = node.getChoice();
+            node = node.getParent();
         }
-
-        enablePathToNode(node.getParent(), node.getChoice());
     }
 
 }
@@ -0,0 +1,225 @@
+package edu.cmu.sv.badger.analysis;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import edu.cmu.sv.badger.trie.TrieNode;
+
+/**
+ * Exploration queue of the Monte-Carlo tree search. Every trie node that was explored, and every ancestor of it, holds
+ * the number of explorations in its subtree and the sum of their rewards. The head of the queue is determined when it
+ * is polled, because the scores change with every reward:
+ * <ol>
+ * <li>a node is scored by the UCB1 formula <code>mean + c * sqrt(ln(N) / n)</code> of the smallest explored subtree
+ * that contains it, where n is the number of explorations in this subtree, mean their average reward, and N the total
+ * number of explorations,</li>
+ * <li>nodes that are not contained in an explored subtree get an infinite score, i.e. they are tried first,</li>
+ * <li>ties are broken by the exploration heuristic, i.e. by new branches, metric value and depth.</li>
+ * </ol>
+ * The queued nodes are grouped by the smallest explored subtree that contains them, so that a poll only scores the
+ * subtrees and not every queued node. The grouping changes only if a reward reaches a node that was not explored
+ * before.
+ */
+class UCBNodeQueue extends AbstractQueue<TrieNode> {
+
+    /* Explorations in the subtree of a node. */
+    private static final class NodeStatistics {
+        int visits;
+        double rewardSum;
+    }
+
+    /* Queued nodes with the same smallest explored subtree, ordered by the exploration heuristic. */
+    private static final class Region {
+        final TrieNode root; // null for the nodes outside of all explored subtrees
+        final NodeStatistics statistics;
+        final PriorityQueue<TrieNode> nodes;
+
+        Region(TrieNode root, NodeStatistics statistics, ExplorationHeuristic heuristic) {
+            this.root = root;
+            this.statistics = statistics;
+            this.nodes = new PriorityQueue<>(heuristic);
+        }
+    }
+
+    private final ExplorationHeuristic heuristic;
+    private final double explorationConstant;
+    private final Map<TrieNode, NodeStatistics> statistics = new HashMap<>();
+    private final Map<TrieNode, Region> regionOfNode = new LinkedHashMap<>();
+    private final Map<TrieNode, Region> regionByRoot = new HashMap<>();
+    private final Region unexploredRegion;
+    private int totalVisits = 0;
+
+    UCBNodeQueue(ExplorationHeuristic heuristic, double explorationConstant) {
+        this.heuristic = heuristic;
+        this.explorationConstant = explorationConstant;
+        this.unexploredRegion = new Region(null, null, heuristic);
+    }
+
+    /**
+     * Adds the reward of an exploration to the given node and all its ancestors.
+     */
+    void backpropagate(TrieNode node, double reward) {
+        totalVisits++;
+        boolean exploredNewNode = false;
+        boolean foundExploredAncestor = false;
+        Region splitRegion = unexploredRegion;
+        // Iterative, because the path can be deeper than the call stack.
+        while (node != null) {
+            NodeStatistics nodeStatistics = statistics.get(node);
+            if (nodeStatistics == null) {
+                nodeStatistics = new NodeStatistics();
+                statistics.put(node, nodeStatistics);
+                exploredNewNode = true;
+            } else if (!foundExploredAncestor) {
+                // Nearest ancestor that was explored before, only its nodes can be in one of the new subtrees.
+                foundExploredAncestor = true;
+                splitRegion = regionByRoot.get(node);
+            }
+            nodeStatistics.visits++;
+            nodeStatistics.rewardSum += reward;
+            node = node.getParent();
+        }
+        if (exploredNewNode && splitRegion != null) {
+            reassign(splitRegion);
+        }
+    }
+
+    void removeStatistics(TrieNode node) {
+        if (statistics.remove(node) == null) {
+            return;
+        }
+        Region region = regionByRoot.get(node);
+        if (region != null) {
+            reassign(region);
+        }
+    }
+
+    int getNumberOfExplorations() {
+        return totalVisits;
+    }
+
+    /**
+     * Moves the nodes of the given region to the region of their current smallest explored subtree.
+     */
+    private void reassign(Region region) {
+        List<TrieNode> nodes = new ArrayList<>(region.nodes);
+        for (TrieNode node : nodes) {
+            Region newRegion = getRegion(node);
+            if (newRegion != region) {
+                removeFromRegion(node, region);
+                newRegion.nodes.add(node);
+                regionOfNode.put(node, newRegion);
+            }
+        }
+    }
+
+    /**
+     * @return region of the nearest explored ancestor of the given node (including the node itself), created on demand.
+     */
+    private Region getRegion(TrieNode node) {
+        while (node != null) {
+            NodeStatistics nodeStatistics = statistics.get(node);
+            if (nodeStatistics != null) {
+                Region region = regionByRoot.get(node);
+                if (region == null) {
+                    region = new Region(node, nodeStatistics, heuristic);
+                    regionByRoot.put(node, region);
+                }
+                return region;
+            }
+            node = node.getParent();
+        }
+        return unexploredRegion;
+    }
+
+    private void removeFromRegion(TrieNode node, Region region) {
+        region.nodes.remove(node);
+        if (region.nodes.isEmpty() && region != unexploredRegion) {
+            regionByRoot.remove(region.root);
+        }
+    }
+
+    @Override
+    public boolean offer(TrieNode node) {
+        if (!regionOfNode.containsKey(node)) {
+            Region region = getRegion(node);
+            region.nodes.add(node);
+            regionOfNode.put(node, region);
+        }
+        return true;
+    }
+
+    @Override
+    public TrieNode poll() {
+        TrieNode head = peek();
+        if (head != null) {
+            remove(head);
+        }
+        return head;
+    }
+
+    @Override
+    public TrieNode peek() {
+        // Nodes outside of all explored subtrees have an infinite score.
+        if (!unexploredRegion.nodes.isEmpty()) {
+            return unexploredRegion.nodes.peek();
+        }
+
+        double logTotalVisits = Math.log(Math.max(1, totalVisits));
+        TrieNode head = null;
+        double headScore = 0.0;
+        for (Region region : regionByRoot.values()) {
+            TrieNode node = region.nodes.peek();
+            double score = getScore(region.statistics, logTotalVisits);
+            if (head == null || score > headScore || (score == headScore && heuristic.compare(node, head) < 0)) {
+                head = node;
+                headScore = score;
+            }
+        }
+        return head;
+    }
+
+    private double getScore(NodeStatistics subtree, double logTotalVisits) {
+        return subtree.rewardSum / subtree.visits + explorationConstant * Math.sqrt(logTotalVisits / subtree.visits);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        Region region = regionOfNode.remove(o);
+        if (region == null) {
+            return false;
+        }
+        removeFromRegion((TrieNode) o, region);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return regionOfNode.containsKey(o);
+    }
+
+    @Override
+    public void clear() {
+        regionOfNode.clear();
+        regionByRoot.clear();
+        unexploredRegion.nodes.clear();
+    }
+
+    @Override
+    public Iterator<TrieNode> iterator() {
+        return Collections.unmodifiableSet(regionOfNode.keySet()).iterator();
+    }
+
+    @Override
+    public int size() {
+        return regionOfNode.size();
+    }
+
+}
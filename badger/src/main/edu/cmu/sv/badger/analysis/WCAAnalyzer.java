@@ -6,10 +6,10 @@ import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
-import java.util.Map.Entry;
 
 import edu.cmu.sv.badger.trie.Trie;
 import edu.cmu.sv.badger.trie.TrieNode;
+import edu.cmu.sv.badger.util.InstructionIds;
 import gov.nasa.jpf.vm.Instruction;
 
 /**
@@ -34,19 +34,30 @@ public class WCAAnalyzer extends TrieAnalyzer {
     private Queue<TrieNode> nTopScoreNodes;
 
     /* Stores the so far made choices for each observed Instruction. Used to determine branch new branches. */
-    private Map<Integer, Set<Integer>> observedChoices;
+    private ObservedChoices observedChoices;
 
     /*
      * Stores all TrieNodes that correspond to the same Instruction in order to update them faster if there is change in
-     * the choices. Instruction is stored in hashcode representation. The complete Instruction object leads to memory
+     * the choices. Instruction is stored as id of InstructionIds. The complete Instruction object leads to memory
      * problems.
      */
     private Map<Integer, Set<TrieNode>> instruction2NodeMapping;
 
+    /* Number of entries in instruction2NodeMapping, maintained on every change to report it in constant time. */
+    private long numberOfMappedNodes = 0;
+
     public WCAAnalyzer(ExplorationHeuristic heuristic) {
+        this(heuristic, new PriorityQueue<>(heuristic));
+    }
 
-        this.nTopScoreNodes = new PriorityQueue<>(heuristic);
-        this.observedChoices = new HashMap<>();
+    /**
+     * @param nodeQueue
+     *            - orders the nodes available for exploration, instead of the priority queue of the heuristic
+     */
+    protected WCAAnalyzer(ExplorationHeuristic heuristic, Queue<TrieNode> nodeQueue) {
+
+        this.nTopScoreNodes = nodeQueue;
+        this.observedChoices = new ObservedChoices();
         this.instruction2NodeMapping = new HashMap<>();
 
         if (heuristic.equals(WCAExplorationHeuristic.HIGHEST_COST_HIGHEST_NODE)
@@ -97,7 +108,10 @@ public class WCAAnalyzer extends TrieAnalyzer {
         nodeWithHighestPriority.setCompleted();
 
         // Remove this node from the instruction2Node mapping, since this node does not need longer any update.
-        instruction2NodeMapping.get(nodeWithHighestPriority.getNextInstruction()).remove(nodeWithHighestPriority);
+        if (instruction2NodeMapping.get(nodeWithHighestPriority.getNextInstruction())
+                .remove(nodeWithHighestPriority)) {
+            numberOfMappedNodes--;
+        }
 
         return nodeWithHighestPriority;
     }
@@ -119,7 +133,9 @@ public class WCAAnalyzer extends TrieAnalyzer {
             nodes = new HashSet<>();
             instruction2NodeMapping.put(node.getNextInstruction(), nodes);
         }
-        nodes.add(node);
+        if (nodes.add(node)) {
+            numberOfMappedNodes++;
+        }
 
         /*
          * Add node to priority queue if metric value is known AND if this node has potential for exploration, i.e. if
@@ -132,12 +148,26 @@ public class WCAAnalyzer extends TrieAnalyzer {
     }
 
     @Override
-    public String getStatistics() {
-        long instrCount = 0;
-        for (Entry<Integer, Set<TrieNode>> entry : instruction2NodeMapping.entrySet()) {
-            instrCount += entry.getValue().size();
+    public void removeNode(TrieNode node) {
+        Set<TrieNode> nodes = instruction2NodeMapping.get(node.getNextInstruction());
+        if (nodes != null && nodes.remove(node)) {
+            numberOfMappedNodes--;
         }
-        return "" + nTopScoreNodes.size() + "," + instrCount;
+    }
+
+    @Override
+    public String getStatistics() {
+        return "" + nTopScoreNodes.size() + "," + numberOfMappedNodes;
+    }
+
+    @Override
+    public long getNumberOfMappedNodes() {
+        return numberOfMappedNodes;
+    }
+
+    @Override
+    public int getNumberOfNodesForExploration() {
+        return nTopScoreNodes.size();
     }
 
     @Override
@@ -149,20 +179,16 @@ public class WCAAnalyzer extends TrieAnalyzer {
     public boolean addObservedChoice(Instruction instr, int choice) {
         boolean addedNewChoice = false;
         if (instr != null) {
-            int instrHashCode = instr.hashCode();
-            Set<Integer> choices = observedChoices.get(instrHashCode);
-            if (choices == null) {
-                choices = new HashSet<>();
-                observedChoices.put(instrHashCode, choices);
-            }
-            addedNewChoice = choices.add(choice);
+            int instructionId = InstructionIds.getId(instr);
+            addedNewChoice = observedChoices.add(instructionId, choice);
 
             /* If new choice then update prio queue. */
             if (addedNewChoice) {
-                Set<TrieNode> correspondingNodesForInstruction = instruction2NodeMapping.get(instrHashCode);
+                Set<TrieNode> correspondingNodesForInstruction = instruction2NodeMapping.get(instructionId);
                 /* Might be null in the beginning, then there is no node that needs any update. */
                 if (correspondingNodesForInstruction != null) {
                     for (TrieNode node : correspondingNodesForInstruction) {
+                        node.observedChoicesChanged();
                         updateNode(node);
                     }
                 }
@@ -172,13 +198,13 @@ public class WCAAnalyzer extends TrieAnalyzer {
     }
 
     @Override
-    public Set<Integer> getObservedChoices(int instructionHashCode) {
-        Set<Integer> choices = observedChoices.get(instructionHashCode);
-        if (choices == null) {
-            return new HashSet<>();
-        } else {
-            return choices;
-        }
+    public int getNumberOfObservedChoices(int instructionId) {
+        return observedChoices.size(instructionId);
+    }
+
+    @Override
+    public boolean isObservedChoice(int instructionId, int choice) {
+        return observedChoices.contains(instructionId, choice);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package edu.cmu.sv.badger.analysis;
+
+import gov.nasa.jpf.symbc.Observations;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * Weighted instruction counting cost model: every executed bytecode adds the weight of its opcode from
+ * {@link OpcodeWeights}, so that the cost approximates the execution time of the path instead of its length.
+ */
+public final class WeightedInstructionState extends State {
+
+    public final static String ID = "weighted";
+
+    public final static class WeightedInstructionBuilderFactory extends StateBuilderFactory {
+
+        private final OpcodeWeights weights;
+
+        public WeightedInstructionBuilderFactory(OpcodeWeights weights) {
+            this.weights = weights;
+        }
+
+        @Override
+        public StateBuilder createStateBuilder() {
+            return new WeightedInstructionStateBuilder(weights);
+        }
+
+    }
+
+    public final static class WeightedInstructionStateBuilder extends StateBuilderAdapter {
+
+        private final OpcodeWeights weights;
+
+        public WeightedInstructionStateBuilder(OpcodeWeights weights) {
+            this.weights = weights;
+        }
+
+        private WeightedInstructionStateBuilder(OpcodeWeights weights, double cost) {
+            this.weights = weights;
+            Observations.lastMeasuredMetricValue = cost;
+        }
+
+        @Override
+        public void handleInstructionExecuted(VM vm, ThreadInfo currentThread, Instruction nextInstruction,
+                Instruction executedInstruction) {
+            Observations.lastMeasuredMetricValue += weights.get(executedInstruction.getByteCode());
+        }
+
+        @Override
+        public StateBuilder copy() {
+            return new WeightedInstructionStateBuilder(weights, Observations.lastMeasuredMetricValue);
+        }
+
+        @Override
+        public State build(PathCondition resultingPC) {
+            return new WeightedInstructionState(Observations.lastMeasuredMetricValue, resultingPC);
+        }
+
+    }
+
+    private final double cost;
+
+    private WeightedInstructionState(double cost, PathCondition pc) {
+        super(pc);
+        this.cost = cost;
+    }
+
+    @Override
+    public int compareTo(State o) {
+        if (!(o instanceof WeightedInstructionState)) {
+            throw new IllegalStateException("Expected state of type " + WeightedInstructionState.class.getName());
+        }
+        WeightedInstructionState other = (WeightedInstructionState) o;
+        return this.cost < other.cost ? -1 : this.cost > other.cost ? 1 : 0;
+    }
+
+    public double getCost() {
+        return this.cost;
+    }
+
+    @Override
+    public double getWC() {
+        return this.getCost();
+    }
+}
@@ -12,14 +12,22 @@ import java.util.Properties;
 import org.apache.commons.lang3.math.NumberUtils;
 
 import edu.cmu.sv.badger.analysis.BranchCountState;
+import edu.cmu.sv.badger.analysis.CacheMissState;
 import edu.cmu.sv.badger.analysis.CoverageAnalyzer;
 import edu.cmu.sv.badger.analysis.CoverageExplorationHeuristic;
 import edu.cmu.sv.badger.analysis.ExplorationHeuristic;
+import edu.cmu.sv.badger.analysis.HeapAllocationState;
 import edu.cmu.sv.badger.analysis.WCAExplorationHeuristic;
 import edu.cmu.sv.badger.analysis.InstructionCountState;
+import edu.cmu.sv.badger.analysis.MCTSAnalyzer;
+import edu.cmu.sv.badger.analysis.MultiObjectiveState;
+import edu.cmu.sv.badger.analysis.OpcodeWeights;
+import edu.cmu.sv.badger.analysis.ParetoWCAAnalyzer;
+import edu.cmu.sv.badger.analysis.StackDepthState;
 import edu.cmu.sv.badger.analysis.StateBuilderFactory;
 import edu.cmu.sv.badger.analysis.TrieAnalyzer;
 import edu.cmu.sv.badger.analysis.WCAAnalyzer;
+import edu.cmu.sv.badger.analysis.WeightedInstructionState;
 import edu.cmu.sv.badger.io.ByteImageProcessorIOUtils;
 import edu.cmu.sv.badger.io.ByteTextIOUtils;
 import edu.cmu.sv.badger.io.CharArrayIOUtils;
@@ -31,8 +39,12 @@ import edu.cmu.sv.badger.io.IOUtils;
 import edu.cmu.sv.badger.io.ImageByteDoubleIOUtils;
 import edu.cmu.sv.badger.io.ImageDoubleDoubleIOUtils;
 import edu.cmu.sv.badger.io.ImageProcessorIOUtils;
+import edu.cmu.sv.badger.io.ImportQueue;
 import edu.cmu.sv.badger.io.IntArrayIOUtils;
 import edu.cmu.sv.badger.io.MultipleIntArrayIOUtils;
+import edu.cmu.sv.badger.trie.TrieExporter;
+import edu.cmu.sv.badger.util.MethodScope;
+import edu.cmu.sv.badger.util.Statistics;
 
 /**
  * Parses the configuration file of Badger and is used as input data object.
@@ -47,12 +59,26 @@ public class BadgerInput {
     public Optional<String> syncInputdir;
     public String exportDir;
     public String tmpDir;
+    public String hangDir;
 
     /* Technical Parameters */
     public int cycleWaitingSec;
     public int maximumNumberOfSymExeIterations;
     public int secUntilFirstCycle;
     public int numberOfAdditionalDecisions;
+    public boolean useWitnessFastForward;
+    public int witnessSymbolicWindow;
+    public boolean useAdaptiveScheduler;
+    public int schedulerCycleSec;
+    public int schedulerPollSec;
+    public double schedulerMinShare;
+    public double schedulerMaxShare;
+    public long executionBudgetMillis;
+    public long executionBudgetInstructions;
+    public boolean useInputDeduplication;
+    public String importOrder;
+    public long importBudgetMillis;
+    public boolean useAflCoverageFilter;
 
     /* JPF */
     public String jpf_classpath;
@@ -80,6 +106,7 @@ public class BadgerInput {
     public ExplorationHeuristic explorationHeuristic;
     public Optional<StateBuilderFactory> stateBuilderFactory;
     public boolean useUserDefinedCost;
+    public Optional<MethodScope> metricScope;
 
     /* Input Processing / Generation */
     public IOUtils ioUtils;
@@ -94,10 +121,26 @@ public class BadgerInput {
     public String trieStatisticsFile;
     public boolean printPC;
     public String pcMappingFile;
+    public String statisticsFormat;
+    public String eventLogFile;
+    public int metricsPort;
+    public boolean metricsJMX;
+    public String phaseStatisticsFile;
+    public boolean usePhaseJFREvents;
 
     /* Print Trie As Dot Files */
     public boolean printTrieAsDot;
     public Optional<Integer> printTrieMaxDepth;
+    public Optional<Integer> printTrieMinDepth;
+    public Optional<Integer> printTrieRootId;
+    public String printTrieNodes;
+    public int printTrieTop;
+    public String printTrieFormat;
+
+    /* Trie Memory */
+    public double triePruneHeapThreshold;
+    public Optional<String> trieStoreFile;
+    public int trieStoreHotIterations;
 
     public BadgerInput(Properties prop) {
 
@@ -114,6 +157,7 @@ public class BadgerInput {
         this.syncInputdir = Optional.ofNullable(prop.getProperty(BadgerInputKeys.SYNC_INPUT_DIR.name));
         this.exportDir = prop.getProperty(BadgerInputKeys.EXPORT_DIR.name);
         this.tmpDir = prop.getProperty(BadgerInputKeys.TMP_DIR.name, "./tmp");
+        this.hangDir = prop.getProperty(BadgerInputKeys.HANG_DIR.name, "./hangs");
 
         /* Technical Parameters */
         try {
@@ -141,6 +185,79 @@ public class BadgerInput {
             throw new RuntimeException(
                     "Value of " + BadgerInputKeys.NUMBER_OF_ADDITIONAL_STEPS.name + " is not a number!");
         }
+        this.useWitnessFastForward = Boolean
+                .valueOf(prop.getProperty(BadgerInputKeys.WITNESS_FAST_FORWARD.name, "false"));
+        try {
+            this.witnessSymbolicWindow = NumberUtils
+                    .createInteger(prop.getProperty(BadgerInputKeys.WITNESS_SYMBOLIC_WINDOW.name, "1"));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Value of " + BadgerInputKeys.WITNESS_SYMBOLIC_WINDOW.name + " is not a number!");
+        }
+        if (this.witnessSymbolicWindow < 1) {
+            throw new RuntimeException("Value of " + BadgerInputKeys.WITNESS_SYMBOLIC_WINDOW.name + " must be at least 1!");
+        }
+        String scheduler = prop.getProperty(BadgerInputKeys.SCHEDULER.name, "fixed");
+        switch (scheduler) {
+        case "fixed":
+            this.useAdaptiveScheduler = false;
+            break;
+        case "adaptive":
+            this.useAdaptiveScheduler = true;
+            break;
+        default:
+            throw new RuntimeException("Unknown value for " + BadgerInputKeys.SCHEDULER.name + ": " + scheduler);
+        }
+        try {
+            this.schedulerCycleSec = NumberUtils
+                    .createInteger(prop.getProperty(BadgerInputKeys.SCHEDULER_CYCLE_SEC.name, "60"));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Value of " + BadgerInputKeys.SCHEDULER_CYCLE_SEC.name + " is not a number!");
+        }
+        try {
+            this.schedulerPollSec = NumberUtils
+                    .createInteger(prop.getProperty(BadgerInputKeys.SCHEDULER_POLL_SEC.name, "5"));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Value of " + BadgerInputKeys.SCHEDULER_POLL_SEC.name + " is not a number!");
+        }
+        try {
+            this.schedulerMinShare = NumberUtils
+                    .createDouble(prop.getProperty(BadgerInputKeys.SCHEDULER_MIN_SHARE.name, "0.1"));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Value of " + BadgerInputKeys.SCHEDULER_MIN_SHARE.name + " is not a number!");
+        }
+        try {
+            this.schedulerMaxShare = NumberUtils
+                    .createDouble(prop.getProperty(BadgerInputKeys.SCHEDULER_MAX_SHARE.name, "0.9"));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Value of " + BadgerInputKeys.SCHEDULER_MAX_SHARE.name + " is not a number!");
+        }
+        try {
+            this.executionBudgetMillis = NumberUtils
+                    .createLong(prop.getProperty(BadgerInputKeys.EXECUTION_BUDGET_SEC.name, "0")) * 1000L;
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Value of " + BadgerInputKeys.EXECUTION_BUDGET_SEC.name + " is not a number!");
+        }
+        try {
+            this.executionBudgetInstructions = NumberUtils
+                    .createLong(prop.getProperty(BadgerInputKeys.EXECUTION_BUDGET_INSTRUCTIONS.name, "0"));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException(
+                    "Value of " + BadgerInputKeys.EXECUTION_BUDGET_INSTRUCTIONS.name + " is not a number!");
+        }
+        this.useInputDeduplication = Boolean
+                .valueOf(prop.getProperty(BadgerInputKeys.INPUT_DEDUPLICATION.name, "false"));
+        this.importOrder = prop.getProperty(BadgerInputKeys.IMPORT_ORDER.name, ImportQueue.ORDER_VALUE);
+        if (!importOrder.equals(ImportQueue.ORDER_VALUE) && !importOrder.equals(ImportQueue.ORDER_FIFO)) {
+            throw new RuntimeException("Unknown value for " + BadgerInputKeys.IMPORT_ORDER.name + ": " + importOrder);
+        }
+        try {
+            this.importBudgetMillis = NumberUtils
+                    .createLong(prop.getProperty(BadgerInputKeys.IMPORT_BUDGET_SEC.name, "0")) * 1000L;
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Value of " + BadgerInputKeys.IMPORT_BUDGET_SEC.name + " is not a number!");
+        }
+        this.useAflCoverageFilter = Boolean
+                .valueOf(prop.getProperty(BadgerInputKeys.AFL_COVERAGE_FILTER.name, "false"));
 
         /* JPF */
         this.jpf_classpath = prop.getProperty(BadgerInputKeys.APPLICATION_CLASSPATH.name);
@@ -213,36 +330,76 @@ public class BadgerInput {
         if (analysisMethod.equals(WCAAnalyzer.ID)) {
             String wcaMetric = prop.getProperty(BadgerInputKeys.ANALYSIS_WCA_METRIC.name);
             if (wcaMetric != null) {
-                switch (wcaMetric) {
-                case BranchCountState.ID:
-                    this.stateBuilderFactory = Optional.of(new BranchCountState.BranchBuilderFactory());
-                    this.useUserDefinedCost = false;
-                    break;
-                case InstructionCountState.ID:
-                    this.stateBuilderFactory = Optional.of(new InstructionCountState.InstructionBuilderFactory());
+                if (wcaMetric.contains(",")) {
+                    /* Several metrics are optimized together, so there is a Pareto front instead of a best score. */
+                    List<StateBuilderFactory> factories = new ArrayList<>();
+                    for (String metric : wcaMetric.split(",")) {
+                        factories.add(createStateBuilderFactory(metric.trim(), prop));
+                    }
+                    this.stateBuilderFactory = Optional
+                            .of(new MultiObjectiveState.MultiObjectiveBuilderFactory(factories));
                     this.useUserDefinedCost = false;
-                    break;
-                case "userdefined":
-                    this.stateBuilderFactory = Optional.empty(); // metric values will be user defined
-                    this.useUserDefinedCost = true;
-                    break;
-                case "jumps-userdefined": // we want to measure jumps and use this information in userdefined costs.
-                    this.stateBuilderFactory = Optional.of(new BranchCountState.BranchBuilderFactory());
-                    this.useUserDefinedCost = true;
-                    break;
-                default:
-                    throw new RuntimeException(
-                            "Unkown value for " + BadgerInputKeys.ANALYSIS_WCA_METRIC.name + ": " + wcaMetric);
+                    this.trieAnalysisMethod = new ParetoWCAAnalyzer(explorationHeuristic);
+                } else {
+                    switch (wcaMetric) {
+                    case "userdefined":
+                        this.stateBuilderFactory = Optional.empty(); // metric values will be user defined
+                        this.useUserDefinedCost = true;
+                        break;
+                    case "jumps-userdefined": // we want to measure jumps and use this information in userdefined costs.
+                        this.stateBuilderFactory = Optional.of(new BranchCountState.BranchBuilderFactory());
+                        this.useUserDefinedCost = true;
+                        break;
+                    default:
+                        this.stateBuilderFactory = Optional.of(createStateBuilderFactory(wcaMetric, prop));
+                        this.useUserDefinedCost = false;
+                    }
                 }
             } else {
                 throw new RuntimeException(BadgerInputKeys.ANALYSIS_METHOD.name + "=" + WCAAnalyzer.ID
                         + " needs the existence of values for " + BadgerInputKeys.ANALYSIS_WCA_METRIC.name);
             }
 
+            String selection = prop.getProperty(BadgerInputKeys.ANALYSIS_WCA_SELECTION.name, "heuristic");
+            if (selection.equals(MCTSAnalyzer.ID)) {
+                if (this.trieAnalysisMethod instanceof ParetoWCAAnalyzer) {
+                    throw new RuntimeException(BadgerInputKeys.ANALYSIS_WCA_SELECTION.name + "=" + MCTSAnalyzer.ID
+                            + " does not support several values for " + BadgerInputKeys.ANALYSIS_WCA_METRIC.name);
+                }
+                double explorationConstant;
+                try {
+                    explorationConstant = NumberUtils.createDouble(prop.getProperty(
+                            BadgerInputKeys.ANALYSIS_WCA_UCB_C.name,
+                            String.valueOf(MCTSAnalyzer.DEFAULT_EXPLORATION_CONSTANT)));
+                } catch (NumberFormatException e) {
+                    throw new RuntimeException(
+                            "Value of " + BadgerInputKeys.ANALYSIS_WCA_UCB_C.name + " is not a number!");
+                }
+                if (explorationConstant < 0) {
+                    throw new RuntimeException(
+                            "Value of " + BadgerInputKeys.ANALYSIS_WCA_UCB_C.name + " must not be negative!");
+                }
+                this.trieAnalysisMethod = new MCTSAnalyzer(explorationHeuristic, explorationConstant);
+            } else if (!selection.equals("heuristic")) {
+                throw new RuntimeException(
+                        "Unknown value for " + BadgerInputKeys.ANALYSIS_WCA_SELECTION.name + ": " + selection);
+            }
+
         } else {
             stateBuilderFactory = Optional.empty();
             this.useUserDefinedCost = false;
         }
+        String scope = prop.getProperty(BadgerInputKeys.ANALYSIS_WCA_SCOPE.name,
+                prop.getProperty(BadgerInputKeys.SYMBOLIC_METHOD.name, "all"));
+        if (scope.equals("all")) {
+            this.metricScope = Optional.empty();
+        } else {
+            try {
+                this.metricScope = Optional.of(new MethodScope(scope));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Unknown value for " + BadgerInputKeys.ANALYSIS_WCA_SCOPE.name + ": " + scope);
+            }
+        }
 
         /* Input Processing / Generation */
         String ioUtilsSelection = prop.getProperty(BadgerInputKeys.IO_UTILS.name);
@@ -353,13 +510,109 @@ public class BadgerInput {
                 "export-statistic.txt");
         this.trieStatisticsFile = prop.getProperty(BadgerInputKeys.INTERNAL_TRIE_STATISTICS_FILE.name,
                 "trie-statistic.txt");
-        this.printStatistics = Boolean
-                .valueOf(prop.getProperty(BadgerInputKeys.PRINT_PC_INFO.name, String.valueOf(this.printStatistics)));
+        this.printPC = Boolean.valueOf(prop.getProperty(BadgerInputKeys.PRINT_PC_INFO.name, "false"));
         this.pcMappingFile = prop.getProperty(BadgerInputKeys.PC_MAPPING_FILE.name, "pcMap.txt");
+        this.statisticsFormat = prop.getProperty(BadgerInputKeys.STATISTICS_FORMAT.name, Statistics.FORMAT_BINARY);
+        if (!statisticsFormat.equals(Statistics.FORMAT_CSV) && !statisticsFormat.equals(Statistics.FORMAT_BINARY)) {
+            throw new RuntimeException(
+                    "Unknown value for " + BadgerInputKeys.STATISTICS_FORMAT.name + ": " + statisticsFormat);
+        }
+        this.eventLogFile = prop.getProperty(BadgerInputKeys.EVENT_LOG_FILE.name, "events.bin");
+        try {
+            this.metricsPort = NumberUtils.createInteger(prop.getProperty(BadgerInputKeys.METRICS_PORT.name, "0"));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Value of " + BadgerInputKeys.METRICS_PORT.name + " is not a number!");
+        }
+        this.metricsJMX = Boolean.valueOf(prop.getProperty(BadgerInputKeys.METRICS_JMX.name, "false"));
+        this.phaseStatisticsFile = prop.getProperty(BadgerInputKeys.PHASE_STATISTICS_FILE.name,
+                "phase-statistic.txt");
+        this.usePhaseJFREvents = Boolean.valueOf(prop.getProperty(BadgerInputKeys.PHASE_JFR_EVENTS.name, "false"));
 
         /* Print Trie As Dot Files */
         this.printTrieAsDot = Boolean.valueOf(prop.getProperty(BadgerInputKeys.PRINT_TRIE.name));
         this.printTrieMaxDepth = Optional.ofNullable(NumberUtils.createInteger(prop.getProperty(BadgerInputKeys.PRINT_TRIE_MAX_DEPTH.name)));
+        this.printTrieMinDepth = Optional.ofNullable(NumberUtils.createInteger(prop.getProperty(BadgerInputKeys.PRINT_TRIE_MIN_DEPTH.name)));
+        this.printTrieRootId = Optional.ofNullable(NumberUtils.createInteger(prop.getProperty(BadgerInputKeys.PRINT_TRIE_ROOT.name)));
+        this.printTrieNodes = prop.getProperty(BadgerInputKeys.PRINT_TRIE_NODES.name, TrieExporter.NODES_ALL);
+        if (!printTrieNodes.equals(TrieExporter.NODES_ALL) && !printTrieNodes.equals(TrieExporter.NODES_ENABLED)
+                && !printTrieNodes.equals(TrieExporter.NODES_FRONTIER)) {
+            throw new RuntimeException("Unknown value for " + BadgerInputKeys.PRINT_TRIE_NODES.name + ": " + printTrieNodes);
+        }
+        try {
+            this.printTrieTop = NumberUtils.createInteger(prop.getProperty(BadgerInputKeys.PRINT_TRIE_TOP.name, "0"));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Value of " + BadgerInputKeys.PRINT_TRIE_TOP.name + " is not a number!");
+        }
+        this.printTrieFormat = prop.getProperty(BadgerInputKeys.PRINT_TRIE_FORMAT.name, TrieExporter.FORMAT_DOT);
+        if (!printTrieFormat.equals(TrieExporter.FORMAT_DOT) && !printTrieFormat.equals(TrieExporter.FORMAT_GRAPHML)
+                && !printTrieFormat.equals(TrieExporter.FORMAT_JSON)) {
+            throw new RuntimeException("Unknown value for " + BadgerInputKeys.PRINT_TRIE_FORMAT.name + ": " + printTrieFormat);
+        }
+
+        /* Trie Memory */
+        try {
+            this.triePruneHeapThreshold = NumberUtils
+                    .createDouble(prop.getProperty(BadgerInputKeys.TRIE_PRUNE_HEAP_THRESHOLD.name, "0"));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException(
+                    "Value of " + BadgerInputKeys.TRIE_PRUNE_HEAP_THRESHOLD.name + " is not a number!");
+        }
+        this.trieStoreFile = Optional.ofNullable(prop.getProperty(BadgerInputKeys.TRIE_STORE_FILE.name));
+        try {
+            this.trieStoreHotIterations = NumberUtils
+                    .createInteger(prop.getProperty(BadgerInputKeys.TRIE_STORE_HOT_ITERATIONS.name, "2"));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException(
+                    "Value of " + BadgerInputKeys.TRIE_STORE_HOT_ITERATIONS.name + " is not a number!");
+        }
+    }
+
+    private static StateBuilderFactory createStateBuilderFactory(String wcaMetric, Properties prop) {
+        switch (wcaMetric) {
+        case BranchCountState.ID:
+            return new BranchCountState.BranchBuilderFactory();
+        case InstructionCountState.ID:
+            return new InstructionCountState.InstructionBuilderFactory();
+        case HeapAllocationState.ID:
+            return new HeapAllocationState.HeapAllocationBuilderFactory(false);
+        case HeapAllocationState.PEAK_ID:
+            return new HeapAllocationState.HeapAllocationBuilderFactory(true);
+        case StackDepthState.ID:
+            return new StackDepthState.StackDepthBuilderFactory(false);
+        case StackDepthState.BYTES_ID:
+            return new StackDepthState.StackDepthBuilderFactory(true);
+        case WeightedInstructionState.ID:
+            String weightsFile = prop.getProperty(BadgerInputKeys.ANALYSIS_WCA_WEIGHTS.name);
+            OpcodeWeights weights;
+            if (weightsFile == null) {
+                weights = OpcodeWeights.createDefault();
+            } else {
+                try {
+                    weights = OpcodeWeights.load(weightsFile);
+                } catch (IOException | IllegalArgumentException e) {
+                    throw new RuntimeException("Cannot read " + BadgerInputKeys.ANALYSIS_WCA_WEIGHTS.name
+                            + " from " + weightsFile + ": " + e.getMessage());
+                }
+            }
+            return new WeightedInstructionState.WeightedInstructionBuilderFactory(weights);
+        case CacheMissState.ID:
+            int cacheLines;
+            try {
+                cacheLines = NumberUtils
+                        .createInteger(prop.getProperty(BadgerInputKeys.ANALYSIS_WCA_CACHE_LINES.name, "512"));
+            } catch (NumberFormatException e) {
+                throw new RuntimeException(
+                        "Value of " + BadgerInputKeys.ANALYSIS_WCA_CACHE_LINES.name + " is not a number!");
+            }
+            if (cacheLines < 1) {
+                throw new RuntimeException(
+                        "Value of " + BadgerInputKeys.ANALYSIS_WCA_CACHE_LINES.name + " must be at least 1!");
+            }
+            return new CacheMissState.CacheMissBuilderFactory(cacheLines);
+        default:
+            throw new RuntimeException(
+                    "Unkown value for " + BadgerInputKeys.ANALYSIS_WCA_METRIC.name + ": " + wcaMetric);
+        }
     }
 
     private List<BadgerInputKeys> checkForMissingMandatoryProperites(Properties prop) {
@@ -17,12 +17,26 @@ public enum BadgerInputKeys {
     SYNC_INPUT_DIR                  ("dir.sync.input",          false),
     EXPORT_DIR                      ("dir.export",              true),
     TMP_DIR                         ("dir.tmp",                 false),
+    HANG_DIR                        ("dir.hangs",               false),
     
     /* Technical Parameters */
     CYCLE_WAITING_SEC               ("symexe.wait.sec",         true),
     MAX_NUMBER_SYMEXE_ITERATIONS    ("symexe.iterations",       true),
     SEC_UNTIL_FIRST_CYCLE           ("symexe.delay.sec",        false),
     NUMBER_OF_ADDITIONAL_STEPS      ("symexe.bse.steps",        false),
+    WITNESS_FAST_FORWARD            ("symexe.witness.fastforward", false),
+    WITNESS_SYMBOLIC_WINDOW         ("symexe.witness.window",   false),
+    SCHEDULER                       ("symexe.scheduler",        false),
+    SCHEDULER_CYCLE_SEC             ("symexe.scheduler.cycle.sec", false),
+    SCHEDULER_POLL_SEC              ("symexe.scheduler.poll.sec", false),
+    SCHEDULER_MIN_SHARE             ("symexe.scheduler.share.min", false),
+    SCHEDULER_MAX_SHARE             ("symexe.scheduler.share.max", false),
+    EXECUTION_BUDGET_SEC            ("symexe.budget.sec",       false),
+    EXECUTION_BUDGET_INSTRUCTIONS   ("symexe.budget.instructions", false),
+    INPUT_DEDUPLICATION             ("symexe.dedup",            false),
+    IMPORT_ORDER                    ("symexe.import.order",     false),
+    IMPORT_BUDGET_SEC               ("symexe.import.budget.sec", false),
+    AFL_COVERAGE_FILTER             ("symexe.afl.filter",       false),
     
     /* JPF */
     APPLICATION_CLASSPATH           ("jpf.classpath",           true),
@@ -49,6 +63,11 @@ public enum BadgerInputKeys {
     ANALYSIS_METHOD                 ("analysis.method",         true),
     ANALYSIS_EXPLORATION_HEURISTIC  ("analysis.heuristic",      true),
     ANALYSIS_WCA_METRIC             ("analysis.wca.metric",     false),
+    ANALYSIS_WCA_WEIGHTS            ("analysis.wca.weights",    false),
+    ANALYSIS_WCA_CACHE_LINES        ("analysis.wca.cache.lines",false),
+    ANALYSIS_WCA_SCOPE              ("analysis.wca.scope",      false),
+    ANALYSIS_WCA_SELECTION          ("analysis.wca.selection",  false),
+    ANALYSIS_WCA_UCB_C              ("analysis.wca.ucb.c",      false),
     ANALYSIS_COV_METRIC             ("analysis.cov.metric",     false),
 
     /* Input Processing / Generation */
@@ -64,10 +83,26 @@ public enum BadgerInputKeys {
     INTERNAL_TRIE_STATISTICS_FILE   ("stat.file.trie",          false),
     PRINT_PC_INFO                   ("stat.print.pc",           false),
     PC_MAPPING_FILE                 ("stat.file.pc.mapping",    false),
+    STATISTICS_FORMAT               ("stat.format",             false),
+    EVENT_LOG_FILE                  ("stat.file.events",        false),
+    METRICS_PORT                    ("stat.metrics.port",       false),
+    METRICS_JMX                     ("stat.metrics.jmx",        false),
+    PHASE_STATISTICS_FILE           ("stat.file.phases",        false),
+    PHASE_JFR_EVENTS                ("stat.phases.jfr",         false),
 
     /* Print Trie As Dot Files */
     PRINT_TRIE                      ("trie.print",              false),
-    PRINT_TRIE_MAX_DEPTH            ("trie.print.maxdepth",     false);
+    PRINT_TRIE_MAX_DEPTH            ("trie.print.maxdepth",     false),
+    PRINT_TRIE_MIN_DEPTH            ("trie.print.mindepth",     false),
+    PRINT_TRIE_ROOT                 ("trie.print.root",         false),
+    PRINT_TRIE_NODES                ("trie.print.nodes",        false),
+    PRINT_TRIE_TOP                  ("trie.print.top",          false),
+    PRINT_TRIE_FORMAT               ("trie.print.format",       false),
+
+    /* Trie Memory */
+    TRIE_PRUNE_HEAP_THRESHOLD       ("trie.prune.heap",         false),
+    TRIE_STORE_FILE                 ("trie.store.file",         false),
+    TRIE_STORE_HOT_ITERATIONS       ("trie.store.hot",          false);
     
     public String name;
     public boolean isMandatory;
@@ -5,6 +5,8 @@ import java.io.IOException;
 
 import org.apache.commons.io.FileUtils;
 
+import edu.cmu.sv.badger.util.Metrics;
+import edu.cmu.sv.badger.util.PhaseTimer;
 import edu.cmu.sv.badger.util.Statistics;
 
 /**
@@ -21,6 +23,8 @@ public class BadgerRunner {
 
         ensureAndCleanOutputDirectoriesExist(input);
         Statistics.initFiles(input);
+        Metrics.start(input);
+        PhaseTimer.init(input);
 
         SymExe symExe = new SymExe(input);
         symExe.run();
@@ -44,6 +48,16 @@ public class BadgerRunner {
         } catch (IOException e) {
             throw new RuntimeException("[ERROR] Unable to create tmp directory: " + input.exportDir, e);
         }
+
+        if (input.executionBudgetMillis > 0 || input.executionBudgetInstructions > 0) {
+            File hangDir = new File(input.hangDir);
+            try {
+                FileUtils.forceMkdir(hangDir);
+                FileUtils.cleanDirectory(hangDir);
+            } catch (IOException e) {
+                throw new RuntimeException("[ERROR] Unable to create hang directory: " + input.hangDir, e);
+            }
+        }
     }
 
 }
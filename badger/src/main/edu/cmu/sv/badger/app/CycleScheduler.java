@@ -0,0 +1,81 @@
+package edu.cmu.sv.badger.app;
+
+/**
+ * Splits the time of a SymExe cycle between importing inputs from the fuzzer and exploring the trie. The split is based
+ * on the yield of both kinds of work, i.e. the number of executed inputs per second that exposed a new branch or a new
+ * highscore, which is tracked as exponential moving average. Exports are not counted, because they only happen during
+ * exploration. The share of each kind of work is bounded by a floor and a ceiling, so that none of them starves and
+ * its yield can still be observed.
+ */
+public class CycleScheduler {
+
+    /* Weight of the latest observation in the moving average. */
+    private static final double SMOOTHING_FACTOR = 0.5;
+
+    private final long cycleMillis;
+    private final double minShare;
+    private final double maxShare;
+
+    /* Yield per second, initialized optimistically so that both kinds of work are tried in the beginning. */
+    private double importYieldRate = 1.0;
+    private double explorationYieldRate = 1.0;
+
+    public CycleScheduler(int cycleSec, double minShare, double maxShare) {
+        if (cycleSec <= 0) {
+            throw new IllegalArgumentException("cycle length must be positive: " + cycleSec);
+        }
+        if (minShare < 0.0 || maxShare > 1.0 || minShare > maxShare) {
+            throw new IllegalArgumentException("invalid share bounds: " + minShare + ", " + maxShare);
+        }
+        this.cycleMillis = cycleSec * 1000L;
+        this.minShare = minShare;
+        this.maxShare = maxShare;
+    }
+
+    /**
+     * @return share of the next cycle that should be spent for importing inputs.
+     */
+    public double getImportShare() {
+        double totalRate = importYieldRate + explorationYieldRate;
+        double share = totalRate > 0.0 ? importYieldRate / totalRate : 0.5;
+        return Math.min(maxShare, Math.max(minShare, share));
+    }
+
+    public long getImportBudgetMillis() {
+        return (long) (cycleMillis * getImportShare());
+    }
+
+    /**
+     * Returns the time for exploration in the current cycle, i.e. exploration also gets the time that was not used for
+     * the import.
+     *
+     * @param usedImportMillis
+     *            - time that was actually spent for the import in the current cycle
+     */
+    public long getExplorationBudgetMillis(long usedImportMillis) {
+        return Math.max(cycleMillis - usedImportMillis, (long) (cycleMillis * (1.0 - maxShare)));
+    }
+
+    public void reportImport(long millis, int yield) {
+        if (millis > 0) {
+            importYieldRate = updateRate(importYieldRate, millis, yield);
+        }
+    }
+
+    public void reportExploration(long millis, int yield) {
+        if (millis > 0) {
+            explorationYieldRate = updateRate(explorationYieldRate, millis, yield);
+        }
+    }
+
+    private static double updateRate(double oldRate, long millis, int yield) {
+        double observedRate = yield / (millis / 1000.0);
+        return SMOOTHING_FACTOR * observedRate + (1.0 - SMOOTHING_FACTOR) * oldRate;
+    }
+
+    public String getStatistics() {
+        return String.format("importYield=%.3f/s, explorationYield=%.3f/s, importShare=%.2f", importYieldRate,
+                explorationYieldRate, getImportShare());
+    }
+
+}
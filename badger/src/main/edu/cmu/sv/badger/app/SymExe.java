@@ -1,7 +1,9 @@
 package edu.cmu.sv.badger.app;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -9,14 +11,32 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.io.FileUtils;
+
 import edu.cmu.sv.badger.analysis.StateBuilder;
+import edu.cmu.sv.badger.analysis.TrieAnalyzer;
+import edu.cmu.sv.badger.io.ImportQueue;
+import edu.cmu.sv.badger.io.InputDeduplicator;
+import edu.cmu.sv.badger.listener.BadgerListener;
 import edu.cmu.sv.badger.listener.ConcreteInput2TrieListener;
+import edu.cmu.sv.badger.listener.ExecutionBudgetListener;
 import edu.cmu.sv.badger.listener.MetricListener;
+import edu.cmu.sv.badger.listener.SolverCallListener;
 import edu.cmu.sv.badger.listener.SymCreteCostListener;
 import edu.cmu.sv.badger.listener.TrieGuidanceListener;
 import edu.cmu.sv.badger.trie.Trie;
+import edu.cmu.sv.badger.trie.TrieExporter;
+import edu.cmu.sv.badger.trie.TrieMemoryGovernor;
 import edu.cmu.sv.badger.trie.TrieNode;
+import edu.cmu.sv.badger.trie.TrieNodeStore;
+import edu.cmu.sv.badger.util.EdgeBitmap;
+import edu.cmu.sv.badger.util.EdgeTrace;
+import edu.cmu.sv.badger.util.Metrics;
+import edu.cmu.sv.badger.util.MethodScope;
+import edu.cmu.sv.badger.util.PhaseTimer;
+import edu.cmu.sv.badger.util.PhaseTimer.Phase;
 import edu.cmu.sv.badger.util.Statistics;
+import edu.cmu.sv.badger.util.StatisticsEvent.ExportEvent;
 import gov.nasa.jpf.Config;
 import gov.nasa.jpf.JPF;
 import gov.nasa.jpf.JPF.ExitException;
@@ -39,8 +59,25 @@ public class SymExe {
     private BlockingQueue<Pair<PathCondition, Map<String, Object>>> pcAndSolutionQueue;
     public static AtomicInteger lastId = new AtomicInteger(-1);
     private static AtomicInteger lastTempFileId = new AtomicInteger(-1);
+    private static AtomicInteger lastHangId = new AtomicInteger(-1);
     List<String> alreadyReadInputFiles = new ArrayList<>();
 
+    /* Files that were already found, but not imported yet. */
+    private ImportQueue pendingInputFiles;
+    private CycleScheduler scheduler;
+    private InputDeduplicator deduplicator;
+    private TrieMemoryGovernor memoryGovernor;
+    private TrieExporter trieExporter;
+
+    /* Edges covered by the inputs that the fuzzer knows, i.e. the imported and exported inputs. */
+    private EdgeBitmap fuzzerCoverage;
+
+    /*
+     * Counts the executed inputs that exposed a new branch or a new highscore, both during import and exploration, to
+     * measure the yield of the different kinds of work in the same unit.
+     */
+    private int numberOfNewBehaviors = 0;
+
     public static enum ConcreteSPFMode {
         IMPORT, EXPORT;
     }
@@ -50,6 +87,46 @@ public class SymExe {
         this.trie = new Trie(input.trieAnalysisMethod);
         lastId.set(input.initialId);
         this.pcAndSolutionQueue = new ArrayBlockingQueue<>(1000);
+        this.pendingInputFiles = new ImportQueue(input.importOrder);
+        if (input.useAdaptiveScheduler) {
+            this.scheduler = new CycleScheduler(input.schedulerCycleSec, input.schedulerMinShare,
+                    input.schedulerMaxShare);
+        }
+        if (input.useInputDeduplication) {
+            this.deduplicator = new InputDeduplicator();
+        }
+        if (input.triePruneHeapThreshold > 0) {
+            this.memoryGovernor = new TrieMemoryGovernor(input.triePruneHeapThreshold, input.trieStoreHotIterations);
+            if (input.trieStoreFile.isPresent()) {
+                this.trie.setNodeStore(new TrieNodeStore(new File(input.trieStoreFile.get())));
+            }
+        }
+        if (input.printTrieAsDot) {
+            this.trieExporter = new TrieExporter(input.printTrieFormat, "trie", input.printTrieMinDepth.orElse(null),
+                    input.printTrieMaxDepth.orElse(null), input.printTrieRootId.orElse(null), input.printTrieNodes,
+                    input.printTrieTop);
+            this.trieExporter.attach(trie);
+        }
+        if (input.useAflCoverageFilter) {
+            this.fuzzerCoverage = new EdgeBitmap();
+        }
+        registerGauges();
+    }
+
+    private void registerGauges() {
+        Metrics.gauge("badger_trie_nodes", "Nodes in the trie.", () -> trie.getNumberOfLiveNodes());
+        Metrics.gauge("badger_trie_pruned_nodes", "Trie nodes removed by the memory governor.",
+                () -> trie.getNumberOfPrunedNodes());
+        Metrics.gauge("badger_trie_paged_nodes", "Trie nodes paged out to the trie store.",
+                () -> trie.getNumberOfPagedNodes());
+        Metrics.gauge("badger_trie_estimated_bytes", "Estimated heap used by the trie nodes.",
+                () -> (long) trie.getNumberOfLiveNodes() * TrieNode.ESTIMATED_SIZE_IN_BYTES);
+        Metrics.gauge("badger_frontier_nodes", "Trie nodes available for exploration.",
+                () -> trie.getAnalyzer().getNumberOfNodesForExploration());
+        Metrics.gauge("badger_solution_queue_size", "Solved path conditions waiting for input generation.",
+                () -> pcAndSolutionQueue.size());
+        Metrics.gauge("badger_pending_imports", "Input files found in the fuzzer queue but not imported yet.",
+                () -> pendingInputFiles.size());
     }
 
     public void run() {
@@ -75,12 +152,13 @@ public class SymExe {
             }
 
             // Run one step.
-            boolean needsABreak = runStep(newInputfiles);
+            boolean needsABreak = scheduler != null ? runScheduledStep(newInputfiles) : runStep(newInputfiles);
+            PhaseTimer.finishCycle(input);
 
             // Only make a break if there was at least one file exported.
             if (needsABreak) {
                 try {
-                    Thread.sleep(input.cycleWaitingSec * 1000);
+                    Thread.sleep((scheduler != null ? input.schedulerPollSec : input.cycleWaitingSec) * 1000);
                 } catch (InterruptedException e) {
                     e.printStackTrace();
                     break;
@@ -94,21 +172,18 @@ public class SymExe {
      * @return Returns True if we need a small break.
      */
     private boolean runStep(List<String> newInputFiles) {
+        pendingInputFiles.addAll(newInputFiles);
 
-        if (newInputFiles.isEmpty() && !input.trieAnalysisMethod.isNodeLeftforAnalysis()) {
+        if (pendingInputFiles.isEmpty() && !input.trieAnalysisMethod.isNodeLeftforAnalysis()) {
             // If there is no new input (from fuzzer), and we assume that our last run was complete, then
             // here is no need to further analyze or process the trie, because there is no path left to find.
             System.out.println("[SPF] nothing to process, wait for " + input.cycleWaitingSec + " sec ...");
             return true; // there is currently no sense in running further, waiting for fuzzer makes more sense.
         }
 
-        Map<String, String> processedNewInputs = input.ioUtils.processInput(newInputFiles);
-
-        // Extend trie for new input.
-        if (!processedNewInputs.isEmpty()) {
-            buildTrieFromProcessedInput(processedNewInputs, ConcreteSPFMode.IMPORT);
-            Statistics.appendTrieStatistics(input, trie.getStatistics(), pcAndSolutionQueue.size(),
-                    alreadyReadInputFiles.size());
+        // Extend trie for new input, the files that do not fit into the import budget are imported in the next cycle.
+        if (importPendingInputFiles(input.importBudgetMillis)) {
+            appendTrieStatistics();
         }
 
         /*
@@ -116,47 +191,170 @@ public class SymExe {
          * execution path as guidance, because the choice generator does not support a multi-selection.
          */
         for (int i = 0; i < input.maximumNumberOfSymExeIterations; i++) {
+            if (!runExplorationIteration()) {
+                break;
+            }
+        }
 
-            // Analyze trie: pick next node and mark path in trie for efficient replay.
-            TrieNode identifiedNode = input.trieAnalysisMethod.analyze(trie);
+        return false;
+    }
 
-            if (input.printTrieAsDot) {
-                Trie.storeTrieAsDot(trie, "trie-analyzed.dot", input.printTrieMaxDepth.orElse(null));
-            }
+    /**
+     * Runs one step with the adaptive scheduler: first imports pending input files until the import budget of this
+     * cycle is used, and then explores the trie for the rest of the cycle. The observed yield is reported back to the
+     * scheduler to compute the split of the next cycle.
+     * 
+     * @return Returns True if we need a small break.
+     */
+    private boolean runScheduledStep(List<String> newInputFiles) {
+        pendingInputFiles.addAll(newInputFiles);
+
+        if (pendingInputFiles.isEmpty() && !input.trieAnalysisMethod.isNodeLeftforAnalysis()) {
+            System.out.println("[SPF] nothing to process, wait for " + input.schedulerPollSec + " sec ...");
+            return true;
+        }
+
+        // Import input files within the import budget.
+        long importStart = System.currentTimeMillis();
+        int yieldBeforeImport = numberOfNewBehaviors;
+        boolean importedFiles = importPendingInputFiles(Math.max(1, scheduler.getImportBudgetMillis()));
+        long importTime = System.currentTimeMillis() - importStart;
+        if (importedFiles) {
+            scheduler.reportImport(importTime, numberOfNewBehaviors - yieldBeforeImport);
+            appendTrieStatistics();
+        }
 
-            // Break the loop if no new node was identified.
-            if (identifiedNode == null) {
+        // Explore trie for the rest of the cycle.
+        long explorationBudget = scheduler.getExplorationBudgetMillis(importTime);
+        long explorationStart = System.currentTimeMillis();
+        int yieldBeforeExploration = numberOfNewBehaviors;
+        boolean exploredNodes = false;
+        while (System.currentTimeMillis() - explorationStart < explorationBudget) {
+            if (!runExplorationIteration()) {
                 break;
             }
+            exploredNodes = true;
+        }
+        if (exploredNodes) {
+            scheduler.reportExploration(System.currentTimeMillis() - explorationStart,
+                    numberOfNewBehaviors - yieldBeforeExploration);
+        }
 
-            // Replay trie for enabled nodes and extract path conditions for new explored nodes.
-            runJPFReplayAndBSE(trie, input.numberOfAdditionalDecisions, identifiedNode.getInputSize());
+        System.out.println("[SPF] scheduler: " + scheduler.getStatistics() + ", pending=" + pendingInputFiles.size());
 
-            Statistics.appendTrieStatistics(input, trie.getStatistics(), pcAndSolutionQueue.size(),
-                    alreadyReadInputFiles.size());
+        return !importedFiles && !exploredNodes;
+    }
 
-            if (input.printTrieAsDot) {
-                Trie.storeTrieAsDot(trie, "trie-explored.dot", input.printTrieMaxDepth.orElse(null));
+    /**
+     * Imports the pending input files in the order of the import queue until the time budget is used. At least one
+     * file is imported if there is any.
+     * 
+     * @param budgetMillis
+     *            - time budget in milliseconds, zero or negative for no limit
+     * @return true if at least one file was imported.
+     */
+    private boolean importPendingInputFiles(long budgetMillis) {
+        long importStart = System.currentTimeMillis();
+        boolean importedFiles = false;
+        while (!pendingInputFiles.isEmpty()
+                && (budgetMillis <= 0 || System.currentTimeMillis() - importStart < budgetMillis)) {
+            Map<String, String> processedNewInput = processInput(Collections.singletonList(pendingInputFiles.poll()));
+            if (!processedNewInput.isEmpty()) {
+                buildTrieFromProcessedInput(processedNewInput, ConcreteSPFMode.IMPORT);
+                importedFiles = true;
             }
+            checkMemory();
+        }
+        if (!pendingInputFiles.isEmpty()) {
+            System.out.println("[SPF] import budget used, defer " + pendingInputFiles.size() + " input files ...");
+        }
+        return importedFiles;
+    }
 
-            // Generate input.
-            List<String> generatedTmpFiles = generateTmpInputFiles();
+    /**
+     * Picks the next node in the trie, explores it, and imports the generated inputs.
+     * 
+     * @return false if there was no node left to explore.
+     */
+    private boolean runExplorationIteration() {
+        trie.advanceAccessEpoch();
+        checkMemory();
 
-            // Read new input files, updated trie, and extract relevant inputs for fuzzer.
-            Map<String, String> processedGeneratedTmpFiles = input.ioUtils.processInput(generatedTmpFiles);
-            if (!processedGeneratedTmpFiles.isEmpty()) {
-                buildTrieFromProcessedInput(processedGeneratedTmpFiles, ConcreteSPFMode.EXPORT);
-            }
+        // Analyze trie: pick next node and mark path in trie for efficient replay.
+        TrieNode identifiedNode = input.trieAnalysisMethod.analyze(trie);
 
-            if (input.printTrieAsDot) {
-                Trie.storeTrieAsDot(trie, "trie-extended.dot", input.printTrieMaxDepth.orElse(null));
+        if (input.printTrieAsDot) {
+            trieExporter.snapshot(trie, "analyzed");
+        }
+
+        // Stop if no new node was identified.
+        if (identifiedNode == null) {
+            return false;
+        }
+
+        // Replay trie for enabled nodes and extract path conditions for new explored nodes. If possible, use the
+        // input that reached the node to concretely fast-forward to its parent.
+        long replayStart = PhaseTimer.start(Phase.REPLAY_BSE);
+        boolean replayed = false;
+        if (input.useWitnessFastForward) {
+            String witnessInput = identifiedNode.getWitnessInput();
+            int fastForwardDepth = identifiedNode.getDepth() - input.witnessSymbolicWindow;
+            if (witnessInput != null && fastForwardDepth > 0) {
+                replayed = runJPFReplayAndBSE(trie, input.numberOfAdditionalDecisions,
+                        identifiedNode.getInputSize(), witnessInput, fastForwardDepth);
             }
+        }
+        if (!replayed) {
+            runJPFReplayAndBSE(trie, input.numberOfAdditionalDecisions, identifiedNode.getInputSize(), null, -1);
+        }
+        PhaseTimer.stop(Phase.REPLAY_BSE, replayStart);
 
-            Statistics.appendTrieStatistics(input, trie.getStatistics(), pcAndSolutionQueue.size(),
-                    alreadyReadInputFiles.size());
+        appendTrieStatistics();
+
+        if (input.printTrieAsDot) {
+            trieExporter.snapshot(trie, "explored");
         }
 
-        return false;
+        // Generate input.
+        long generationStart = PhaseTimer.start(Phase.INPUT_GENERATION);
+        List<String> generatedTmpFiles = generateTmpInputFiles();
+        PhaseTimer.stop(Phase.INPUT_GENERATION, generationStart);
+
+        // Read new input files, updated trie, and extract relevant inputs for fuzzer.
+        Map<String, String> processedGeneratedTmpFiles = processInput(generatedTmpFiles);
+        if (!processedGeneratedTmpFiles.isEmpty()) {
+            buildTrieFromProcessedInput(processedGeneratedTmpFiles, ConcreteSPFMode.EXPORT);
+        }
+        input.trieAnalysisMethod.explorationFinished(identifiedNode);
+
+        if (input.printTrieAsDot) {
+            trieExporter.snapshot(trie, "extended");
+        }
+
+        appendTrieStatistics();
+
+        return true;
+    }
+
+    private void checkMemory() {
+        if (memoryGovernor != null) {
+            memoryGovernor.check(trie);
+        }
+    }
+
+    private void appendTrieStatistics() {
+        TrieAnalyzer analyzer = trie.getAnalyzer();
+        Statistics.appendTrieStatistics(input, trie.getNumberOfNodes(), analyzer.getNumberOfNodesForExploration(),
+                analyzer.getNumberOfMappedNodes(), pcAndSolutionQueue.size(), alreadyReadInputFiles.size(),
+                deduplicator != null ? deduplicator.getNumberOfLookups() : 0,
+                deduplicator != null ? deduplicator.getNumberOfHits() : 0);
+    }
+
+    private Map<String, String> processInput(List<String> inputFiles) {
+        long processingStart = PhaseTimer.start(Phase.INPUT_PROCESSING);
+        Map<String, String> processedInputFiles = input.ioUtils.processInput(inputFiles);
+        PhaseTimer.stop(Phase.INPUT_PROCESSING, processingStart);
+        return processedInputFiles;
     }
 
     private List<String> generateTmpInputFiles() {
@@ -180,9 +378,9 @@ public class SymExe {
     private String generateTmpInputfile(Pair<PathCondition, Map<String, Object>> pcAndSolution) {
         String outputfile = input.tmpDir + "/" + String.valueOf(lastTempFileId.incrementAndGet());
         input.ioUtils.generateInputFiles(pcAndSolution._1, pcAndSolution._2, outputfile);
+        Metrics.GENERATED_INPUTS.inc();
 
-        Statistics.appendGenerationStatistics(input, outputfile);
-        Statistics.appendPCMapping(input, outputfile, pcAndSolution._1.toString());
+        Statistics.appendGenerationStatistics(input, outputfile, pcAndSolution._1);
 
         return (outputfile);
     }
@@ -212,8 +410,23 @@ public class SymExe {
         return newInputFiles;
     }
 
-    private Pair<Double, Boolean> runJPFSymCrete(String targetArgument, String originalFileName, Trie trie,
-            ConcreteSPFMode spfMode) {
+    /**
+     * @param inputHash
+     *            - content hash of the processed input for the deduplication, null if not computed
+     */
+    private Pair<Double, Boolean> runJPFSymCrete(String targetArgument, String originalFileName, String inputHash,
+            Trie trie, ConcreteSPFMode spfMode) {
+        Phase phase = spfMode.equals(ConcreteSPFMode.IMPORT) ? Phase.IMPORT_RUN : Phase.REIMPORT_RUN;
+        long phaseStart = PhaseTimer.start(phase);
+        try {
+            return executeJPFSymCrete(targetArgument, originalFileName, inputHash, trie, spfMode);
+        } finally {
+            PhaseTimer.stop(phase, phaseStart);
+        }
+    }
+
+    private Pair<Double, Boolean> executeJPFSymCrete(String targetArgument, String originalFileName,
+            String inputHash, Trie trie, ConcreteSPFMode spfMode) {
 
         if (targetArgument == null) {
             return null;
@@ -241,48 +454,102 @@ public class SymExe {
             jpf.addListener(symbolicListener);
 
             StateBuilder stateBuilder = null;
+            MetricListener metricListener = null;
             if (input.stateBuilderFactory.isPresent()) {
                 stateBuilder = input.stateBuilderFactory.get().createStateBuilder();
-                MetricListener metricListener = new MetricListener(conf, jpf, stateBuilder);
-                jpf.addListener(metricListener);
+                metricListener = new MetricListener(conf, jpf, stateBuilder,
+                        input.metricScope.map(MethodScope::copy).orElse(null));
             }
 
             // reset last observed cost before each execution.
             Observations.reset();
 
+            int witnessId = trie.registerWitnessInput(originalFileName, targetArgument);
             ConcreteInput2TrieListener trieListener = new ConcreteInput2TrieListener(conf, jpf, trie, stateBuilder,
-                    originalFileName, input.useUserDefinedCost);
-            jpf.addListener(trieListener);
+                    originalFileName, witnessId, input.useUserDefinedCost);
+            EdgeTrace edgeTrace = null;
+            if (fuzzerCoverage != null) {
+                edgeTrace = new EdgeTrace();
+                trieListener.setEdgeTrace(edgeTrace);
+            }
 
+            ExecutionBudgetListener budgetListener = createExecutionBudgetListener();
+            jpf.addListener(BadgerListener.create(trieListener, metricListener, budgetListener, null));
+
+            long startTime = System.currentTimeMillis();
             jpf.run();
 
             if (jpf.foundErrors()) {
                 System.out.println("#FOUND ERRORS = " + jpf.getSearchErrors().size());
             }
 
-            if (spfMode.equals(ConcreteSPFMode.EXPORT)) {
+            boolean aborted = budgetListener != null && budgetListener.isBudgetExceeded();
+            recordJPFRun(spfMode.name(), startTime, aborted);
+            boolean knownPath = false;
+            if (aborted) {
+                trieListener.handleAbortedExecution();
+                exportHangInput(originalFileName, spfMode);
+                if (deduplicator != null) {
+                    deduplicator.register(inputHash, trieListener.getObservedCostForLeafNode());
+                }
+            } else if (deduplicator != null) {
+                knownPath = deduplicator.registerPath(inputHash, trieListener.getPathSignature(),
+                        trieListener.getObservedCostForLeafNode());
+                if (knownPath) {
+                    Metrics.DUPLICATE_PATHS.inc();
+                }
+            }
+
+            byte[] trace = null;
+            if (edgeTrace != null) {
+                trace = edgeTrace.getClassifiedTrace();
+            }
 
-                if (input.explorationHeuristic.didObserveNewBehavior(trieListener)) {
+            if (!aborted && spfMode.equals(ConcreteSPFMode.EXPORT)
+                    && input.explorationHeuristic.didObserveNewBehavior(trieListener)) {
+
+                if (input.useAflCoverageFilter && !trieListener.didObserveBetterScore()
+                        && !fuzzerCoverage.hasNewBits(trace)) {
+                    // The fuzzer would only spend time on calibrating an input without new edges.
+                    Metrics.SKIPPED_EXPORTS.inc();
+                    System.out.println("[SPF] skip export of " + originalFileName + ", no new edges ...");
+                } else if (knownPath && !trieListener.didObserveBetterScore()) {
+                    // Another input already followed the same path, so the fuzzer would not learn anything new.
+                    Metrics.SKIPPED_DUPLICATE_EXPORTS.inc();
+                    System.out.println("[SPF] skip export of " + originalFileName + ", path already known (hit rate: "
+                            + String.format("%.2f", deduplicator.getPathHitRate()) + ") ...");
+                } else {
                     String outputfile = input.exportDir + "/id:" + String.format("%06d", lastId.incrementAndGet());
 
                     File tmpFile = new File(originalFileName);
                     File newFile = new File(outputfile);
-                    tmpFile.renameTo(newFile);
-
-                    String statistics = (System.currentTimeMillis() / 1000L) + "," + originalFileName + "," + outputfile
-                            + (trieListener.didExposeNewBranch() ? ",branch" : "")
-                            + (trieListener.didObserveBetterScore()
-                                    ? ",score," + trieListener.getObservedCostForLeafNode()
-                                    : "")
-                            + "\n";
-                    Statistics.appendExportStatistics(input, statistics);
+                    if (tmpFile.renameTo(newFile)) {
+                        trie.updateWitnessInput(originalFileName, outputfile);
+                    }
+                    Metrics.EXPORTED_INPUTS.inc();
+                    if (trace != null) {
+                        fuzzerCoverage.merge(trace);
+                    }
+
+                    Statistics.appendExportStatistics(input, ExportEvent.Kind.NEW_BEHAVIOR, originalFileName,
+                            outputfile, trieListener.didExposeNewBranch(), trieListener.didObserveBetterScore(),
+                            trieListener.getObservedCostForLeafNode());
                 }
             }
             if (spfMode.equals(ConcreteSPFMode.IMPORT)) {
-                String statistic = (System.currentTimeMillis() / 1000L) + "," + originalFileName + ","
-                        + trieListener.getObservedCostForLeafNode()
-                        + (trieListener.didObserveBetterScore() ? ",score" : "") + "\n";
-                Statistics.appendImportStatistics(input, statistic);
+                if (trace != null) {
+                    fuzzerCoverage.merge(trace);
+                }
+                Metrics.IMPORTED_INPUTS.inc();
+                Statistics.appendImportStatistics(input, originalFileName, trieListener.getObservedCostForLeafNode(),
+                        trieListener.didObserveBetterScore(), false);
+            }
+
+            if (trieListener.didObserveBetterScore()) {
+                Metrics.HIGHSCORES.inc();
+            }
+            if (!aborted && (trieListener.didExposeNewBranch() || trieListener.didObserveBetterScore())) {
+                numberOfNewBehaviors++;
             }
 
             this.trie = trieListener.getResultingTrie();
@@ -298,18 +565,36 @@ public class SymExe {
         return null;
     }
 
-    private void runJPFReplayAndBSE(Trie trie, int additionalDecisions, int inputSize) {
+    /**
+     * @param witnessInput
+     *            - input to fast-forward to the given depth, null for a pure symbolic replay
+     * @param fastForwardDepth
+     *            - depth up to which the witness input is executed without choices
+     * @return false if the witness input did not follow the trie, i.e. the replay needs to be repeated without
+     *         fast-forward
+     */
+    private boolean runJPFReplayAndBSE(Trie trie, int additionalDecisions, int inputSize, String witnessInput,
+            int fastForwardDepth) {
         TrieGuidanceListener trieBuilderListener = null;
         try {
             Config conf = initSPFConfig();
 
-            /*
-             * Here we don not want to use symcrete execution, instead we will start with guided trie execution and
-             * alter to proper bounded symbolic execution. The switching betweeen replay and BSE is implemented in the
-             * listener below.
-             */
-            conf.setProperty("symbolic.collect_constraints", "false");
-            conf.setProperty("target.args", input.jpf_argument.replace("@@", ""));
+            if (witnessInput != null) {
+                /*
+                 * Execute the witness input with collected constraints, i.e. without any additional choices and
+                 * without solving, until the listener switches to the replay and BSE at the given depth.
+                 */
+                conf.setProperty("symbolic.collect_constraints", "true");
+                conf.setProperty("target.args", input.jpf_argument.replace("@@", witnessInput));
+            } else {
+                /*
+                 * Here we don not want to use symcrete execution, instead we will start with guided trie execution
+                 * and alter to proper bounded symbolic execution. The switching betweeen replay and BSE is
+                 * implemented in the listener below.
+                 */
+                conf.setProperty("symbolic.collect_constraints", "false");
+                conf.setProperty("target.args", input.jpf_argument.replace("@@", ""));
+            }
             
             /* We only have additional listener for the real JPF runs. */
             input.symListener.ifPresent(value -> conf.setProperty("listener", value));
@@ -319,8 +604,11 @@ public class SymExe {
             SymbolicListener symbolicListener = new SymbolicListener(conf, jpf);
             jpf.addListener(symbolicListener);
 
-            trieBuilderListener = new TrieGuidanceListener(conf, jpf, trie, additionalDecisions, pcAndSolutionQueue);
-            jpf.addListener(trieBuilderListener);
+            trieBuilderListener = new TrieGuidanceListener(conf, jpf, trie, additionalDecisions, pcAndSolutionQueue,
+                    fastForwardDepth);
+            ExecutionBudgetListener budgetListener = createExecutionBudgetListener();
+            SolverCallListener solverCallListener = new SolverCallListener(conf, jpf);
+            jpf.addListener(BadgerListener.create(trieBuilderListener, null, budgetListener, solverCallListener));
 
             // reset last observed cost before each execution.
             Observations.reset();
@@ -332,11 +620,18 @@ public class SymExe {
                 Observations.lastObservedInputSize = input.inputSizes[0]; // set maximum
             }
 
+            long startTime = System.currentTimeMillis();
             jpf.run();
 
             if (jpf.foundErrors()) {
                 System.out.println("#FOUND ERRORS = " + jpf.getSearchErrors().size());
             }
+
+            boolean aborted = budgetListener != null && budgetListener.isBudgetExceeded();
+            recordJPFRun(witnessInput != null ? "FAST_FORWARD" : "REPLAY", startTime, aborted);
+            if (aborted) {
+                trieBuilderListener.handleAbortedExecution();
+            }
         } catch (JPFConfigException cx) {
             cx.printStackTrace();
             System.exit(1);
@@ -353,10 +648,23 @@ public class SymExe {
         } catch (Exception e) {
             e.printStackTrace();
             System.exit(1);
+        } finally {
+            if (trieBuilderListener != null) {
+                trieBuilderListener.restoreConstraintCollection();
+            }
         }
 
+        if (trieBuilderListener != null && trieBuilderListener.didFastForwardDiverge()) {
+            System.out.println("[SPF] witness input " + witnessInput + " diverged from trie, replay without it ...");
+            return false;
+        }
+        return true;
     }
 
+    /**
+     * @return the observed path condition with its solution and the observed cost, the path condition and solution are
+     *         null if the execution was aborted, and the result is null if JPF failed
+     */
     private Pair<Pair<PathCondition, Map<String, Object>>, Double> runJPF_NoTrieModificationButOptimize(
             String targetArgument, String originalFileName, ConcreteSPFMode spfMode) {
 
@@ -397,12 +705,25 @@ public class SymExe {
             SymCreteCostListener symcreteListener = new SymCreteCostListener(conf, jpf);
             jpf.addListener(symcreteListener);
 
+            ExecutionBudgetListener budgetListener = createExecutionBudgetListener();
+            if (budgetListener != null) {
+                jpf.addListener(budgetListener);
+            }
+
+            long startTime = System.currentTimeMillis();
             jpf.run();
 
             if (jpf.foundErrors()) {
                 System.out.println("#FOUND ERRORS = " + jpf.getSearchErrors().size());
             }
 
+            boolean aborted = budgetListener != null && budgetListener.isBudgetExceeded();
+            recordJPFRun("OPTIMIZE", startTime, aborted);
+            if (aborted) {
+                // There is nothing to optimize for an aborted execution, only the cost observed so far is known.
+                return new Pair<>(null, Observations.lastObservedCost);
+            }
+
             Double observedCost = symcreteListener.getObservedFinalCost();
             PathCondition observedPC = symcreteListener.getObservedPathCondition();
             Map<String, Object> observedSolution = symcreteListener.getObservedPCSolution();
@@ -418,6 +739,50 @@ public class SymExe {
         return null;
     }
 
+    /**
+     * Creates a listener that aborts the JPF run if it exceeds the configured budget. It still needs to be registered,
+     * either directly or via a BadgerListener.
+     * 
+     * @return the listener, or null if no budget is configured
+     */
+    private ExecutionBudgetListener createExecutionBudgetListener() {
+        if (input.executionBudgetMillis <= 0 && input.executionBudgetInstructions <= 0) {
+            return null;
+        }
+        ExecutionBudgetListener budgetListener = new ExecutionBudgetListener(input.executionBudgetMillis,
+                input.executionBudgetInstructions);
+        return budgetListener;
+    }
+
+    private void recordJPFRun(String mode, long startTime, boolean aborted) {
+        long duration = System.currentTimeMillis() - startTime;
+        Statistics.appendJPFRun(input, mode, duration, aborted);
+        Metrics.jpfRun(mode).observeMillis(duration);
+    }
+
+    /**
+     * Stores an input, whose execution exceeded the budget, in the hang directory. Generated files are moved, imported
+     * files are copied, because they still belong to the fuzzer.
+     */
+    private void exportHangInput(String inputFile, ConcreteSPFMode spfMode) {
+        String hangFile = input.hangDir + "/id:" + String.format("%06d", lastHangId.incrementAndGet());
+        File srcFile = new File(inputFile);
+        File destFile = new File(hangFile);
+        try {
+            if (spfMode.equals(ConcreteSPFMode.EXPORT)) {
+                FileUtils.moveFile(srcFile, destFile);
+                trie.updateWitnessInput(inputFile, hangFile);
+            } else {
+                FileUtils.copyFile(srcFile, destFile);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        Metrics.HANG_INPUTS.inc();
+        Statistics.appendExportStatistics(input, ExportEvent.Kind.HANG, inputFile, hangFile, false, false, null);
+    }
+
     private Config initSPFConfig() {
         Config conf = JPF.createConfig(new String[0]);
         conf.setProperty("classpath", input.jpf_classpath);
@@ -446,6 +811,16 @@ public class SymExe {
                 String originalFileName = inputEntry.getKey();
                 String processedFileName = inputEntry.getValue().replaceAll(",", "#");
 
+                // Skip the execution of inputs that were already executed, because they will follow the same path.
+                String inputHash = null;
+                if (deduplicator != null) {
+                    inputHash = deduplicator.computeHash(inputEntry.getValue());
+                    if (deduplicator.isKnown(inputHash)) {
+                        handleDuplicateInput(originalFileName, inputHash, spfMode);
+                        continue;
+                    }
+                }
+
                 // If the optimization parameter is enabled, then first try to optimize the current file. This makes
                 // only sense if we use a user-defined cost metric because only there we might have a
                 if (input.spf_dp.endsWith("optimize") && input.useUserDefinedCost) {
@@ -453,8 +828,24 @@ public class SymExe {
                     // Make a dry (without changing anything from the trie).
                     Pair<Pair<PathCondition, Map<String, Object>>, Double> resultOriginalInput = runJPF_NoTrieModificationButOptimize(
                             processedFileName, originalFileName, spfMode);
+                    if (resultOriginalInput == null) {
+                        // JPF failed, so just add the original input to the trie.
+                        runJPFSymCrete(processedFileName, originalFileName, inputHash, this.trie, spfMode);
+                        continue;
+                    }
+                    if (resultOriginalInput._1 == null) {
+                        // Execution was aborted, executing the input again would only exceed the budget again.
+                        exportHangInput(originalFileName, spfMode);
+                        if (deduplicator != null) {
+                            deduplicator.register(inputHash, resultOriginalInput._2);
+                        }
+                        continue;
+                    }
                     Pair<PathCondition, Map<String, Object>> observedPcAndSolution = resultOriginalInput._1;
                     Double observedCostOriginalInput = resultOriginalInput._2;
+                    if (deduplicator != null) {
+                        deduplicator.register(inputHash, observedCostOriginalInput);
+                    }
 
                     if (observedPcAndSolution._1 == null || observedPcAndSolution._2 == null
                             || observedPcAndSolution._2.isEmpty()) {
@@ -468,13 +859,12 @@ public class SymExe {
                     String maximizedInputFile = generateTmpInputfile(observedPcAndSolution);
                     List<String> listToMatchAPI = new ArrayList<>();
                     listToMatchAPI.add(maximizedInputFile);
-                    Map<String, String> processedVersionOfMaximizedInputFile = input.ioUtils
-                            .processInput(listToMatchAPI);
+                    Map<String, String> processedVersionOfMaximizedInputFile = processInput(listToMatchAPI);
                     String processedMaximizedInputFile = processedVersionOfMaximizedInputFile.get(maximizedInputFile);
 
                     // Perform real run with trie.
                     Pair<Double, Boolean> resultMaximizedInput = runJPFSymCrete(processedMaximizedInputFile,
-                            maximizedInputFile, this.trie, spfMode);
+                            maximizedInputFile, null, this.trie, spfMode);
                     Double observedCostMaximizedInput = resultMaximizedInput._1;
                     Boolean maximizedCostTriggeredNewHighscore = resultMaximizedInput._2;
 
@@ -488,20 +878,32 @@ public class SymExe {
 
                             File tmpFile = new File(maximizedInputFile);
                             File newFile = new File(outputfile);
-                            tmpFile.renameTo(newFile);
+                            if (tmpFile.renameTo(newFile)) {
+                                this.trie.updateWitnessInput(maximizedInputFile, outputfile);
+                            }
+                            Metrics.EXPORTED_INPUTS.inc();
 
-                            String statistics = (System.currentTimeMillis() / 1000L) + "," + maximizedInputFile + ","
-                                    + outputfile + ",highscore,maximized," + observedCostMaximizedInput + "\n";
-                            Statistics.appendExportStatistics(input, statistics);
+                            Statistics.appendExportStatistics(input, ExportEvent.Kind.MAXIMIZED, maximizedInputFile,
+                                    outputfile, false, true, observedCostMaximizedInput);
                         }
                     }
                 } else {
                     // If we do not maximize any terms, then this represents the normal run.
-                    runJPFSymCrete(processedFileName, originalFileName, this.trie, spfMode);
+                    runJPFSymCrete(processedFileName, originalFileName, inputHash, this.trie, spfMode);
                 }
 
             }
         }
     }
 
+    private void handleDuplicateInput(String originalFileName, String inputHash, ConcreteSPFMode spfMode) {
+        System.out.println("Skip already executed input: " + originalFileName + " (hit rate: "
+                + String.format("%.2f", deduplicator.getHitRate()) + ")");
+        Metrics.DUPLICATE_INPUTS.inc();
+        if (spfMode.equals(ConcreteSPFMode.IMPORT)) {
+            Statistics.appendImportStatistics(input, originalFileName, deduplicator.getObservedCost(inputHash), false,
+                    true);
+        }
+    }
+
 }
@@ -0,0 +1,115 @@
+package edu.cmu.sv.badger.io;
+
+import java.io.File;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Queue of input files that were found in the fuzzer's queue directory but are not imported yet. With the value order,
+ * the files are ranked by the meta data that AFL encodes in the file name, i.e. inputs that were reported as new
+ * highscore or new coverage come first, then inputs with a higher reported cost, and then smaller inputs because they
+ * are cheaper to execute.
+ */
+public class ImportQueue {
+
+    public static final String ORDER_VALUE = "value";
+    public static final String ORDER_FIFO = "fifo";
+
+    /**
+     * Input file together with the information used for the ranking.
+     */
+    static final class RankedInputFile {
+        final String fileName;
+        final long sequenceNumber;
+        final int priority;
+        final double reportedCost;
+        final long size;
+
+        RankedInputFile(String fileName, long sequenceNumber) {
+            this.fileName = fileName;
+            this.sequenceNumber = sequenceNumber;
+
+            String name = new File(fileName).getName();
+            int priority = 0;
+            double reportedCost = 0.0;
+            for (String token : name.split(",")) {
+                if (token.contains("highscore")) {
+                    priority += 4;
+                } else if (token.equals("+cov")) {
+                    priority += 2;
+                } else if (token.startsWith("cost:") || token.startsWith("+cost:")) {
+                    try {
+                        reportedCost = Double.parseDouble(token.substring(token.indexOf(':') + 1));
+                    } catch (NumberFormatException e) {
+                        // ignore malformed cost information
+                    }
+                }
+            }
+            // Inputs without source are initial seeds, which usually cover the basic behavior.
+            if (!name.contains("src:")) {
+                priority += 1;
+            }
+            this.priority = priority;
+            this.reportedCost = reportedCost;
+            this.size = new File(fileName).length();
+        }
+    }
+
+    private static final Comparator<RankedInputFile> VALUE_ORDER = (o1, o2) -> {
+        if (o1.priority != o2.priority) {
+            return o2.priority - o1.priority;
+        }
+        int costComp = Double.compare(o2.reportedCost, o1.reportedCost);
+        if (costComp != 0) {
+            return costComp;
+        }
+        int sizeComp = Long.compare(o1.size, o2.size);
+        if (sizeComp != 0) {
+            return sizeComp;
+        }
+        return Long.compare(o1.sequenceNumber, o2.sequenceNumber);
+    };
+
+    private static final Comparator<RankedInputFile> FIFO_ORDER = (o1, o2) -> Long.compare(o1.sequenceNumber,
+            o2.sequenceNumber);
+
+    private final PriorityQueue<RankedInputFile> queue;
+    private long nextSequenceNumber = 0;
+
+    public ImportQueue(String order) {
+        switch (order) {
+        case ORDER_VALUE:
+            this.queue = new PriorityQueue<>(VALUE_ORDER);
+            break;
+        case ORDER_FIFO:
+            this.queue = new PriorityQueue<>(FIFO_ORDER);
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown import order: " + order);
+        }
+    }
+
+    public void addAll(List<String> inputFiles) {
+        for (String inputFile : inputFiles) {
+            queue.add(new RankedInputFile(inputFile, nextSequenceNumber++));
+        }
+    }
+
+    /**
+     * @return the most valuable input file, or null if the queue is empty.
+     */
+    public String poll() {
+        RankedInputFile next = queue.poll();
+        return next != null ? next.fileName : null;
+    }
+
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+}
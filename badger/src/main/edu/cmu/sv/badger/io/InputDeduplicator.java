@@ -0,0 +1,137 @@
+package edu.cmu.sv.badger.io;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers the content hashes of all inputs that were already executed, together with the cost observed for their
+ * path. Since the application is executed deterministically, an input with the same (processed) content will follow
+ * the same path in the trie and does not need to be executed again.
+ * 
+ * Additionally, the signature of the path that an input followed is kept for its content hash. Inputs with different
+ * content often follow a path that is already known, e.g. generated inputs that reproduce an existing leaf. These
+ * path duplicates are counted, so that they are not exported again.
+ */
+public class InputDeduplicator {
+
+    private final MessageDigest digest;
+
+    /* Maps the content hash of an executed input to the cost observed at the end of its path. */
+    private final Map<String, Double> observedCostByHash = new HashMap<>();
+
+    /* Maps the content hash of an executed input to the signature of its path. */
+    private final Map<String, Long> pathSignatureByHash = new HashMap<>();
+
+    /* Maps the signature of an executed path to the cost observed at its end. */
+    private final Map<Long, Double> observedCostBySignature = new HashMap<>();
+
+    private long numberOfLookups = 0;
+    private long numberOfHits = 0;
+    private long numberOfPathLookups = 0;
+    private long numberOfPathHits = 0;
+
+    public InputDeduplicator() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("[ERROR] Unable to initialize input deduplication", e);
+        }
+    }
+
+    /**
+     * @param inputFile
+     *            - processed input file
+     * @return hex representation of the content hash, or null if the file cannot be read
+     */
+    public String computeHash(String inputFile) {
+        try {
+            byte[] hash = digest.digest(Files.readAllBytes(Paths.get(inputFile)));
+            return new BigInteger(1, hash).toString(16);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether an input with the given hash was already executed, and counts the lookup for the hit rate.
+     */
+    public boolean isKnown(String hash) {
+        if (hash == null) {
+            return false;
+        }
+        numberOfLookups++;
+        if (observedCostByHash.containsKey(hash)) {
+            numberOfHits++;
+            return true;
+        }
+        return false;
+    }
+
+    public Double getObservedCost(String hash) {
+        Long pathSignature = pathSignatureByHash.get(hash);
+        if (pathSignature != null) {
+            return observedCostBySignature.get(pathSignature);
+        }
+        return observedCostByHash.get(hash);
+    }
+
+    /**
+     * @return the signature of the path that the input with the given hash followed, or null if unknown
+     */
+    public Long getPathSignature(String hash) {
+        return pathSignatureByHash.get(hash);
+    }
+
+    /**
+     * Registers an input whose path is unknown, e.g. because its execution was aborted.
+     */
+    public void register(String hash, Double observedCost) {
+        if (hash != null) {
+            observedCostByHash.put(hash, observedCost);
+        }
+    }
+
+    /**
+     * Registers an executed input together with the signature of its path.
+     * 
+     * @param hash
+     *            - content hash of the input, null if not computed
+     * @return true if another input already followed the same path
+     */
+    public boolean registerPath(String hash, long pathSignature, Double observedCost) {
+        numberOfPathLookups++;
+        boolean knownPath = observedCostBySignature.containsKey(pathSignature);
+        if (knownPath) {
+            numberOfPathHits++;
+        }
+        observedCostBySignature.put(pathSignature, observedCost);
+        if (hash != null) {
+            pathSignatureByHash.put(hash, pathSignature);
+            observedCostByHash.put(hash, observedCost);
+        }
+        return knownPath;
+    }
+
+    public double getHitRate() {
+        return numberOfLookups == 0 ? 0.0 : (double) numberOfHits / numberOfLookups;
+    }
+
+    public double getPathHitRate() {
+        return numberOfPathLookups == 0 ? 0.0 : (double) numberOfPathHits / numberOfPathLookups;
+    }
+
+    public long getNumberOfLookups() {
+        return numberOfLookups;
+    }
+
+    public long getNumberOfHits() {
+        return numberOfHits;
+    }
+
+}
@@ -0,0 +1,87 @@
+package edu.cmu.sv.badger.listener;
+
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.vm.ElementInfo;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * BadgerListener that additionally forwards the instruction, object and method events to the metric listener, the
+ * execution budget listener and the solver call listener. See {@link BadgerListener#create}.
+ */
+class BadgerInstructionListener extends BadgerListener {
+
+    private final MetricListener metricListener;
+    private final ExecutionBudgetListener budgetListener;
+    private final SolverCallListener solverCallListener;
+
+    BadgerInstructionListener(IBranchListener branchListener, MetricListener metricListener,
+            ExecutionBudgetListener budgetListener, SolverCallListener solverCallListener) {
+        super(branchListener);
+        this.metricListener = metricListener;
+        this.budgetListener = budgetListener;
+        this.solverCallListener = solverCallListener;
+    }
+
+    @Override
+    public void searchStarted(Search search) {
+        if (budgetListener != null) {
+            budgetListener.searchStarted(search);
+        }
+    }
+
+    @Override
+    public void executeInstruction(VM vm, ThreadInfo currentThread, Instruction instructionToExecute) {
+        if (metricListener != null) {
+            metricListener.executeInstruction(vm, currentThread, instructionToExecute);
+        }
+        if (solverCallListener != null) {
+            solverCallListener.executeInstruction(vm, currentThread, instructionToExecute);
+        }
+    }
+
+    @Override
+    public void instructionExecuted(VM vm, ThreadInfo currentThread, Instruction nextInstruction,
+            Instruction executedInstruction) {
+        if (metricListener != null) {
+            metricListener.instructionExecuted(vm, currentThread, nextInstruction, executedInstruction);
+        }
+        if (budgetListener != null) {
+            budgetListener.instructionExecuted(vm, currentThread, nextInstruction, executedInstruction);
+        }
+        if (solverCallListener != null) {
+            solverCallListener.instructionExecuted(vm, currentThread, nextInstruction, executedInstruction);
+        }
+    }
+
+    @Override
+    public void objectCreated(VM vm, ThreadInfo currentThread, ElementInfo newObject) {
+        if (metricListener != null) {
+            metricListener.objectCreated(vm, currentThread, newObject);
+        }
+    }
+
+    @Override
+    public void objectReleased(VM vm, ThreadInfo currentThread, ElementInfo releasedObject) {
+        if (metricListener != null) {
+            metricListener.objectReleased(vm, currentThread, releasedObject);
+        }
+    }
+
+    @Override
+    public void methodEntered(VM vm, ThreadInfo currentThread, MethodInfo enteredMethod) {
+        if (metricListener != null) {
+            metricListener.methodEntered(vm, currentThread, enteredMethod);
+        }
+    }
+
+    @Override
+    public void methodExited(VM vm, ThreadInfo currentThread, MethodInfo exitedMethod) {
+        if (metricListener != null) {
+            metricListener.methodExited(vm, currentThread, exitedMethod);
+        }
+    }
+
+}
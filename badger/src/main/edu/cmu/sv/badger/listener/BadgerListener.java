@@ -0,0 +1,105 @@
+package edu.cmu.sv.badger.listener;
+
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.vm.ChoiceGenerator;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * Single JPF listener for the Badger logic of a run: it dispatches the events to the trie listener, the metric
+ * listener, the execution budget listener and the solver call listener by direct calls, instead of registering them as
+ * separate JPF listeners, which JPF would notify one after another for every instruction. The choice generator of a
+ * state event is classified once for all of them.
+ *
+ * This class only forwards the branch events of the trie listener. Use {@link #create} to get a listener that also
+ * forwards the instruction, object and method events, but only if one of the other components needs them.
+ *
+ * The SymbolicListener of SPF is still registered separately.
+ */
+public class BadgerListener extends ListenerAdapter {
+
+    private final IBranchListener branchListener;
+
+    /**
+     * @param branchListener
+     *            - trie listener, or null
+     */
+    protected BadgerListener(IBranchListener branchListener) {
+        this.branchListener = branchListener;
+    }
+
+    /**
+     * The components are optional, events for missing components are dropped right away.
+     *
+     * @param branchListener
+     *            - trie listener, or null
+     * @param metricListener
+     *            - metric listener, or null
+     * @param budgetListener
+     *            - execution budget listener, or null
+     * @param solverCallListener
+     *            - solver call listener, or null
+     * @return a listener without instruction hooks if only the trie listener is given
+     */
+    public static BadgerListener create(IBranchListener branchListener, MetricListener metricListener,
+            ExecutionBudgetListener budgetListener, SolverCallListener solverCallListener) {
+        if (metricListener == null && budgetListener == null && solverCallListener == null) {
+            return new BadgerListener(branchListener);
+        }
+        return new BadgerInstructionListener(branchListener, metricListener, budgetListener, solverCallListener);
+    }
+
+    /**
+     * @return the given choice generator if it represents a branch in the analyzed code, i.e. it is a PCChoiceGenerator
+     *         with an offset, otherwise null. Thread and sequence choice generators are ignored by all Badger
+     *         listeners.
+     */
+    public static PCChoiceGenerator getBranchChoiceGenerator(ChoiceGenerator<?> cg) {
+        if (cg instanceof PCChoiceGenerator && ((PCChoiceGenerator) cg).getOffset() != 0) {
+            return (PCChoiceGenerator) cg;
+        }
+        return null;
+    }
+
+    @Override
+    public void choiceGeneratorAdvanced(VM vm, ChoiceGenerator<?> currentCG) {
+        if (branchListener == null) {
+            return;
+        }
+        PCChoiceGenerator cg = getBranchChoiceGenerator(currentCG);
+        if (cg != null) {
+            branchListener.branchChoiceAdvanced(vm, cg);
+        }
+    }
+
+    @Override
+    public void stateAdvanced(Search search) {
+        if (branchListener == null) {
+            return;
+        }
+        PCChoiceGenerator cg = getBranchChoiceGenerator(search.getVM().getChoiceGenerator());
+        if (cg != null) {
+            branchListener.branchStateAdvanced(search, cg);
+        }
+    }
+
+    @Override
+    public void stateBacktracked(Search search) {
+        if (branchListener == null) {
+            return;
+        }
+        PCChoiceGenerator cg = getBranchChoiceGenerator(search.getVM().getChoiceGenerator());
+        if (cg != null) {
+            branchListener.branchStateBacktracked(search, cg);
+        }
+    }
+
+    @Override
+    public void searchConstraintHit(Search search) {
+        if (branchListener != null) {
+            branchListener.searchConstraintHit(search);
+        }
+    }
+
+}
@@ -1,22 +1,25 @@
 package edu.cmu.sv.badger.listener;
 
+import edu.cmu.sv.badger.analysis.MultiObjectiveState;
+import edu.cmu.sv.badger.analysis.ParetoWCAAnalyzer;
+import edu.cmu.sv.badger.analysis.State;
 import edu.cmu.sv.badger.analysis.StateBuilder;
 import edu.cmu.sv.badger.analysis.WCAAnalyzer;
 import edu.cmu.sv.badger.analysis.WCAAnalyzer.CostStrategy;
 import edu.cmu.sv.badger.trie.Trie;
 import edu.cmu.sv.badger.trie.TrieNode;
 import edu.cmu.sv.badger.trie.TrieNodeType;
+import edu.cmu.sv.badger.trie.TrieSummary;
+import edu.cmu.sv.badger.util.EdgeTrace;
+import edu.cmu.sv.badger.util.InstructionIds;
 import gov.nasa.jpf.Config;
 import gov.nasa.jpf.JPF;
-import gov.nasa.jpf.ListenerAdapter;
 import gov.nasa.jpf.search.Search;
 import gov.nasa.jpf.symbc.Observations;
 import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
 import gov.nasa.jpf.symbc.numeric.PathCondition;
-import gov.nasa.jpf.symbc.sequences.SequenceChoiceGenerator;
-import gov.nasa.jpf.vm.ChoiceGenerator;
 import gov.nasa.jpf.vm.Instruction;
-import gov.nasa.jpf.vm.ThreadChoiceGenerator;
+import gov.nasa.jpf.vm.VM;
 
 /**
  * This listener class builds a trie during dynamic symbolic execution.
@@ -24,7 +27,7 @@ import gov.nasa.jpf.vm.ThreadChoiceGenerator;
  * @author Yannic Noller <nolleryc@gmail.com> - YN
  */
 
-public class ConcreteInput2TrieListener extends ListenerAdapter implements IBehavior {
+public class ConcreteInput2TrieListener implements IBehavior, IBranchListener {
     Trie trie;
     TrieNode cur;
 
@@ -32,14 +35,21 @@ public class ConcreteInput2TrieListener extends ListenerAdapter implements IBeha
 
     StateBuilder metricBuilder;
     String currentInput;
+    int witnessId;
     boolean useUserDefinedCost;
 
     private boolean observedBetterScore = false;
     private Double observedFinalCost = null;
     private boolean exposedNewBranch = false;
+    private EdgeTrace edgeTrace;
+
+    /* FNV-1a hash over the instruction ids and choices of all branches of this execution. */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private long pathSignature = FNV_OFFSET_BASIS;
 
     public ConcreteInput2TrieListener(Config config, JPF jpf, Trie trie, StateBuilder metricBuilder,
-            String currentInput, boolean useUserDefinedCost) {
+            String currentInput, int witnessId, boolean useUserDefinedCost) {
         if (DEBUG) {
             System.out.println("Building the trie ...");
         }
@@ -52,9 +62,17 @@ public class ConcreteInput2TrieListener extends ListenerAdapter implements IBeha
 
         this.metricBuilder = metricBuilder;
         this.currentInput = currentInput;
+        this.witnessId = witnessId;
         this.useUserDefinedCost = useUserDefinedCost;
     }
 
+    /**
+     * Records the branch decisions of this execution as AFL edges in the given trace.
+     */
+    public void setEdgeTrace(EdgeTrace edgeTrace) {
+        this.edgeTrace = edgeTrace;
+    }
+
     public Trie getResultingTrie() {
         return this.trie;
     }
@@ -63,6 +81,13 @@ public class ConcreteInput2TrieListener extends ListenerAdapter implements IBeha
         return this.observedFinalCost;
     }
 
+    /**
+     * @return compact signature of the sequence of branch choices of this execution
+     */
+    public long getPathSignature() {
+        return this.pathSignature;
+    }
+
     @Override
     public boolean didObserveBetterScore() { // can be highscore or lowscore depends on cost target
         return this.observedBetterScore;
@@ -86,168 +111,236 @@ public class ConcreteInput2TrieListener extends ListenerAdapter implements IBeha
         }
     }
 
+    /**
+     * Marks the last node of an aborted execution as frontier node and takes its cost as observed cost, because there
+     * won't be any backtracking to determine the leaf node. The node is also marked as completed, i.e. it is never
+     * selected for exploration again, because its execution would exceed the budget again.
+     */
+    public void handleAbortedExecution() {
+        if (cur == null) {
+            return;
+        }
+        if (cur.getType().equals(TrieNodeType.REGULAR_NODE)) {
+            cur.setType(TrieNodeType.FRONTIER_NODE);
+        }
+        cur.setCompleted();
+        trie.updateNode(cur);
+        observedFinalCost = cur.getMetricValue();
+    }
+
+    @Override
+    public void branchChoiceAdvanced(VM vm, PCChoiceGenerator cg) {
+    }
+
     @Override
-    public void stateAdvanced(Search search) {
+    public void branchStateAdvanced(Search search, PCChoiceGenerator cg) {
         if (DEBUG) {
             System.out.println(">>> stateAdvanced");
-        }
-        ChoiceGenerator<?> cg = search.getVM().getChoiceGenerator();
-        if (DEBUG) {
             System.out.println("cg: " + cg);
         }
+        int offset = cg.getOffset();
 
-        // thread choice instead of pc choice
-        if (cg instanceof ThreadChoiceGenerator) {
-            return;
-        }
-        if (cg instanceof SequenceChoiceGenerator) {
-            return;
+        if (trie.getRoot() == null) { // create the root node
+            TrieNode root = new TrieNode(trie, -1, -1, null, -1, null);
+            trie.setRoot(root);
+            cur = root;
         }
 
-        if (cg instanceof PCChoiceGenerator) {
-            int offset = ((PCChoiceGenerator) cg).getOffset();
-            if (offset == 0) {
-                return;
-            }
-
-            if (trie.getRoot() == null) { // create the root node
-                TrieNode root = new TrieNode(trie, -1, -1, null, -1, null);
-                trie.setRoot(root);
-                cur = root;
+        // create node, add it as cur's child, and update cur
+        int choice = cg.getNextChoice();
+        String method = cg.getMethodName();
+        Instruction currentInstruction = cg.getInsn();
+        int lineNumber = (currentInstruction != null) ? currentInstruction.getLineNumber() : -1;
+        PathCondition pc = cg.getCurrentPC();
+        int instructionId = InstructionIds.getId(currentInstruction);
+        if (edgeTrace != null) {
+            edgeTrace.record(instructionId, choice);
+        }
+        pathSignature = (pathSignature ^ (((long) instructionId << 32) | (choice & 0xffffffffL))) * FNV_PRIME;
+
+        // check if current node already contains this choice
+        TrieNode child = cur.getChild(choice);
+        if (child != null) {
+            cur = child;
+
+            /*
+             * Check if metric value of this is the initial null value, then update if with the current value form
+             * the metric builder. The null value is used to initialize nodes during the symbolic exploration phase
+             * because we don't use an metric listener there. Normally this null value happens somewhere in the
+             * middle of the tree and then the null value is overridden in the backpropagation. But it also might
+             * happen that the new explored node is a leaf node in the tree. So it is better to override this value
+             * right here, and it might be overridden again during backpropagation.
+             */
+            if (cur.getMetricValue() == null) {
+                if (!useUserDefinedCost && metricBuilder != null) {
+                    State state = metricBuilder.build(pc);
+                    if (state instanceof MultiObjectiveState) {
+                        cur.updateMetricVector(((MultiObjectiveState) state).getMetricValues());
+                    } else {
+                        cur.updateMetricValue(state.getWC());
+                    }
+                } else if (useUserDefinedCost) {
+                    cur.updateMetricValue(Observations.lastObservedCost);
+                }
             }
 
+        } else {
             // create node, add it as cur's child, and update cur
-            int choice = ((PCChoiceGenerator) cg).getNextChoice();
-            String method = ((PCChoiceGenerator) cg).getMethodName();
-            Instruction currentInstruction = ((PCChoiceGenerator) cg).getInsn();
-            int lineNumber = (currentInstruction != null) ? currentInstruction.getLineNumber() : -1;
-            PathCondition pc = ((PCChoiceGenerator) cg).getCurrentPC();
-
-            // check if current node already contains this choice
-            TrieNode child = cur.getChild(choice);
-            if (child != null) {
-                cur = child;
-
-                /*
-                 * Check if metric value of this is the initial null value, then update if with the current value form
-                 * the metric builder. The null value is used to initialize nodes during the symbolic exploration phase
-                 * because we don't use an metric listener there. Normally this null value happens somewhere in the
-                 * middle of the tree and then the null value is overridden in the backpropagation. But it also might
-                 * happen that the new explored node is a leaf node in the tree. So it is better to override this value
-                 * right here, and it might be overridden again during backpropagation.
-                 */
-                if (cur.getMetricValue() == null) {
-                    if (!useUserDefinedCost && metricBuilder != null) {
-                        cur.updateMetricValue(metricBuilder.build(pc).getWC());
-                    } else if (useUserDefinedCost) {
-                        cur.updateMetricValue(Observations.lastObservedCost);
-                    }
-                }
 
+            double cost;
+            State state = null;
+            if (!useUserDefinedCost && metricBuilder != null) {
+                state = metricBuilder.build(pc);
+                cost = state.getWC();
+            } else if (useUserDefinedCost) {
+                cost = Observations.lastObservedCost;
             } else {
-                // create node, add it as cur's child, and update cur
-
-                double cost;
-                if (!useUserDefinedCost && metricBuilder != null) {
-                    cost = metricBuilder.build(pc).getWC();
-                } else if (useUserDefinedCost) {
-                    cost = Observations.lastObservedCost;
-                } else {
-                    cost = 0.0;
-                }
-
-                TrieNode n = new TrieNode(trie, choice, offset, method, lineNumber, cur, currentInstruction, pc, cost,
-                        Observations.lastObservedInputSize);
-                if (trie.getAnalyzer().addObservedChoice(currentInstruction, choice)) {
-                    exposedNewBranch = true;
-                }
+                cost = 0.0;
+            }
 
-                cur = n;
+            TrieNode n = new TrieNode(trie, choice, offset, method, lineNumber, cur, currentInstruction, pc, cost,
+                    Observations.lastObservedInputSize);
+            if (state instanceof MultiObjectiveState) {
+                n.setMetricVector(((MultiObjectiveState) state).getMetricValues());
+            }
+            if (cur.isInsidePrunedSubtree()) {
+                // Lazily rebuild a pruned path, which was already explored.
+                n.setRebuilt();
+            }
+            if (trie.getAnalyzer().addObservedChoice(currentInstruction, choice)) {
+                exposedNewBranch = true;
             }
 
+            cur = n;
         }
 
+        /* Remember the current input as witness for this node, so that it can be used to fast-forward to it. */
+        if (cur.getWitnessId() < 0) {
+            cur.setWitnessId(witnessId);
+        }
     }
 
     @Override
-    public void stateBacktracked(Search search) {
+    public void branchStateBacktracked(Search search, PCChoiceGenerator cg) {
         if (DEBUG) {
             System.out.println(">>> stateBacktracked");
-        }
-
-        ChoiceGenerator<?> cg = search.getVM().getChoiceGenerator();
-        if (DEBUG) {
             System.out.println("cg: " + cg);
         }
-
-        if (cg != null && cg instanceof PCChoiceGenerator) {
-            int offset = ((PCChoiceGenerator) cg).getOffset();
-            if (offset == 0) {
-                return;
+        if (cur == null) {
+            if (DEBUG) {
+                System.err.println("backtracked from root node; no action needed for now");
             }
+            return;
+        }
 
-            if (cur == null) {
-                if (DEBUG) {
-                    System.err.println("backtracked from root node; no action needed for now");
+        /* Save the cost for the lowest node and mark it if it is a new best score. */
+        if (cur.getChildren().isEmpty()) {
+            cur.setType(TrieNodeType.LEAF_NODE);
+            observedFinalCost = cur.getMetricValue();
+            if (trie.getAnalyzer() instanceof WCAAnalyzer) {
+                WCAAnalyzer analyzer = (WCAAnalyzer) trie.getAnalyzer();
+                if (observedFinalCost != null && (analyzer.getCostStrategy().equals(CostStrategy.MAXIMIZE)
+                        ? observedFinalCost > analyzer.currentBestCostValue
+                        : observedFinalCost < analyzer.currentBestCostValue)) {
+                    analyzer.currentBestCostValue = observedFinalCost;
+                    observedBetterScore = true;
                 }
-                return;
-            }
-
-            /* Save the cost for the lowest node and mark it if it is a new best score. */
-            if (cur.getChildren().isEmpty()) {
-                cur.setType(TrieNodeType.LEAF_NODE);
-                observedFinalCost = cur.getMetricValue();
-                if (trie.getAnalyzer() instanceof WCAAnalyzer) {
-                    WCAAnalyzer analyzer = (WCAAnalyzer) trie.getAnalyzer();
-                    if (observedFinalCost != null && (analyzer.getCostStrategy().equals(CostStrategy.MAXIMIZE)
-                            ? observedFinalCost > analyzer.currentBestCostValue
-                            : observedFinalCost < analyzer.currentBestCostValue)) {
-                        analyzer.currentBestCostValue = observedFinalCost;
-                        observedBetterScore = true;
+            }
+            if (trie.getAnalyzer() instanceof ParetoWCAAnalyzer
+                    && ((ParetoWCAAnalyzer) trie.getAnalyzer()).addToParetoFront(cur.getMetricVector())) {
+                observedBetterScore = true;
+            }
+        }
+
+        /* Backpropagate metric value */
+        if (cur.getParent() != null) {
+            int numberOfChildren = cur.getParent().getChildren().size();
+            TrieSummary parentSummary = cur.getParent().getSummary();
+            Double newMetricValueForParent = null;
+            if (numberOfChildren == 1 && parentSummary == null) {
+                // this is the first children, then just reuse this number
+                newMetricValueForParent = cur.getMetricValue();
+            } else {
+                // if there are other children, then update the average
+                // Double oldMetricValueForParent = cur.getParent().getMetricValue();
+                // newMetricValueForParent = oldMetricValueForParent
+                // + (cur.getMetricValue() - oldMetricValueForParent) / numberOfChildren;
+                double sum = 0.0;
+                int numberOfSATChildren = 0;
+                for (TrieNode child : cur.getParent().getChildren()) {
+                    
+                    /* Skip unsat nodes because they do not have a metric value. */
+                    if (child.getType().equals(TrieNodeType.UNSAT_NODE)) {
+                        continue;
+                    }
+                    
+                    if (child.getMetricValue() == null) {
+                        continue;
+                        // TODO execution probably ended up in exception..
                     }
+
+                    sum += child.getMetricValue();
+                    numberOfSATChildren++;
                 }
-            }
 
-            /* Backpropagate metric value */
-            if (cur.getParent() != null) {
-                int numberOfChildren = cur.getParent().getChildren().size();
-                double newMetricValueForParent;
-                if (numberOfChildren == 1) {
-                    // this is the first children, then just reuse this number
-                    newMetricValueForParent = cur.getMetricValue();
-                } else {
-                    // if there are other children, then update the average
-                    // Double oldMetricValueForParent = cur.getParent().getMetricValue();
-                    // newMetricValueForParent = oldMetricValueForParent
-                    // + (cur.getMetricValue() - oldMetricValueForParent) / numberOfChildren;
-                    double sum = 0.0;
-                    int numberOfSATChildren = 0;
-                    for (TrieNode child : cur.getParent().getChildren()) {
-                        
-                        /* Skip unsat nodes because they do not have a metric value. */
-                        if (child.getType().equals(TrieNodeType.UNSAT_NODE)) {
-                            continue;
+                /* Include the pruned children that were not rebuilt. */
+                if (parentSummary != null) {
+                    int[] prunedChoices = parentSummary.getChildChoices();
+                    double[] prunedMetricValues = parentSummary.getChildMetricValues();
+                    for (int i = 0; i < prunedChoices.length; i++) {
+                        if (cur.getParent().getChild(prunedChoices[i]) == null
+                                && !Double.isNaN(prunedMetricValues[i])) {
+                            sum += prunedMetricValues[i];
+                            numberOfSATChildren++;
                         }
-                        
-                        if (child.getMetricValue() == null) {
-                            continue;
-                            // TODO execution probably ended up in exception..
-                        }
-
-                        sum += child.getMetricValue();
-                        numberOfSATChildren++;
                     }
+                }
+                // All children can be unsatisfiable or without metric value, then there is nothing to propagate.
+                if (numberOfSATChildren > 0) {
                     newMetricValueForParent = sum / numberOfSATChildren;
                 }
+            }
+            if (cur.getMetricVector() != null) {
+                cur.getParent().setMetricVector(getAverageMetricVector(cur.getParent()));
+            }
+            if (newMetricValueForParent != null) {
                 cur.getParent().updateMetricValue(newMetricValueForParent);
             }
+        }
 
-            cur = cur.getParent();
-            if (DEBUG) {
-                if (cur.getParent() == null) {
-                    System.out.println("backtracked to root.");
-                }
+        cur = cur.getParent();
+        if (DEBUG) {
+            if (cur.getParent() == null) {
+                System.out.println("backtracked to root.");
+            }
+        }
+    }
+
+    /**
+     * Averages the metric vectors of the children of the given node for multi-objective analysis. Pruned children are
+     * not included, because their summary only holds the primary metric value.
+     */
+    private static double[] getAverageMetricVector(TrieNode node) {
+        double[] sum = null;
+        int numberOfChildren = 0;
+        for (TrieNode child : node.getChildren()) {
+            double[] vector = child.getMetricVector();
+            if (child.getType().equals(TrieNodeType.UNSAT_NODE) || vector == null) {
+                continue;
+            }
+            if (sum == null) {
+                sum = new double[vector.length];
+            }
+            for (int i = 0; i < vector.length; i++) {
+                sum[i] += vector[i];
+            }
+            numberOfChildren++;
+        }
+        if (sum != null) {
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] /= numberOfChildren;
             }
         }
+        return sum;
     }
-}
\ No newline at end of file
+}
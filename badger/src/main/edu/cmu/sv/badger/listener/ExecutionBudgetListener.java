@@ -0,0 +1,78 @@
+package edu.cmu.sv.badger.listener;
+
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * This listener terminates a JPF run as soon as it exceeds a wall-clock or instruction budget. Inputs that drive the
+ * application into a very long loop would otherwise block SymExe forever.
+ *
+ * The search is not backtracked after the termination, i.e. the other listeners can still access the last node of the
+ * aborted path.
+ */
+public class ExecutionBudgetListener extends ListenerAdapter {
+
+    /* Reading the clock for every instruction would be too expensive, so only check it every 1024 instructions. */
+    private static final long TIME_CHECK_MASK = 0x3FF;
+
+    private final long maximumMillis;
+    private final long maximumInstructions;
+
+    private long startTime;
+    private long executedInstructions = 0;
+    private boolean budgetExceeded = false;
+
+    /**
+     * @param maximumMillis
+     *            - wall-clock budget in milliseconds, 0 for no limit
+     * @param maximumInstructions
+     *            - budget of executed bytecode instructions, 0 for no limit
+     */
+    public ExecutionBudgetListener(long maximumMillis, long maximumInstructions) {
+        this.maximumMillis = maximumMillis;
+        this.maximumInstructions = maximumInstructions;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    public boolean isBudgetExceeded() {
+        return budgetExceeded;
+    }
+
+    public long getExecutedInstructions() {
+        return executedInstructions;
+    }
+
+    @Override
+    public void searchStarted(Search search) {
+        this.startTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public void instructionExecuted(VM vm, ThreadInfo currentThread, Instruction nextInstruction,
+            Instruction executedInstruction) {
+        if (budgetExceeded) {
+            return;
+        }
+        executedInstructions++;
+
+        if (maximumInstructions > 0 && executedInstructions > maximumInstructions) {
+            abort(vm, currentThread, "instruction budget of " + maximumInstructions + " exceeded");
+        } else if (maximumMillis > 0 && (executedInstructions & TIME_CHECK_MASK) == 0
+                && System.currentTimeMillis() - startTime > maximumMillis) {
+            abort(vm, currentThread, "time budget of " + maximumMillis + "ms exceeded");
+        }
+    }
+
+    private void abort(VM vm, ThreadInfo currentThread, String reason) {
+        budgetExceeded = true;
+        System.out.println("[SPF] " + reason + ", abort execution ...");
+
+        // Terminate the search and end the current transition, so that the search loop can notice the termination.
+        vm.getSearch().terminate();
+        currentThread.breakTransition(reason);
+    }
+
+}
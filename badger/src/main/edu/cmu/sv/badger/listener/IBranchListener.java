@@ -0,0 +1,22 @@
+package edu.cmu.sv.badger.listener;
+
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
+import gov.nasa.jpf.vm.VM;
+
+/**
+ * Defines the callbacks of a listener that builds or follows the trie. They are only called for choice generators of
+ * branches in the analyzed code, i.e. PCChoiceGenerators with an offset, so the listener does not need to filter
+ * thread, sequence and initial choice generators itself. See {@link BadgerListener#getBranchChoiceGenerator}.
+ */
+public interface IBranchListener {
+
+    public void branchChoiceAdvanced(VM vm, PCChoiceGenerator cg);
+
+    public void branchStateAdvanced(Search search, PCChoiceGenerator cg);
+
+    public void branchStateBacktracked(Search search, PCChoiceGenerator cg);
+
+    public void searchConstraintHit(Search search);
+
+}
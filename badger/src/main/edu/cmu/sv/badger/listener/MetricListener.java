@@ -1,10 +1,14 @@
 package edu.cmu.sv.badger.listener;
 
 import edu.cmu.sv.badger.analysis.StateBuilder;
+import edu.cmu.sv.badger.analysis.StateBuilderAdapter;
+import edu.cmu.sv.badger.util.MethodScope;
 import gov.nasa.jpf.Config;
 import gov.nasa.jpf.JPF;
 import gov.nasa.jpf.PropertyListenerAdapter;
+import gov.nasa.jpf.vm.ElementInfo;
 import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.MethodInfo;
 import gov.nasa.jpf.vm.ThreadInfo;
 import gov.nasa.jpf.vm.VM;
 
@@ -12,13 +16,57 @@ public class MetricListener extends PropertyListenerAdapter {
 
     private StateBuilder stateBuilder;
 
+    /* Most cost models only look at executed instructions, so the notification before execution is skipped for them. */
+    private final boolean forwardExecuteInstruction;
+
+    /*
+     * Methods, in which the cost is measured, including all methods called from them. Null to measure everything.
+     * Outside of the scope no event is forwarded to the state builder.
+     */
+    private final MethodScope scope;
+
+    /* Stack depth and thread of the outermost frame of a scope method, or -1 if the execution is outside the scope. */
+    private int scopeStackDepth = -1;
+    private ThreadInfo scopeThread;
+
     public MetricListener(Config jpfConf, JPF jpf, StateBuilder stateBuilder) {
+        this(jpfConf, jpf, stateBuilder, null);
+    }
+
+    public MetricListener(Config jpfConf, JPF jpf, StateBuilder stateBuilder, MethodScope scope) {
         this.stateBuilder = stateBuilder;
+        this.forwardExecuteInstruction = overridesExecuteInstruction(stateBuilder);
+        this.scope = scope;
+    }
+
+    private static boolean overridesExecuteInstruction(StateBuilder stateBuilder) {
+        try {
+            return stateBuilder.getClass().getMethod("handleExecuteInstruction", VM.class, ThreadInfo.class,
+                    Instruction.class).getDeclaringClass() != StateBuilderAdapter.class;
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+
+    private boolean isInScope(ThreadInfo currentThread) {
+        if (scope == null) {
+            return true;
+        }
+        if (scopeStackDepth < 0 || currentThread != scopeThread) {
+            return false;
+        }
+        if (currentThread.getStackDepth() < scopeStackDepth) {
+            // The scope method was left, e.g. by an exception, without a methodExited notification for it.
+            scopeStackDepth = -1;
+            scopeThread = null;
+            return false;
+        }
+        return true;
     }
 
     @Override
     public void executeInstruction(VM vm, ThreadInfo currentThread, Instruction instructionToExecute) {
-        if (!currentThread.isFirstStepInsn()) {
+        if (forwardExecuteInstruction && !currentThread.isFirstStepInsn() && isInScope(currentThread)) {
             this.stateBuilder.handleExecuteInstruction(vm, currentThread, instructionToExecute);
         }
     }
@@ -26,7 +74,45 @@ public class MetricListener extends PropertyListenerAdapter {
     @Override
     public void instructionExecuted(VM vm, ThreadInfo currentThread, Instruction nextInstruction,
             Instruction executedInstruction) {
-        this.stateBuilder.handleInstructionExecuted(vm, currentThread, nextInstruction, executedInstruction);
+        if (isInScope(currentThread)) {
+            this.stateBuilder.handleInstructionExecuted(vm, currentThread, nextInstruction, executedInstruction);
+        }
+    }
+
+    @Override
+    public void objectCreated(VM vm, ThreadInfo currentThread, ElementInfo newObject) {
+        if (isInScope(currentThread)) {
+            this.stateBuilder.handleObjectCreated(vm, currentThread, newObject);
+        }
+    }
+
+    @Override
+    public void objectReleased(VM vm, ThreadInfo currentThread, ElementInfo releasedObject) {
+        if (isInScope(currentThread)) {
+            this.stateBuilder.handleObjectReleased(vm, currentThread, releasedObject);
+        }
+    }
+
+    @Override
+    public void methodEntered(VM vm, ThreadInfo currentThread, MethodInfo enteredMethod) {
+        if (scope != null && scopeStackDepth < 0 && scope.contains(enteredMethod)) {
+            scopeStackDepth = currentThread.getStackDepth();
+            scopeThread = currentThread;
+        }
+        if (isInScope(currentThread)) {
+            this.stateBuilder.handleMethodEntered(vm, currentThread, enteredMethod);
+        }
+    }
+
+    @Override
+    public void methodExited(VM vm, ThreadInfo currentThread, MethodInfo exitedMethod) {
+        if (isInScope(currentThread)) {
+            this.stateBuilder.handleMethodExited(vm, currentThread, exitedMethod);
+            if (scope != null && currentThread.getStackDepth() == scopeStackDepth && scope.contains(exitedMethod)) {
+                scopeStackDepth = -1;
+                scopeThread = null;
+            }
+        }
     }
 
 }
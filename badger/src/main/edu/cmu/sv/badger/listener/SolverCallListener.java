@@ -1,65 +1,70 @@
 package edu.cmu.sv.badger.listener;
 
+import edu.cmu.sv.badger.util.SolverCalls;
+import edu.cmu.sv.badger.util.SolverCalls.Caller;
+import edu.cmu.sv.badger.util.SolverCalls.Result;
 import gov.nasa.jpf.Config;
 import gov.nasa.jpf.JPF;
 import gov.nasa.jpf.ListenerAdapter;
-import gov.nasa.jpf.vm.ChoiceGenerator;
-import gov.nasa.jpf.vm.ThreadChoiceGenerator;
-import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
 import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
-import gov.nasa.jpf.symbc.sequences.SequenceChoiceGenerator;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
 
 /**
- * This listener class records the number of solver calls 
+ * This listener class records the solver calls that SPF makes during symbolic execution. SPF checks the satisfiability
+ * of the path condition when a symbolic branch instruction is re-executed with the choice of its PCChoiceGenerator, so
+ * the execution of this instruction is measured. No solver is called during the replay of the trie
+ * (PathCondition.isReplay) and while constraints are only collected along a concrete input, these executions are
+ * ignored.
  * 
  * @author Guowei Yang (guoweiyang@utexas.edu)
  * 
  */
-
 public class SolverCallListener extends ListenerAdapter {
 
-	int count; // number of solver calls, assuming one solver call 
-			   // is made whenever state is advanced because of PCChoiceGenerator advancing
-	
-	private static final boolean DEBUG = false;
-
-	public SolverCallListener(Config config, JPF jpf) throws Exception {
-		count=0;
-	}
-
-	public void searchFinished(Search search) {
-		if (DEBUG) {
-			System.out.println(">>> searchFinished");
-		}
-		System.out.println("# solver calls: " + count);
-	}
-
-
-	public void stateAdvanced(Search search) {
-		if (DEBUG) {
-			System.out.println(">>> stateAdvanced");
-		}
+    private static final boolean DEBUG = false;
 
-		ChoiceGenerator<?> cg = search.getVM().getChoiceGenerator();
-		if (DEBUG) {
-			System.out.println("cg: " + cg);
-		}
+    private Instruction measuredInstruction; // branch instruction that is currently executed, or null
+    private long startTime;
 
-		// thread choice instead of pc choice
-		if (cg instanceof ThreadChoiceGenerator) {
-			return;
-		}
-		if (cg instanceof SequenceChoiceGenerator) {
-			return;
-		}
+    public SolverCallListener(Config config, JPF jpf) {
+    }
 
-		if (cg instanceof PCChoiceGenerator) {
-			int offset = ((PCChoiceGenerator) cg).getOffset();
-			if (offset == 0) {
-				return;
-			}
-		}
+    @Override
+    public void executeInstruction(VM vm, ThreadInfo currentThread, Instruction instructionToExecute) {
+        if (PathCondition.isReplay || SymbolicInstructionFactory.collect_constraints
+                || !currentThread.isFirstStepInsn()) {
+            return;
+        }
+        PCChoiceGenerator cg = BadgerListener.getBranchChoiceGenerator(vm.getChoiceGenerator());
+        if (cg != null && cg.getInsn() == instructionToExecute) {
+            measuredInstruction = instructionToExecute;
+            startTime = System.nanoTime();
+        }
+    }
 
-		count++;
-	}
+    @Override
+    public void instructionExecuted(VM vm, ThreadInfo currentThread, Instruction nextInstruction,
+            Instruction executedInstruction) {
+        if (measuredInstruction == null) {
+            return;
+        }
+        long duration = System.nanoTime() - startTime;
+        boolean measured = executedInstruction == measuredInstruction;
+        measuredInstruction = null;
+        if (!measured) {
+            return;
+        }
+        PCChoiceGenerator cg = BadgerListener.getBranchChoiceGenerator(vm.getChoiceGenerator());
+        PathCondition pc = cg != null ? cg.getCurrentPC() : null;
+        // SPF ignores the state if the path condition is unsatisfiable.
+        Result result = vm.getSystemState().isIgnored() ? Result.UNSAT : Result.SAT;
+        if (DEBUG) {
+            System.out.println("solver call at " + executedInstruction + ": " + result + " in " + duration + "ns");
+        }
+        SolverCalls.record(Caller.BSE, pc, result, duration);
+    }
 }
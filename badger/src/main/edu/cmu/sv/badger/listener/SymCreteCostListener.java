@@ -2,6 +2,8 @@ package edu.cmu.sv.badger.listener;
 
 import java.util.Map;
 
+import edu.cmu.sv.badger.util.SolverCalls;
+import edu.cmu.sv.badger.util.SolverCalls.Caller;
 import gov.nasa.jpf.Config;
 import gov.nasa.jpf.JPF;
 import gov.nasa.jpf.ListenerAdapter;
@@ -86,12 +88,7 @@ public class SymCreteCostListener extends ListenerAdapter {
                 this.observedCost = Observations.lastObservedCost;
                 this.observedPC = ((PCChoiceGenerator) cg).getCurrentPC();
                 if (this.observedPC != null) {
-                    // Solve PC. Reset isReplay to false during satisfiability check, otherwise the
-                    // PathCondition will always return true.
-                    boolean isReplay = PathCondition.isReplay;
-                    PathCondition.setReplay(false);
-                    this.observedSolution = observedPC.solveWithValuation();
-                    PathCondition.setReplay(isReplay);
+                    this.observedSolution = SolverCalls.solveWithValuation(Caller.OPTIMIZE, observedPC);
                 }
             }
         }
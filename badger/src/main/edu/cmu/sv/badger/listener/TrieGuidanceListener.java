@@ -6,19 +6,20 @@ import java.util.concurrent.BlockingQueue;
 import edu.cmu.sv.badger.trie.Trie;
 import edu.cmu.sv.badger.trie.TrieNode;
 import edu.cmu.sv.badger.trie.TrieNodeType;
+import edu.cmu.sv.badger.util.PhaseTimer;
+import edu.cmu.sv.badger.util.PhaseTimer.Phase;
+import edu.cmu.sv.badger.util.SolverCalls;
+import edu.cmu.sv.badger.util.SolverCalls.Caller;
 import gov.nasa.jpf.Config;
 import gov.nasa.jpf.JPF;
-import gov.nasa.jpf.ListenerAdapter;
 import gov.nasa.jpf.JPF.ExitException;
 import gov.nasa.jpf.search.Search;
 import gov.nasa.jpf.symbc.Observations;
+import gov.nasa.jpf.symbc.SymbolicInstructionFactory;
 import gov.nasa.jpf.symbc.numeric.PCChoiceGenerator;
 import gov.nasa.jpf.symbc.numeric.PathCondition;
-import gov.nasa.jpf.symbc.sequences.SequenceChoiceGenerator;
 import gov.nasa.jpf.util.Pair;
-import gov.nasa.jpf.vm.ChoiceGenerator;
 import gov.nasa.jpf.vm.Instruction;
-import gov.nasa.jpf.vm.ThreadChoiceGenerator;
 import gov.nasa.jpf.vm.VM;
 
 /**
@@ -30,7 +31,7 @@ import gov.nasa.jpf.vm.VM;
  * @author Yannic Noller <nolleryc@gmail.com> - YN
  * 
  */
-public class TrieGuidanceListener extends ListenerAdapter {
+public class TrieGuidanceListener implements IBranchListener {
     Trie trie;
     TrieNode cur;
     public int numberOfAdditionalDecisionSteps;
@@ -40,12 +41,19 @@ public class TrieGuidanceListener extends ListenerAdapter {
 
     boolean stayAtNode = false;
 
+    /* Depth at which the fast-forward along a witness input ends and the symbolic replay starts, -1 if disabled. */
+    int fastForwardDepth = -1;
+    boolean fastForwardDiverged = false;
+    /* Value of the constraint collection before the switch to the replay, null if it was not switched. */
+    Boolean collectConstraintsBeforeSwitch = null;
+
     BlockingQueue<Pair<PathCondition, Map<String, Object>>> pcAndSolutionQueue;
 
     /**
      * Enumeration to represent the modes of this listener.
      */
     private enum Mode {
+        FAST_FORWARD, // concrete execution of a witness input, constraints are only collected, no choices
         REPLAY, // normal mode, follows the enabled trie nodes, no constraint solving
         BOUNDED_SYMBOLIC_EXECUTION // bounded symbolic execution mode
     };
@@ -74,6 +82,54 @@ public class TrieGuidanceListener extends ListenerAdapter {
         }
     }
 
+    /**
+     * Creates a listener that first follows the concrete execution of a witness input, i.e. the JPF run needs to be
+     * started with the witness input as argument and symbolic.collect_constraints=true. As soon as the given depth is
+     * reached, constraint collection is switched off and the listener continues with the usual replay and bounded
+     * symbolic execution.
+     * 
+     * @param fastForwardDepth
+     *            - depth of the trie node, from which on the symbolic replay starts
+     */
+    public TrieGuidanceListener(Config config, JPF jpf, Trie trie, int numberOfAdditionalDecisionSteps,
+            BlockingQueue<Pair<PathCondition, Map<String, Object>>> pcAndSolutionQueue, int fastForwardDepth) {
+        this(config, jpf, trie, numberOfAdditionalDecisionSteps, pcAndSolutionQueue);
+        if (this.cur != null && fastForwardDepth > 0) {
+            this.fastForwardDepth = fastForwardDepth;
+            this.executionMode = Mode.FAST_FORWARD;
+        }
+    }
+
+    /**
+     * @return true if the fast-forward was aborted because the witness input did not follow the trie.
+     */
+    public boolean didFastForwardDiverge() {
+        return fastForwardDiverged;
+    }
+
+    private void switchFromFastForwardToReplay() {
+        /*
+         * The choice generators created from now on will contain all choices again. The path condition collected so far
+         * represents the path to the current node.
+         */
+        if (collectConstraintsBeforeSwitch == null) {
+            collectConstraintsBeforeSwitch = SymbolicInstructionFactory.collect_constraints;
+        }
+        SymbolicInstructionFactory.collect_constraints = false;
+        executionMode = Mode.REPLAY;
+    }
+
+    /**
+     * Resets the global constraint collection flag of SPF to its value before the fast-forward ended. Needs to be
+     * called after every run, also if the run was aborted.
+     */
+    public void restoreConstraintCollection() {
+        if (collectConstraintsBeforeSwitch != null) {
+            SymbolicInstructionFactory.collect_constraints = collectConstraintsBeforeSwitch;
+            collectConstraintsBeforeSwitch = null;
+        }
+    }
+
     // This functionality of this method is currently not used, because we assume
     // that each execution can be finished within the constraints. But the aborted
     // nodes get the type FRONITER_NODE.
@@ -84,24 +140,24 @@ public class TrieGuidanceListener extends ListenerAdapter {
         }
     }
 
+    /**
+     * Marks the last node of an aborted execution as frontier node. The node is also marked as completed, i.e. it is
+     * never selected for exploration again, because its execution would exceed the budget again.
+     */
+    public void handleAbortedExecution() {
+        if (cur == null) {
+            return;
+        }
+        if (cur.getType() == TrieNodeType.REGULAR_NODE) {
+            cur.setType(TrieNodeType.FRONTIER_NODE);
+        }
+        cur.setCompleted();
+        trie.updateNode(cur);
+    }
+
     @Override
-    public void choiceGeneratorAdvanced(VM vm, ChoiceGenerator<?> cg) {
+    public void branchChoiceAdvanced(VM vm, PCChoiceGenerator currentPCChoiceGenerator) {
         if (executionMode.equals(Mode.REPLAY)) {
-            if (cg instanceof ThreadChoiceGenerator) {
-                return;
-            }
-            if (cg instanceof SequenceChoiceGenerator) {
-                return;
-            }
-
-            if (cg instanceof PCChoiceGenerator) {
-                int offset = ((PCChoiceGenerator) cg).getOffset();
-                if (offset == 0) {
-                    return;
-                }
-            }
-
-            PCChoiceGenerator currentPCChoiceGenerator = (PCChoiceGenerator) cg;
             int nextChoice = cur.getGuidedChoice();
             if (nextChoice >= 0) {
                 /*
@@ -115,24 +171,7 @@ public class TrieGuidanceListener extends ListenerAdapter {
     }
 
     @Override
-    public void stateAdvanced(Search search) {
-        ChoiceGenerator<?> cg = search.getVM().getChoiceGenerator();
-
-        if (cg instanceof ThreadChoiceGenerator) {
-            return;
-        }
-        if (cg instanceof SequenceChoiceGenerator) {
-            return;
-        }
-
-        if (cg instanceof PCChoiceGenerator) {
-            int offset = ((PCChoiceGenerator) cg).getOffset();
-            if (offset == 0) {
-                return;
-            }
-        }
-
-        PCChoiceGenerator currentPCChoiceGenerator = (PCChoiceGenerator) cg;
+    public void branchStateAdvanced(Search search, PCChoiceGenerator currentPCChoiceGenerator) {
         int choice = currentPCChoiceGenerator.getNextChoice();
         int offset = currentPCChoiceGenerator.getOffset();
         String method = currentPCChoiceGenerator.getMethodName();
@@ -141,7 +180,20 @@ public class TrieGuidanceListener extends ListenerAdapter {
 
         stayAtNode = false;
 
-        if (executionMode.equals(Mode.REPLAY)) {
+        if (executionMode.equals(Mode.FAST_FORWARD)) {
+            TrieNode child = cur.getChild(choice);
+            if (child == null) {
+                // The witness input does not follow the known path anymore, e.g. because of nondeterminism.
+                fastForwardDiverged = true;
+                stayAtNode = true;
+                search.requestBacktrack();
+                return;
+            }
+            cur = child;
+            if (cur.getDepth() >= fastForwardDepth) {
+                switchFromFastForwardToReplay();
+            }
+        } else if (executionMode.equals(Mode.REPLAY)) {
 
             // Check if choice does already exist.
             TrieNode child = cur.getChild(choice);
@@ -188,7 +240,7 @@ public class TrieGuidanceListener extends ListenerAdapter {
         } else if (executionMode.equals(Mode.BOUNDED_SYMBOLIC_EXECUTION)) {
 
             // create node, add it as cur's child, and update cur
-            PathCondition pc = ((PCChoiceGenerator) cg).getCurrentPC();
+            PathCondition pc = currentPCChoiceGenerator.getCurrentPC();
             TrieNode n = new TrieNode(trie, choice, offset, method, lineNumber, cur, currentInstruction, pc, null,
                     Observations.lastObservedInputSize);
             cur = n;
@@ -203,58 +255,45 @@ public class TrieGuidanceListener extends ListenerAdapter {
     }
 
     @Override
-    public void stateBacktracked(Search search) {
-        ChoiceGenerator<?> cg = search.getVM().getChoiceGenerator();
-
-        if (cg != null && cg instanceof PCChoiceGenerator) {
-            PCChoiceGenerator currentChoiceGenerator = (PCChoiceGenerator) cg;
-            int offset = currentChoiceGenerator.getOffset();
-            if (offset == 0) {
-                return;
-            }
-
-            if (executionMode.equals(Mode.BOUNDED_SYMBOLIC_EXECUTION)) {
-                if (cur.getType() != TrieNodeType.UNSAT_NODE) {
-                    if (cur.getChildren().isEmpty()) {
-                        // Only collect path conditions when we are in the mode SYMBOLIC_EXECUTION (i.e.
-                        // we are exploring new nodes) and we backtracked from a node without children
-                        // (final node) and this node is satisfiable. -> only if it is a "new" node
-                        handleNewPathCondition(currentChoiceGenerator.getCurrentPC(), cur,
-                                currentChoiceGenerator.isDone());
-                    }
+    public void branchStateBacktracked(Search search, PCChoiceGenerator currentChoiceGenerator) {
+        if (executionMode.equals(Mode.BOUNDED_SYMBOLIC_EXECUTION)) {
+            if (cur.getType() != TrieNodeType.UNSAT_NODE) {
+                if (cur.getChildren().isEmpty()) {
+                    // Only collect path conditions when we are in the mode SYMBOLIC_EXECUTION (i.e.
+                    // we are exploring new nodes) and we backtracked from a node without children
+                    // (final node) and this node is satisfiable. -> only if it is a "new" node
+                    handleNewPathCondition(currentChoiceGenerator.getCurrentPC(), cur,
+                            currentChoiceGenerator.isDone());
                 }
             }
+        }
 
-            if (!stayAtNode) {
-                if (cur.getParent() != null) {
-                    cur = cur.getParent();
-                }
+        if (!stayAtNode) {
+            if (cur.getParent() != null) {
+                cur = cur.getParent();
             }
+        }
 
-            // if backtrack from the last replayed node, then switch back to replay and
-            // reset the old frontier to non-frontier
-            if (executionMode.equals(Mode.BOUNDED_SYMBOLIC_EXECUTION)) {
-                decisionCounter--;
-                if (decisionCounter == -1) {
-                    executionMode = Mode.REPLAY;
-                    PathCondition.setReplay(true);
-                }
+        // if backtrack from the last replayed node, then switch back to replay and
+        // reset the old frontier to non-frontier
+        if (executionMode.equals(Mode.BOUNDED_SYMBOLIC_EXECUTION)) {
+            decisionCounter--;
+            if (decisionCounter == -1) {
+                executionMode = Mode.REPLAY;
+                PathCondition.setReplay(true);
             }
+        }
 
-            if (cur.getChildren().size() == cur.getMaximumNumberOfChildren()) {
-                // Then all children of current node were explored.
-                cur.setExplorationNeeded(false);
-            }
+        if (cur.getChildren().size() == cur.getMaximumNumberOfChildren()) {
+            // Then all children of current node were explored.
+            cur.setExplorationNeeded(false);
         }
     }
 
     private void handleNewPathCondition(PathCondition pc, TrieNode node, boolean choiceGeneratorIsFinished) {
-        // Solve PC. Reset isReplay to false during satisfiability check, otherwise the
-        // PathCondition will always return true.
-        boolean isReplay = PathCondition.isReplay;
-        PathCondition.setReplay(false);
-        Map<String, Object> solution = pc.solveWithValuation();
-        PathCondition.setReplay(isReplay);
+        long startTime = PhaseTimer.start(Phase.SOLVING);
+        Map<String, Object> solution = SolverCalls.solveWithValuation(Caller.NEW_PATH_CONDITION, pc);
+        PhaseTimer.stop(Phase.SOLVING, startTime);
         if (solution == null || solution.isEmpty()) {
             node.setType(TrieNodeType.UNSAT_NODE);
             return;
@@ -3,14 +3,28 @@ package edu.cmu.sv.badger.trie;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import edu.cmu.sv.badger.analysis.TrieAnalyzer;
+import edu.cmu.sv.badger.util.InstructionIds;
 
 /**
  * Trie data structure with the following info stored: methodName, bytecode offset, and choice.
@@ -22,7 +36,7 @@ import edu.cmu.sv.badger.analysis.TrieAnalyzer;
 
 public class Trie implements Serializable {
 
-    private static final long serialVersionUID = 7526472295622776147L;
+    private static final long serialVersionUID = 7526472295622776148L;
 
     private AtomicInteger idGenerator = new AtomicInteger(-1);
 
@@ -36,9 +50,37 @@ public class Trie implements Serializable {
 
     private TrieAnalyzer trieAnalyzer;
 
+    /*
+     * Stores the inputs that reached nodes in this trie. Nodes only keep the index into this list, so that the same
+     * file name is not stored for every node on the path.
+     */
+    private List<String> witnessInputs;
+    private Map<String, Integer> witnessInputIds;
+
+    /* Aggregations over at least this number of nodes run in parallel. */
+    private static final int PARALLEL_TRAVERSAL_THRESHOLD = 100000;
+
+    /* Number of nodes that were removed by pruning. */
+    private int numberOfPrunedNodes = 0;
+
+    /* Optional file, to which cold subtrees are paged out. Not serialized, paged out nodes are loaded before. */
+    private transient TrieNodeStore nodeStore;
+
+    /*
+     * Nodes that were changed or removed since the last export, only tracked if an exporter is attached. Changed nodes
+     * are stored by id, because a paged out node can be faulted in as new object.
+     */
+    private transient Map<Integer, TrieNode> changedNodes;
+    private transient List<Integer> removedNodeIds;
+
+    /* Incremented for every exploration iteration, nodes remember the epoch in which they were last traversed. */
+    private int accessEpoch = 0;
+
     public Trie(TrieAnalyzer trieAnalyzer) {
         this.enabledNodes = new HashSet<>();
         this.trieAnalyzer = trieAnalyzer;
+        this.witnessInputs = new ArrayList<>();
+        this.witnessInputIds = new HashMap<>();
     }
 
     public TrieNode getRoot() {
@@ -60,6 +102,7 @@ public class Trie implements Serializable {
      *            - TrieNode
      */
     public void updateNode(TrieNode node) {
+        markChanged(node);
         trieAnalyzer.updateNode(node);
     }
 
@@ -67,7 +110,7 @@ public class Trie implements Serializable {
      * Compact the trie based on enabled nodes, i.e. removes all disabled nodes.
      */
     public void compact() {
-        root.compact();
+        numberOfPrunedNodes += root.compact();
     }
 
     public void resetAnnotation() {
@@ -77,6 +120,49 @@ public class Trie implements Serializable {
         enabledNodes = new HashSet<>();
     }
 
+    /**
+     * Registers an input file as witness for the nodes on its execution path. The witness is identified by the
+     * original file name, because this is the name under which the file is moved later on.
+     * 
+     * @param inputFile
+     *            - original file name of the input
+     * @param processedInputFile
+     *            - file name as it is passed to the target application, i.e. after the input processing
+     * @return id of the witness input
+     */
+    public int registerWitnessInput(String inputFile, String processedInputFile) {
+        Integer id = witnessInputIds.get(inputFile);
+        if (id == null) {
+            id = witnessInputs.size();
+            witnessInputs.add(processedInputFile);
+            witnessInputIds.put(inputFile, id);
+        } else {
+            witnessInputs.set(id, processedInputFile);
+        }
+        return id;
+    }
+
+    /**
+     * Updates the original file name of a witness input, e.g. after a generated file was moved to the export
+     * directory. The file passed to the target application only changes if the input was not processed.
+     */
+    public void updateWitnessInput(String oldInputFile, String newInputFile) {
+        Integer id = witnessInputIds.remove(oldInputFile);
+        if (id != null) {
+            if (oldInputFile.equals(witnessInputs.get(id))) {
+                witnessInputs.set(id, newInputFile);
+            }
+            witnessInputIds.put(newInputFile, id);
+        }
+    }
+
+    public String getWitnessInput(int witnessId) {
+        if (witnessId < 0 || witnessId >= witnessInputs.size()) {
+            return null;
+        }
+        return witnessInputs.get(witnessId);
+    }
+
     public static boolean storeTrie(Trie trie, String filePath) {
         try {
             FileOutputStream fout = new FileOutputStream(filePath);
@@ -111,25 +197,329 @@ public class Trie implements Serializable {
         return trie;
     }
 
-    public String getStatistics() {
-        return idGenerator.get() + "," + trieAnalyzer.getStatistics();
+    public int getNumberOfNodes() {
+        return idGenerator.get() + 1;
     }
 
-    public int getNumberOfPaths() {
-        return countNumberOfPaths(root);
+    /**
+     * @return number of nodes that are currently in memory, i.e. without pruned nodes.
+     */
+    public int getNumberOfLiveNodes() {
+        return getNumberOfNodes() - numberOfPrunedNodes - getNumberOfPagedNodes();
+    }
 
+    /**
+     * @return number of nodes that are paged out to the trie store.
+     */
+    public int getNumberOfPagedNodes() {
+        return nodeStore != null ? nodeStore.getNumberOfPagedNodes() : 0;
     }
 
-    private int countNumberOfPaths(TrieNode node) {
-        if (node.getType().equals(TrieNodeType.LEAF_NODE)) {
-            return 1;
-        } else {
-            int numberOfPaths = 0;
+    public int getNumberOfPrunedNodes() {
+        return numberOfPrunedNodes;
+    }
+
+    /* Traversal state of a node during pruning. */
+    private static final class PruneFrame {
+        final TrieNode node;
+        final Iterator<TrieNode> children;
+        boolean subtreeDone;
+        List<TrieNode> doneChildren;
+
+        PruneFrame(TrieNode node) {
+            this.node = node;
+            // Paged out subtrees are not faulted in for pruning.
+            this.children = node.hasPagedOutChildren() ? Collections.emptyIterator() : node.getChildren().iterator();
+            this.subtreeDone = !node.hasPagedOutChildren() && !node.isEnabled()
+                    && (node.isCompleted() || node.getType() == TrieNodeType.LEAF_NODE
+                            || node.getType() == TrieNodeType.UNSAT_NODE);
+        }
+    }
+
+    /**
+     * Replaces all maximal subtrees, whose nodes are completed, leaf or unsat nodes, by summary nodes. The traversal is
+     * iterative because the trie can be deeper than the call stack.
+     * 
+     * @return number of removed nodes
+     */
+    public int pruneCompletedSubtrees() {
+        if (root == null) {
+            return 0;
+        }
+        int prunedBefore = numberOfPrunedNodes;
+        Deque<PruneFrame> stack = new ArrayDeque<>();
+        stack.push(new PruneFrame(root));
+        while (!stack.isEmpty()) {
+            PruneFrame frame = stack.peek();
+            if (frame.children.hasNext()) {
+                stack.push(new PruneFrame(frame.children.next()));
+                continue;
+            }
+            stack.pop();
+            PruneFrame parentFrame = stack.peek();
+            if (parentFrame != null) {
+                parentFrame.subtreeDone &= frame.subtreeDone;
+                if (frame.subtreeDone && frame.node.getNumberOfChildren() > 0) {
+                    if (parentFrame.doneChildren == null) {
+                        parentFrame.doneChildren = new ArrayList<>();
+                    }
+                    parentFrame.doneChildren.add(frame.node);
+                }
+            }
+            if (!frame.subtreeDone && frame.doneChildren != null) {
+                // Parent cannot be pruned, so the done children are the roots of maximal subtrees.
+                for (TrieNode doneChild : frame.doneChildren) {
+                    collapse(doneChild);
+                }
+            } else if (frame.subtreeDone && parentFrame == null && root.getNumberOfChildren() > 0) {
+                collapse(root);
+            }
+        }
+        return numberOfPrunedNodes - prunedBefore;
+    }
+
+    private void collapse(TrieNode subtreeRoot) {
+        List<TrieNode> children = subtreeRoot.getChildren();
+        TrieSummary oldSummary = subtreeRoot.getSummary();
+
+        // Collect metric values of the direct children, rebuilt children replace the old summary values.
+        Map<Integer, Double> childMetricValues = new HashMap<>();
+        if (oldSummary != null) {
+            for (int i = 0; i < oldSummary.getChildChoices().length; i++) {
+                childMetricValues.put(oldSummary.getChildChoices()[i], oldSummary.getChildMetricValues()[i]);
+            }
+        }
+        for (TrieNode child : children) {
+            Double metricValue = child.getMetricValue();
+            childMetricValues.put(child.getChoice(),
+                    child.getType() == TrieNodeType.UNSAT_NODE || metricValue == null ? Double.NaN : metricValue);
+        }
+
+        // Aggregate the subtree and remove the nodes from the analyzer.
+        int numberOfRemovedNodes = 0;
+        int numberOfNestedPrunedNodes = 0;
+        int numberOfLeaves = 0;
+        double maxLeafMetricValue = Double.NEGATIVE_INFINITY;
+        Deque<TrieNode> nodesToVisit = new ArrayDeque<>(children);
+        while (!nodesToVisit.isEmpty()) {
+            TrieNode node = nodesToVisit.pop();
+            numberOfRemovedNodes++;
+            trieAnalyzer.removeNode(node);
+            markRemoved(node);
+            TrieSummary nestedSummary = node.getSummary();
+            if (nestedSummary != null) {
+                numberOfNestedPrunedNodes += nestedSummary.getNumberOfPrunedNodes();
+                numberOfLeaves += nestedSummary.getNumberOfLeaves();
+                maxLeafMetricValue = Math.max(maxLeafMetricValue, nestedSummary.getMaxLeafMetricValue());
+            } else if (node.getType() == TrieNodeType.LEAF_NODE) {
+                numberOfLeaves++;
+                if (node.getMetricValue() != null) {
+                    maxLeafMetricValue = Math.max(maxLeafMetricValue, node.getMetricValue());
+                }
+            }
+            nodesToVisit.addAll(node.getChildren());
+        }
+        numberOfPrunedNodes += numberOfRemovedNodes;
+
+        // Rebuilt nodes were already counted as pruned before, so the old summary only contributes its leaves.
+        if (oldSummary != null) {
+            maxLeafMetricValue = Math.max(maxLeafMetricValue, oldSummary.getMaxLeafMetricValue());
+            numberOfLeaves = Math.max(numberOfLeaves, oldSummary.getNumberOfLeaves());
+        }
+
+        int[] choices = new int[childMetricValues.size()];
+        double[] metricValues = new double[childMetricValues.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Double> entry : childMetricValues.entrySet()) {
+            choices[i] = entry.getKey();
+            metricValues[i] = entry.getValue();
+            i++;
+        }
+        subtreeRoot.collapse(new TrieSummary(
+                (oldSummary != null ? oldSummary.getNumberOfPrunedNodes() : 0) + numberOfRemovedNodes
+                        + numberOfNestedPrunedNodes,
+                numberOfLeaves, maxLeafMetricValue, choices, metricValues));
+    }
+
+    public TrieNodeStore getNodeStore() {
+        return nodeStore;
+    }
+
+    public void setNodeStore(TrieNodeStore nodeStore) {
+        this.nodeStore = nodeStore;
+    }
+
+    /**
+     * Starts to track changed nodes for {@link TrieExporter}. All existing nodes count as changed.
+     */
+    void enableChangeTracking() {
+        changedNodes = new LinkedHashMap<>();
+        removedNodeIds = new ArrayList<>();
+        TrieTraversal.depthFirst(root, node -> {
+            changedNodes.put(node.getId(), node);
+            return true;
+        });
+    }
+
+    void markChanged(TrieNode node) {
+        if (changedNodes != null) {
+            changedNodes.put(node.getId(), node);
+        }
+    }
+
+    void markRemoved(TrieNode node) {
+        if (changedNodes != null) {
+            changedNodes.remove(node.getId());
+            removedNodeIds.add(node.getId());
+        }
+    }
+
+    Collection<TrieNode> drainChangedNodes() {
+        Collection<TrieNode> nodes = changedNodes.values();
+        changedNodes = new LinkedHashMap<>();
+        return nodes;
+    }
+
+    List<Integer> drainRemovedNodeIds() {
+        List<Integer> ids = removedNodeIds;
+        removedNodeIds = new ArrayList<>();
+        return ids;
+    }
+
+    public int getAccessEpoch() {
+        return accessEpoch;
+    }
+
+    public void advanceAccessEpoch() {
+        accessEpoch++;
+    }
+
+    /* Traversal state of a node during paging. */
+    private static final class PageOutFrame {
+        final TrieNode node;
+        final Iterator<TrieNode> children;
+        final boolean cold;
+        boolean descendantsCold = true;
+
+        PageOutFrame(TrieNode node, int hotEpoch) {
+            this.node = node;
+            this.children = node.hasPagedOutChildren() ? Collections.emptyIterator() : node.getChildren().iterator();
+            this.cold = !node.isEnabled() && node.getLastAccess() < hotEpoch && !node.hasPotentialForExploration();
+        }
+    }
+
+    /**
+     * Pages out all maximal subtrees, whose nodes are not enabled, have no potential for exploration, and were not
+     * traversed in the last hotEpochs access epochs. The root of such a subtree stays on the heap and faults its
+     * children in when they are accessed again.
+     * 
+     * @return number of paged out nodes
+     */
+    public int pageOutColdSubtrees(int hotEpochs) {
+        if (root == null || nodeStore == null) {
+            return 0;
+        }
+        int pagedBefore = nodeStore.getNumberOfPagedNodes();
+        int hotEpoch = accessEpoch - hotEpochs + 1;
+        Deque<PageOutFrame> stack = new ArrayDeque<>();
+        stack.push(new PageOutFrame(root, hotEpoch));
+        while (!stack.isEmpty()) {
+            PageOutFrame frame = stack.peek();
+            if (frame.children.hasNext()) {
+                stack.push(new PageOutFrame(frame.children.next(), hotEpoch));
+                continue;
+            }
+            stack.pop();
+            PageOutFrame parentFrame = stack.peek();
+            boolean includeInParent = frame.cold && frame.descendantsCold && parentFrame != null;
+            if (parentFrame != null) {
+                parentFrame.descendantsCold &= frame.cold && frame.descendantsCold;
+            }
+            if (!includeInParent && frame.descendantsCold && !frame.node.hasPagedOutChildren()
+                    && frame.node.getNumberOfChildren() > 0) {
+                pageOut(frame.node);
+            }
+        }
+        return nodeStore.getNumberOfPagedNodes() - pagedBefore;
+    }
+
+    /* Writes the subtree below the given node bottom-up, so that every record knows the positions of its children. */
+    private void pageOut(TrieNode subtreeRoot) {
+        Deque<TrieNode> stack = new ArrayDeque<>();
+        Deque<TrieNode> postOrder = new ArrayDeque<>();
+        stack.push(subtreeRoot);
+        while (!stack.isEmpty()) {
+            TrieNode node = stack.pop();
+            if (node.hasPagedOutChildren()) {
+                continue;
+            }
+            postOrder.push(node);
             for (TrieNode child : node.getChildren()) {
-                numberOfPaths += countNumberOfPaths(child);
+                stack.push(child);
+            }
+        }
+        while (!postOrder.isEmpty()) {
+            TrieNode node = postOrder.pop();
+            List<TrieNode> children = node.getChildren();
+            if (node.hasPagedOutChildren() || children.isEmpty()) {
+                continue;
+            }
+            for (TrieNode child : children) {
+                trieAnalyzer.removeNode(child);
+            }
+            node.pageOutChildren(nodeStore.writeChildren(children));
+        }
+    }
+
+    /*
+     * Loads all paged out nodes, because the store is not part of the serialized trie. The instruction ids of the nodes
+     * are only valid together with the interning table, so it is stored as well.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        if (root != null && getNumberOfPagedNodes() > 0) {
+            Deque<TrieNode> nodesToVisit = new ArrayDeque<>();
+            nodesToVisit.push(root);
+            while (!nodesToVisit.isEmpty()) {
+                nodesToVisit.addAll(nodesToVisit.pop().getChildren());
             }
-            return numberOfPaths;
         }
+        out.defaultWriteObject();
+        out.writeObject(new ArrayList<>(InstructionIds.getKeys()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        try {
+            InstructionIds.restore((List<String>) in.readObject());
+        } catch (IllegalStateException e) {
+            throw new InvalidObjectException("Instruction ids of the trie do not match: " + e.getMessage());
+        }
+    }
+
+    public String getStatistics() {
+        return idGenerator.get() + "," + trieAnalyzer.getStatistics();
+    }
+
+    public int getNumberOfPaths() {
+        long[] numberOfPaths = TrieTraversal.reduce(root, () -> new long[1], (paths, node) -> {
+            if (node.getType().equals(TrieNodeType.LEAF_NODE)) {
+                paths[0]++;
+            } else if (node.getSummary() != null) {
+                // Rebuilt children are a subset of the pruned paths.
+                paths[0] += node.getSummary().getNumberOfLeaves();
+            }
+        }, (paths, otherPaths) -> {
+            paths[0] += otherPaths[0];
+            return paths;
+        }, node -> !node.getType().equals(TrieNodeType.LEAF_NODE) && node.getSummary() == null,
+                useParallelTraversal());
+        return (int) numberOfPaths[0];
+    }
+
+    /* Faulting in paged out nodes is not thread-safe. */
+    private boolean useParallelTraversal() {
+        return getNumberOfLiveNodes() >= PARALLEL_TRAVERSAL_THRESHOLD && getNumberOfPagedNodes() == 0;
     }
 
     public TrieAnalyzer getAnalyzer() {
@@ -0,0 +1,495 @@
+package edu.cmu.sv.badger.trie;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Exports the trie as graph in a background thread. The exploration only copies the nodes that changed since the last
+ * snapshot, the filtering and writing happens in the exporter thread, which keeps a compact copy of the exported nodes.
+ *
+ * The json format appends one line per changed or removed node to trie.jsonl, i.e. only the deltas are written. The dot
+ * and graphml formats write the current state of the exported nodes into one file per snapshot label. The top n
+ * selection is maintained on every change, so that a snapshot only costs its changed and removed nodes.
+ */
+public class TrieExporter implements Runnable {
+
+    public static final String FORMAT_DOT = "dot";
+    public static final String FORMAT_GRAPHML = "graphml";
+    public static final String FORMAT_JSON = "json";
+
+    public static final String NODES_ALL = "all";
+    public static final String NODES_ENABLED = "enabled";
+    public static final String NODES_FRONTIER = "frontier";
+
+    /* Snapshots are skipped while this many are pending, the changes are then part of the next snapshot. */
+    private static final int MAX_PENDING_SNAPSHOTS = 8;
+
+    /* Order of the top n selection, ties are broken by id so that every record has its own place. */
+    private static final Comparator<NodeRecord> BY_METRIC_VALUE = Comparator
+            .<NodeRecord> comparingDouble(
+                    record -> record.metricValue != null ? record.metricValue : Double.NEGATIVE_INFINITY)
+            .thenComparingInt(record -> record.id);
+
+    /* Immutable copy of the exported attributes of a node. */
+    private static final class NodeRecord {
+        final int id;
+        final int parentId;
+        final int choice;
+        final int depth;
+        final String methodName;
+        final int lineNumber;
+        final int offset;
+        final int bytecode;
+        final int maximumNumberOfChildren;
+        final TrieNodeType type;
+        final Double metricValue;
+        final boolean enabled;
+        final boolean needsExploration;
+        final boolean completed;
+        final boolean frontier;
+        final boolean newBranches;
+        final boolean insideSubtree;
+
+        NodeRecord(TrieNode node, boolean insideSubtree) {
+            this.id = node.getId();
+            this.parentId = node.getParent() != null ? node.getParent().getId() : -1;
+            this.choice = node.getChoice();
+            this.depth = node.getDepth();
+            this.methodName = node.getMethodName();
+            this.lineNumber = node.getLineNumber();
+            this.offset = node.getOffset();
+            this.bytecode = node.getBytcode();
+            this.maximumNumberOfChildren = node.getMaximumNumberOfChildren();
+            this.type = node.getType();
+            this.metricValue = node.getMetricValue();
+            this.enabled = node.isEnabled();
+            this.needsExploration = node.needsExploration();
+            this.completed = node.isCompleted();
+            this.frontier = node.getType() == TrieNodeType.FRONTIER_NODE || node.hasPotentialForExploration();
+            this.newBranches = node.canExposeNewBranches();
+            this.insideSubtree = insideSubtree;
+        }
+    }
+
+    private static final class Snapshot {
+        final long number;
+        final String label;
+        final long timeMillis;
+        final List<NodeRecord> changedNodes;
+        final List<Integer> removedNodeIds;
+
+        Snapshot(long number, String label, List<NodeRecord> changedNodes, List<Integer> removedNodeIds) {
+            this.number = number;
+            this.label = label;
+            this.timeMillis = System.currentTimeMillis();
+            this.changedNodes = changedNodes;
+            this.removedNodeIds = removedNodeIds;
+        }
+    }
+
+    private final String format;
+    private final String outputPrefix;
+    private final Integer minDepth;
+    private final Integer maxDepth;
+    private final Integer subtreeRootId;
+    private final String nodes;
+    private final int topN;
+
+    private final ConcurrentLinkedQueue<Snapshot> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numberOfPendingSnapshots = new AtomicInteger(0);
+    private final Thread thread;
+    private volatile boolean running = true;
+    private long numberOfSnapshots = 0;
+
+    /*
+     * State of the exporter thread: exported nodes by id, for top n the selected and the other exported nodes, and the
+     * nodes already written to the json deltas.
+     */
+    private final Map<Integer, NodeRecord> exportedNodes = new LinkedHashMap<>();
+    private final TreeSet<NodeRecord> topNodes = new TreeSet<>(BY_METRIC_VALUE);
+    private final TreeSet<NodeRecord> otherNodes = new TreeSet<>(BY_METRIC_VALUE);
+    private final Set<Integer> writtenNodeIds = new HashSet<>();
+    private Writer jsonWriter;
+
+    /**
+     * @param outputPrefix
+     *            - path prefix of the output files, e.g. "trie"
+     * @param minDepth
+     *            - minimum depth of exported nodes, null for no limit
+     * @param maxDepth
+     *            - maximum depth of exported nodes, null for no limit
+     * @param subtreeRootId
+     *            - id of the node whose subtree is exported, null for the complete trie
+     * @param nodes
+     *            - one of NODES_ALL, NODES_ENABLED, NODES_FRONTIER
+     * @param topN
+     *            - only export the n nodes with the highest metric value, 0 for all
+     */
+    public TrieExporter(String format, String outputPrefix, Integer minDepth, Integer maxDepth, Integer subtreeRootId,
+            String nodes, int topN) {
+        this.format = format;
+        this.outputPrefix = outputPrefix;
+        this.minDepth = minDepth;
+        this.maxDepth = maxDepth;
+        this.subtreeRootId = subtreeRootId;
+        this.nodes = nodes;
+        this.topN = topN;
+        if (format.equals(FORMAT_JSON)) {
+            File jsonFile = new File(outputPrefix + ".jsonl");
+            jsonFile.delete();
+            try {
+                jsonWriter = new BufferedWriter(new FileWriter(jsonFile));
+            } catch (IOException e) {
+                throw new RuntimeException("[ERROR] Unable to initialize: " + jsonFile, e);
+            }
+        }
+        this.thread = new Thread(this, "badger-trie-exporter");
+        this.thread.setDaemon(true);
+        this.thread.start();
+
+        // SymExe runs until it gets killed, so make sure that the pending snapshots get written.
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+    }
+
+    /**
+     * Starts to track the changes of the given trie. All existing nodes are part of the first snapshot.
+     */
+    public void attach(Trie trie) {
+        trie.enableChangeTracking();
+    }
+
+    /**
+     * Hands the nodes that changed since the last snapshot to the exporter thread. Never blocks; if the exporter thread
+     * is behind, the changes stay tracked for the next snapshot. Must be called on the thread that modifies the trie.
+     */
+    public void snapshot(Trie trie, String label) {
+        if (numberOfPendingSnapshots.get() >= MAX_PENDING_SNAPSHOTS) {
+            return;
+        }
+        Collection<TrieNode> changedNodes = trie.drainChangedNodes();
+        List<Integer> removedNodeIds = trie.drainRemovedNodeIds();
+        Map<Integer, Boolean> insideSubtree = new HashMap<>();
+        List<NodeRecord> records = new ArrayList<>(changedNodes.size());
+        for (TrieNode node : changedNodes) {
+            records.add(new NodeRecord(node, isInsideSubtree(node, insideSubtree)));
+        }
+        numberOfPendingSnapshots.incrementAndGet();
+        queue.offer(new Snapshot(numberOfSnapshots++, label, records, removedNodeIds));
+        LockSupport.unpark(thread);
+    }
+
+    /* Walks up to the subtree root, the results for the visited ancestors are memorized for this snapshot. */
+    private boolean isInsideSubtree(TrieNode node, Map<Integer, Boolean> memo) {
+        if (subtreeRootId == null) {
+            return true;
+        }
+        List<Integer> path = new ArrayList<>();
+        Boolean result = null;
+        TrieNode current = node;
+        while (current != null && result == null) {
+            if (current.getId() == subtreeRootId) {
+                result = true;
+            } else {
+                result = memo.get(current.getId());
+                path.add(current.getId());
+                current = current.getParent();
+            }
+        }
+        if (result == null) {
+            result = false;
+        }
+        for (Integer id : path) {
+            memo.put(id, result);
+        }
+        return result;
+    }
+
+    private boolean matchesFilter(NodeRecord record) {
+        if (!record.insideSubtree) {
+            return false;
+        }
+        if ((minDepth != null && record.depth < minDepth) || (maxDepth != null && record.depth > maxDepth)) {
+            return false;
+        }
+        if (nodes.equals(NODES_ENABLED)) {
+            return record.enabled;
+        } else if (nodes.equals(NODES_FRONTIER)) {
+            return record.frontier;
+        }
+        return true;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            LockSupport.park(this);
+            writePendingSnapshots();
+        }
+        writePendingSnapshots();
+    }
+
+    private void writePendingSnapshots() {
+        Snapshot snapshot;
+        Set<String> changedLabels = new LinkedHashSet<>();
+        while ((snapshot = queue.poll()) != null) {
+            numberOfPendingSnapshots.decrementAndGet();
+            // Selected nodes that changed, mapped to null if they are not selected anymore.
+            Map<Integer, NodeRecord> selectionChanges = new LinkedHashMap<>();
+            for (Integer id : snapshot.removedNodeIds) {
+                removeExportedNode(id, selectionChanges);
+            }
+            for (NodeRecord record : snapshot.changedNodes) {
+                if (matchesFilter(record)) {
+                    putExportedNode(record, selectionChanges);
+                } else {
+                    removeExportedNode(record.id, selectionChanges);
+                }
+            }
+            if (topN > 0) {
+                rebalanceTopNodes(selectionChanges);
+            }
+            try {
+                if (format.equals(FORMAT_JSON)) {
+                    writeJsonDelta(snapshot, selectionChanges);
+                } else {
+                    changedLabels.add(snapshot.label);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        // The graph files show the latest state, so they are only written once for all snapshots of a label.
+        for (String label : changedLabels) {
+            try {
+                writeGraph(label);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void putExportedNode(NodeRecord record, Map<Integer, NodeRecord> selectionChanges) {
+        NodeRecord oldRecord = exportedNodes.put(record.id, record);
+        if (topN <= 0) {
+            selectionChanges.put(record.id, record);
+        } else if (oldRecord != null && topNodes.remove(oldRecord)) {
+            // Stays selected for now, the rebalancing moves it out if its metric value dropped.
+            topNodes.add(record);
+            selectionChanges.put(record.id, record);
+        } else {
+            if (oldRecord != null) {
+                otherNodes.remove(oldRecord);
+            }
+            otherNodes.add(record);
+        }
+    }
+
+    private void removeExportedNode(int id, Map<Integer, NodeRecord> selectionChanges) {
+        NodeRecord oldRecord = exportedNodes.remove(id);
+        if (oldRecord == null) {
+            return;
+        }
+        if (topN <= 0 || topNodes.remove(oldRecord)) {
+            selectionChanges.put(id, null);
+        } else {
+            otherNodes.remove(oldRecord);
+        }
+    }
+
+    /*
+     * Restores the top n selection after changes, the number of moved nodes is bounded by the number of changed and
+     * removed nodes.
+     */
+    private void rebalanceTopNodes(Map<Integer, NodeRecord> selectionChanges) {
+        while (topNodes.size() > topN) {
+            NodeRecord record = topNodes.pollFirst();
+            otherNodes.add(record);
+            selectionChanges.put(record.id, null);
+        }
+        while (topNodes.size() < topN && !otherNodes.isEmpty()) {
+            NodeRecord record = otherNodes.pollLast();
+            topNodes.add(record);
+            selectionChanges.put(record.id, record);
+        }
+        while (!otherNodes.isEmpty() && BY_METRIC_VALUE.compare(otherNodes.last(), topNodes.first()) > 0) {
+            NodeRecord selected = otherNodes.pollLast();
+            NodeRecord dropped = topNodes.pollFirst();
+            topNodes.add(selected);
+            otherNodes.add(dropped);
+            selectionChanges.put(selected.id, selected);
+            selectionChanges.put(dropped.id, null);
+        }
+    }
+
+    private Collection<NodeRecord> selectNodes() {
+        return topN > 0 ? topNodes : exportedNodes.values();
+    }
+
+    private void writeJsonDelta(Snapshot snapshot, Map<Integer, NodeRecord> selectionChanges) throws IOException {
+        jsonWriter.write("{\"snapshot\":" + snapshot.number + ",\"label\":\"" + snapshot.label + "\",\"time\":"
+                + snapshot.timeMillis + "}\n");
+        for (Map.Entry<Integer, NodeRecord> entry : selectionChanges.entrySet()) {
+            NodeRecord record = entry.getValue();
+            if (record != null) {
+                writtenNodeIds.add(record.id);
+                writeJsonNode(record);
+            } else if (writtenNodeIds.remove(entry.getKey())) {
+                // Nodes that were selected and dropped again within the same snapshot were never written.
+                jsonWriter.write("{\"id\":" + entry.getKey() + ",\"removed\":true}\n");
+            }
+        }
+        jsonWriter.flush();
+    }
+
+    private void writeJsonNode(NodeRecord record) throws IOException {
+        jsonWriter.write("{\"id\":" + record.id + ",\"parent\":" + record.parentId + ",\"choice\":" + record.choice
+                + ",\"depth\":" + record.depth + ",\"method\":" + jsonString(record.methodName) + ",\"line\":"
+                + record.lineNumber + ",\"offset\":" + record.offset + ",\"bytecode\":" + record.bytecode
+                + ",\"choices\":" + record.maximumNumberOfChildren + ",\"type\":\"" + record.type.name()
+                + "\",\"score\":" + (record.metricValue != null ? record.metricValue : "null") + ",\"enabled\":"
+                + record.enabled + ",\"explore\":" + record.needsExploration + ",\"completed\":" + record.completed
+                + ",\"frontier\":" + record.frontier + ",\"newBranches\":" + record.newBranches + "}\n");
+    }
+
+    private static String jsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private void writeGraph(String label) throws IOException {
+        Collection<NodeRecord> selectedNodes = selectNodes();
+        Set<Integer> selectedNodeIds = new HashSet<>();
+        for (NodeRecord record : selectedNodes) {
+            selectedNodeIds.add(record.id);
+        }
+        File file = new File(outputPrefix + "-" + label + "." + format);
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try (Writer output = new BufferedWriter(new FileWriter(tmpFile))) {
+            if (format.equals(FORMAT_DOT)) {
+                writeDot(output, selectedNodes, selectedNodeIds);
+            } else {
+                writeGraphML(output, selectedNodes, selectedNodeIds);
+            }
+        }
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void writeDot(Writer output, Collection<NodeRecord> selectedNodes, Set<Integer> selectedNodeIds)
+            throws IOException {
+        output.write("digraph \"\" { \n");
+        for (NodeRecord record : selectedNodes) {
+            output.write(record.id + "[ " + dotStyle(record) + "label=\"id=" + record.id + ", "
+                    + (record.parentId < 0 ? "Root" : record.methodName + ":" + record.lineNumber + ", \n offset="
+                            + record.offset + ", choice=" + record.choice + ", \nbc=" + record.bytecode)
+                    + ", #choices=" + (record.maximumNumberOfChildren == -1 ? "?" : record.maximumNumberOfChildren)
+                    + ", \n score=" + (record.metricValue == null ? "?" : record.metricValue) + ", \n newBranches="
+                    + record.newBranches + "\"];\n");
+        }
+        for (NodeRecord record : selectedNodes) {
+            if (selectedNodeIds.contains(record.parentId)) {
+                output.write(record.parentId + "->" + record.id + (record.enabled ? "[ color=\"red\"];\n" : ";\n"));
+            }
+        }
+        output.write("}");
+    }
+
+    /* Same colors as TriePrintToDot. */
+    private static String dotStyle(NodeRecord record) {
+        if (record.needsExploration) {
+            return record.parentId < 0 ? "color=\"lightblue\" style=\"filled\" fillcolor=\"green\" "
+                    : "color=\"green\" style=\"filled\" ";
+        } else if (record.parentId < 0) {
+            return "color=\"lightblue\" style=\"filled\" ";
+        } else if (record.enabled) {
+            return "color=\"red\" ";
+        } else if (record.type == TrieNodeType.UNSAT_NODE) {
+            return "color=\"yellow\" style=\"filled\" ";
+        } else if (record.type == TrieNodeType.FRONTIER_NODE) {
+            return "color=\"pink\" style=\"filled\" ";
+        } else if (record.type == TrieNodeType.LEAF_NODE) {
+            return "color=\"gray\" style=\"filled\" ";
+        }
+        return "";
+    }
+
+    private void writeGraphML(Writer output, Collection<NodeRecord> selectedNodes, Set<Integer> selectedNodeIds)
+            throws IOException {
+        output.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        output.write("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n");
+        output.write("<key id=\"method\" for=\"node\" attr.name=\"method\" attr.type=\"string\"/>\n");
+        output.write("<key id=\"line\" for=\"node\" attr.name=\"line\" attr.type=\"int\"/>\n");
+        output.write("<key id=\"choice\" for=\"node\" attr.name=\"choice\" attr.type=\"int\"/>\n");
+        output.write("<key id=\"depth\" for=\"node\" attr.name=\"depth\" attr.type=\"int\"/>\n");
+        output.write("<key id=\"type\" for=\"node\" attr.name=\"type\" attr.type=\"string\"/>\n");
+        output.write("<key id=\"score\" for=\"node\" attr.name=\"score\" attr.type=\"double\"/>\n");
+        output.write("<key id=\"enabled\" for=\"node\" attr.name=\"enabled\" attr.type=\"boolean\"/>\n");
+        output.write("<key id=\"frontier\" for=\"node\" attr.name=\"frontier\" attr.type=\"boolean\"/>\n");
+        output.write("<graph id=\"trie\" edgedefault=\"directed\">\n");
+        for (NodeRecord record : selectedNodes) {
+            output.write("<node id=\"n" + record.id + "\">");
+            if (record.methodName != null) {
+                output.write("<data key=\"method\">" + record.methodName.replace("&", "&amp;").replace("<", "&lt;")
+                        .replace(">", "&gt;") + "</data>");
+            }
+            output.write("<data key=\"line\">" + record.lineNumber + "</data><data key=\"choice\">" + record.choice
+                    + "</data><data key=\"depth\">" + record.depth + "</data><data key=\"type\">" + record.type.name()
+                    + "</data>");
+            if (record.metricValue != null) {
+                output.write("<data key=\"score\">" + record.metricValue + "</data>");
+            }
+            output.write("<data key=\"enabled\">" + record.enabled + "</data><data key=\"frontier\">"
+                    + record.frontier + "</data></node>\n");
+        }
+        for (NodeRecord record : selectedNodes) {
+            if (selectedNodeIds.contains(record.parentId)) {
+                output.write("<edge source=\"n" + record.parentId + "\" target=\"n" + record.id + "\"/>\n");
+            }
+        }
+        output.write("</graph>\n</graphml>\n");
+    }
+
+    /**
+     * Writes the pending snapshots and stops the exporter thread.
+     */
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (jsonWriter != null) {
+            try {
+                jsonWriter.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package edu.cmu.sv.badger.trie;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+
+/**
+ * Watches the heap occupancy and reduces the trie if it exceeds the configured threshold. First, fully explored
+ * subtrees are replaced by summary nodes and are rebuilt lazily if an imported input enters them again. If the trie has
+ * a node store and the pruning did not free enough nodes, cold subtrees are paged out to it and faulted in again on
+ * access.
+ */
+public class TrieMemoryGovernor {
+
+    /* Only prune again after the trie has grown by this factor, otherwise every check would traverse the same trie. */
+    private static final double MIN_GROWTH_BETWEEN_PRUNING = 1.1;
+
+    private final double heapThreshold;
+    private final int hotEpochs;
+    private int numberOfNodesAtLastPruning = 0;
+
+    /**
+     * @param heapThreshold
+     *            - fraction of the maximum heap, e.g. 0.8
+     * @param hotEpochs
+     *            - number of recent exploration iterations, whose traversed nodes are kept on the heap
+     */
+    public TrieMemoryGovernor(double heapThreshold, int hotEpochs) {
+        this.heapThreshold = heapThreshold;
+        this.hotEpochs = hotEpochs;
+    }
+
+    /**
+     * Prunes the trie, and pages it out if necessary, if the heap occupancy exceeds the threshold.
+     *
+     * @return number of removed nodes
+     */
+    public int check(Trie trie) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        long maxHeap = heap.getMax() > 0 ? heap.getMax() : Runtime.getRuntime().maxMemory();
+        double occupancy = (double) heap.getUsed() / maxHeap;
+        if (occupancy < heapThreshold) {
+            return 0;
+        }
+        if (trie.getNumberOfLiveNodes() < numberOfNodesAtLastPruning * MIN_GROWTH_BETWEEN_PRUNING) {
+            return 0;
+        }
+        int numberOfNodesBeforePruning = trie.getNumberOfLiveNodes();
+        int numberOfRemovedNodes = trie.pruneCompletedSubtrees();
+        System.out.println("[SPF] heap occupancy " + String.format("%.2f", occupancy) + ", pruned "
+                + numberOfRemovedNodes + " trie nodes, " + trie.getNumberOfLiveNodes() + " nodes left ...");
+
+        /*
+         * The heap is only freed by the next garbage collection, so estimate the occupancy after the pruning under the
+         * assumption that the trie dominates the heap. Completed subtrees are never paged out, which keeps the store
+         * small.
+         */
+        double estimatedOccupancy = numberOfNodesBeforePruning > 0
+                ? occupancy * trie.getNumberOfLiveNodes() / numberOfNodesBeforePruning
+                : occupancy;
+        if (trie.getNodeStore() != null && estimatedOccupancy >= heapThreshold) {
+            int numberOfPagedOutNodes = trie.pageOutColdSubtrees(hotEpochs);
+            numberOfRemovedNodes += numberOfPagedOutNodes;
+            System.out.println("[SPF] estimated heap occupancy " + String.format("%.2f", estimatedOccupancy)
+                    + ", paged out " + numberOfPagedOutNodes + " trie nodes, " + trie.getNumberOfLiveNodes()
+                    + " nodes left on heap, " + trie.getNodeStore().getFileSize() / (1024 * 1024) + " MB in store ...");
+        }
+        numberOfNodesAtLastPruning = trie.getNumberOfLiveNodes();
+        return numberOfRemovedNodes;
+    }
+
+}
@@ -1,5 +1,8 @@
 package edu.cmu.sv.badger.trie;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -7,6 +10,7 @@ import java.util.List;
 import java.util.Map;
 
 import edu.cmu.sv.badger.util.BytecodeUtils;
+import edu.cmu.sv.badger.util.InstructionIds;
 import gov.nasa.jpf.symbc.numeric.PathCondition;
 import gov.nasa.jpf.vm.Instruction;
 
@@ -15,7 +19,10 @@ import gov.nasa.jpf.vm.Instruction;
  */
 public class TrieNode implements Serializable {
 
-    private static final long serialVersionUID = 7526472295634343143L;
+    private static final long serialVersionUID = 7526472295634343144L;
+
+    /* Rough size of a node including its children map and boxed metric value, used for monitoring only. */
+    public static final int ESTIMATED_SIZE_IN_BYTES = 256;
 
     private int id;
     private Trie trie;
@@ -26,11 +33,17 @@ public class TrieNode implements Serializable {
     private String methodName;
     private int lineNumber;
     private int inputSize;
+    private int witnessId = -1; // index of an input in the trie's witness table that reached this node
+    private TrieSummary summary; // only set if the subtree below this node was pruned
+    private boolean rebuilt = false; // node was re-created inside a pruned subtree
+    private long pagedChildrenPosition = -1; // position of the children in the trie store if they were paged out
+    private int numberOfPagedChildren = 0;
+    private int lastAccess; // access epoch of the trie, in which this node was last created or traversed
 
     
     private TrieNodeType type;
-    private int instructionHashCode = -1;
-    private int nextInstructionHashCode = -1;
+    private int instructionId = -1; // id of InstructionIds, stable across JPF runs
+    private int nextInstructionId = -1;
     private int bytecode;
     private int maximumNumberOfChildren = -1;
 
@@ -40,6 +53,7 @@ public class TrieNode implements Serializable {
     private int guidedChoice = -1;
     public void setGuidedChoice(int choice) {
         this.guidedChoice = choice;
+        trie.markChanged(this);
     }
 
     /**
@@ -54,6 +68,7 @@ public class TrieNode implements Serializable {
     private boolean isCompleted = false;
 
     private Double metricValue = 0.0;
+    private double[] metricVector; // values of all objectives for multi-objective analysis, null otherwise
 
     private int depth = -1;
 
@@ -82,25 +97,35 @@ public class TrieNode implements Serializable {
         }
         this.id = trie.getNextId();
         this.inputSize = -1;
+        this.lastAccess = trie.getAccessEpoch();
+        trie.markChanged(this);
+    }
+
+    /* Used to restore paged out nodes. */
+    private TrieNode(Trie trie, TrieNode parent) {
+        this.trie = trie;
+        this.parent = parent;
     }
 
     public TrieNode(Trie trie, int choice, int offset, String methodName, int lineNumber, TrieNode parent, Instruction instruction,
             PathCondition pathCondition, Double metricValue, int inputSize) {
         this(trie, choice, offset, methodName, lineNumber, parent);
         if (instruction != null) {
-            this.instructionHashCode = instruction.hashCode();
+            this.instructionId = InstructionIds.getId(instruction);
             this.bytecode = instruction.getByteCode();
             if (this.parent != null) {
-                if (this.parent.children.size() == 1) {
+                if (this.parent.children().size() == 1) {
                     this.parent.maximumNumberOfChildren = BytecodeUtils.getNumberOfChoices(instruction);
                 }
-                if (this.parent.nextInstructionHashCode == -1) {
-                    this.parent.nextInstructionHashCode = this.instructionHashCode;
+                if (this.parent.nextInstructionId == -1) {
+                    this.parent.nextInstructionId = this.instructionId;
                 }
+                trie.markChanged(this.parent);
             }
         } else {
             this.bytecode = -1;
             this.parent.maximumNumberOfChildren = 0;
+            trie.markChanged(this.parent);
         }
         if (pathCondition == null) {
             this.type = TrieNodeType.UNSAT_NODE;
@@ -118,7 +143,24 @@ public class TrieNode implements Serializable {
     }
 
     public List<TrieNode> getChildren() {
-        return new ArrayList<>(children.values());
+        return new ArrayList<>(children().values());
+    }
+
+    /**
+     * @return number of children, without faulting in paged out children.
+     */
+    public int getNumberOfChildren() {
+        return pagedChildrenPosition >= 0 ? numberOfPagedChildren : children.size();
+    }
+
+    /* All accesses to the children go through here, so that paged out children are faulted in transparently. */
+    private Map<Integer, TrieNode> children() {
+        if (pagedChildrenPosition >= 0) {
+            children = trie.getNodeStore().readChildren(pagedChildrenPosition, this);
+            pagedChildrenPosition = -1;
+            numberOfPagedChildren = 0;
+        }
+        return children;
     }
 
     public void setChildren(Map<Integer, TrieNode> children) {
@@ -126,7 +168,7 @@ public class TrieNode implements Serializable {
     }
 
     public void addChild(TrieNode child) {
-        this.children.put(child.choice, child);
+        this.children().put(child.choice, child);
     }
 
     public int getChoice() {
@@ -146,7 +188,12 @@ public class TrieNode implements Serializable {
     }
 
     public TrieNode getChild(int choice) {
-        return children.get(choice);
+        this.lastAccess = trie.getAccessEpoch();
+        TrieNode child = children().get(choice);
+        if (child != null) {
+            child.lastAccess = this.lastAccess;
+        }
+        return child;
     }
 
     public TrieNodeType getType() {
@@ -155,6 +202,7 @@ public class TrieNode implements Serializable {
 
     public void setType(TrieNodeType type) {
         this.type = type;
+        trie.markChanged(this);
     }
 
     public String getMethodName() {
@@ -176,6 +224,7 @@ public class TrieNode implements Serializable {
     public void setEnabled() {
         this.enabled = true;
         this.trie.addEnabledNode(this);
+        trie.markChanged(this);
     }
 
     public String toString() {
@@ -183,14 +232,31 @@ public class TrieNode implements Serializable {
                 + ":" + metricValue;
     }
 
-    public void compact() {
-        for (TrieNode n : this.getChildren()) {
-            if (!n.isEnabled()) {
-                n.getChildren().clear();
-            } else {
-                n.compact();
+    /**
+     * Removes the subtrees below all disabled nodes in the subtree of this node.
+     * 
+     * @return number of removed nodes
+     */
+    public int compact() {
+        int[] numberOfRemovedNodes = new int[1];
+        TrieTraversal.depthFirst(this, node -> {
+            if (node == this || node.isEnabled()) {
+                return true;
             }
-        }
+            if (node.getNumberOfChildren() > 0) {
+                for (TrieNode child : node.getChildren()) {
+                    TrieTraversal.depthFirst(child, removedNode -> {
+                        trie.getAnalyzer().removeNode(removedNode);
+                        trie.markRemoved(removedNode);
+                        numberOfRemovedNodes[0]++;
+                        return true;
+                    });
+                }
+                node.children = new HashMap<>();
+            }
+            return false;
+        });
+        return numberOfRemovedNodes[0];
     }
 
     public int getBytcode() {
@@ -210,21 +276,25 @@ public class TrieNode implements Serializable {
 
     public void setExplorationNeeded(boolean needsExploration) {
         this.needsExploration = needsExploration;
+        trie.markChanged(this);
     }
 
     public void resetAnnotation() {
         this.enabled = false;
         this.needsExploration = false;
         this.guidedChoice = -1;
+        trie.markChanged(this);
     }
 
     public void setCompleted() {
         this.isCompleted = true;
+        trie.markChanged(this);
     }
     
 
     public void resetComplete() {
         this.isCompleted = false;
+        trie.markChanged(this);
     }
 
     public boolean isCompleted() {
@@ -244,12 +314,41 @@ public class TrieNode implements Serializable {
         return this.metricValue;
     }
 
+    /**
+     * Updates the values of all objectives of a multi-objective analysis. The first objective is also used as metric
+     * value.
+     */
+    public void updateMetricVector(double[] newMetricVector) {
+        this.metricVector = newMetricVector;
+        updateMetricValue(newMetricVector[0]);
+    }
+
+    /**
+     * Sets the values of all objectives without updating the metric value and the position of this node in the
+     * exploration queue.
+     */
+    public void setMetricVector(double[] metricVector) {
+        this.metricVector = metricVector;
+    }
+
+    public double[] getMetricVector() {
+        return this.metricVector;
+    }
+
     public int getInstruction() {
-        return this.instructionHashCode;
+        return this.instructionId;
     }
 
     public int getNextInstruction() {
-        return this.nextInstructionHashCode;
+        return this.nextInstructionId;
+    }
+
+    /**
+     * Called by the analyzer if a new choice was observed for the next instruction of this node, which can change
+     * whether the node can expose new branches.
+     */
+    public void observedChoicesChanged() {
+        trie.markChanged(this);
     }
 
     public boolean canExposeNewBranches() {
@@ -260,8 +359,8 @@ public class TrieNode implements Serializable {
         }
 
         // Check branch coverage for the instruction associated to this node.
-        if (!this.getChildren().isEmpty()) {
-            if (this.trie.getAnalyzer().getObservedChoices(nextInstructionHashCode).size() >= this.getMaximumNumberOfChildren()) {
+        if (this.getNumberOfChildren() > 0) {
+            if (this.trie.getAnalyzer().getNumberOfObservedChoices(nextInstructionId) >= this.getMaximumNumberOfChildren()) {
                 return false;
             }
         } else {
@@ -285,6 +384,11 @@ public class TrieNode implements Serializable {
             return false;
         }
 
+        // Summary nodes represent fully explored subtrees.
+        if (this.summary != null) {
+            return false;
+        }
+
         // We assume complete runs, i.e. leaf nodes are the end of an execution.
         if (this.type.equals(TrieNodeType.LEAF_NODE)) {
             return false;
@@ -304,7 +408,7 @@ public class TrieNode implements Serializable {
 
         // This node may already have more or equal children nodes as its bytecode instruction is supposed to have
         // jumps.
-        if (this.getMaximumNumberOfChildren() <= this.getChildren().size()) {
+        if (this.getMaximumNumberOfChildren() <= this.getNumberOfChildren()) {
             return false;
         }
 
@@ -338,4 +442,175 @@ public class TrieNode implements Serializable {
         return inputSize;
     }
 
+    /**
+     * @return id of the input that was observed to reach this node, or -1 if no input is known yet.
+     */
+    public int getWitnessId() {
+        return witnessId;
+    }
+
+    public void setWitnessId(int witnessId) {
+        this.witnessId = witnessId;
+    }
+
+    /**
+     * @return file name of the input that was observed to reach this node, or null if no input is known yet.
+     */
+    public String getWitnessInput() {
+        return trie.getWitnessInput(witnessId);
+    }
+
+    /**
+     * @return summary of the pruned subtree below this node, or null if the subtree was not pruned.
+     */
+    public TrieSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * Replaces the subtree below this node by the given summary.
+     */
+    public void collapse(TrieSummary summary) {
+        this.summary = summary;
+        this.children = new HashMap<>();
+        trie.markChanged(this);
+    }
+
+    /**
+     * @return true if this node is a summary node or was rebuilt below one, i.e. everything below is already explored.
+     */
+    public boolean isInsidePrunedSubtree() {
+        return summary != null || rebuilt;
+    }
+
+    /**
+     * Marks a node that was re-created inside a pruned subtree. Such nodes were already explored before they were
+     * pruned, so they are marked as completed to not add them to the exploration again.
+     */
+    public void setRebuilt() {
+        this.rebuilt = true;
+        this.isCompleted = true;
+        trie.markChanged(this);
+    }
+
+    public int getLastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * @return true if the children of this node are currently only stored in the trie store.
+     */
+    public boolean hasPagedOutChildren() {
+        return pagedChildrenPosition >= 0;
+    }
+
+    /**
+     * Drops the children from the heap after they were written to the trie store at the given position.
+     */
+    void pageOutChildren(long position) {
+        this.numberOfPagedChildren = children.size();
+        this.pagedChildrenPosition = position;
+        this.children = null;
+    }
+
+    private static final int FLAG_COMPLETED = 1;
+    private static final int FLAG_REBUILT = 2;
+    private static final int FLAG_NEEDS_EXPLORATION = 4;
+    private static final int FLAG_METRIC_VALUE = 8;
+    private static final int FLAG_SUMMARY = 16;
+    private static final int FLAG_METRIC_VECTOR = 32;
+
+    /**
+     * Writes this node for the trie store. The children of this node must already be paged out or empty.
+     */
+    void writeTo(DataOutputStream out, TrieNodeStore store) throws IOException {
+        out.writeInt(id);
+        out.writeInt(choice);
+        out.writeInt(offset);
+        out.writeInt(store.getMethodNameId(methodName));
+        out.writeInt(lineNumber);
+        out.writeInt(inputSize);
+        out.writeInt(witnessId);
+        out.writeByte(type.ordinal());
+        out.writeInt(instructionId);
+        out.writeInt(nextInstructionId);
+        out.writeInt(bytecode);
+        out.writeInt(maximumNumberOfChildren);
+        out.writeInt(guidedChoice);
+        out.writeInt(depth);
+        out.writeInt(lastAccess);
+        int flags = (isCompleted ? FLAG_COMPLETED : 0) | (rebuilt ? FLAG_REBUILT : 0)
+                | (needsExploration ? FLAG_NEEDS_EXPLORATION : 0) | (metricValue != null ? FLAG_METRIC_VALUE : 0)
+                | (summary != null ? FLAG_SUMMARY : 0) | (metricVector != null ? FLAG_METRIC_VECTOR : 0);
+        out.writeByte(flags);
+        if (metricValue != null) {
+            out.writeDouble(metricValue);
+        }
+        if (metricVector != null) {
+            out.writeByte(metricVector.length);
+            for (double value : metricVector) {
+                out.writeDouble(value);
+            }
+        }
+        out.writeLong(pagedChildrenPosition);
+        out.writeInt(numberOfPagedChildren);
+        if (summary != null) {
+            out.writeInt(summary.getNumberOfPrunedNodes());
+            out.writeInt(summary.getNumberOfLeaves());
+            out.writeDouble(summary.getMaxLeafMetricValue());
+            out.writeInt(summary.getChildChoices().length);
+            for (int i = 0; i < summary.getChildChoices().length; i++) {
+                out.writeInt(summary.getChildChoices()[i]);
+                out.writeDouble(summary.getChildMetricValues()[i]);
+            }
+        }
+    }
+
+    static TrieNode readFrom(DataInputStream in, TrieNodeStore store, TrieNode parent) throws IOException {
+        TrieNode node = new TrieNode(parent.trie, parent);
+        node.id = in.readInt();
+        node.choice = in.readInt();
+        node.offset = in.readInt();
+        node.methodName = store.getMethodName(in.readInt());
+        node.lineNumber = in.readInt();
+        node.inputSize = in.readInt();
+        node.witnessId = in.readInt();
+        node.type = TrieNodeType.values()[in.readByte()];
+        node.instructionId = in.readInt();
+        node.nextInstructionId = in.readInt();
+        node.bytecode = in.readInt();
+        node.maximumNumberOfChildren = in.readInt();
+        node.guidedChoice = in.readInt();
+        node.depth = in.readInt();
+        node.lastAccess = in.readInt();
+        int flags = in.readByte();
+        node.isCompleted = (flags & FLAG_COMPLETED) != 0;
+        node.rebuilt = (flags & FLAG_REBUILT) != 0;
+        node.needsExploration = (flags & FLAG_NEEDS_EXPLORATION) != 0;
+        node.metricValue = (flags & FLAG_METRIC_VALUE) != 0 ? in.readDouble() : null;
+        if ((flags & FLAG_METRIC_VECTOR) != 0) {
+            node.metricVector = new double[in.readByte()];
+            for (int i = 0; i < node.metricVector.length; i++) {
+                node.metricVector[i] = in.readDouble();
+            }
+        }
+        node.pagedChildrenPosition = in.readLong();
+        node.numberOfPagedChildren = in.readInt();
+        node.children = node.pagedChildrenPosition >= 0 ? null : new HashMap<>();
+        if ((flags & FLAG_SUMMARY) != 0) {
+            int numberOfPrunedNodes = in.readInt();
+            int numberOfLeaves = in.readInt();
+            double maxLeafMetricValue = in.readDouble();
+            int[] childChoices = new int[in.readInt()];
+            double[] childMetricValues = new double[childChoices.length];
+            for (int i = 0; i < childChoices.length; i++) {
+                childChoices[i] = in.readInt();
+                childMetricValues[i] = in.readDouble();
+            }
+            node.summary = new TrieSummary(numberOfPrunedNodes, numberOfLeaves, maxLeafMetricValue, childChoices,
+                    childMetricValues);
+        }
+        return node;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,183 @@
+package edu.cmu.sv.badger.trie;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memory-mapped file that holds the children of trie nodes, which were paged out from the heap. Every record stores
+ * the children of one node; the children's own children are stored in separate records, so that a paged out subtree is
+ * faulted in level by level when it is accessed again.
+ *
+ * The file is append-only: records of children that were faulted in are not reused. It is deleted when the JVM exits.
+ */
+public class TrieNodeStore {
+
+    private static final int SEGMENT_SIZE = 1 << 26; // 64 MB per mapped segment
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private long writePosition = 0;
+
+    /* Method names are shared by many nodes, so the records only contain their index. */
+    private final List<String> methodNames = new ArrayList<>();
+    private final Map<String, Integer> methodNameIds = new HashMap<>();
+
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+
+    private int numberOfPagedNodes = 0;
+    private long numberOfFaultedRecords = 0;
+
+    public TrieNodeStore(File file) {
+        this.file = file;
+        try {
+            this.randomAccessFile = new RandomAccessFile(file, "rw");
+            this.randomAccessFile.setLength(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create trie store " + file, e);
+        }
+        file.deleteOnExit();
+    }
+
+    /**
+     * Writes the given nodes as one record. The nodes must not have children on the heap anymore.
+     *
+     * @return position of the record
+     */
+    long writeChildren(List<TrieNode> children) {
+        recordBuffer.reset();
+        try {
+            DataOutputStream out = new DataOutputStream(recordBuffer);
+            out.writeInt(children.size());
+            for (TrieNode child : children) {
+                child.writeTo(out, this);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen for in-memory stream
+        }
+        byte[] record = recordBuffer.toByteArray();
+        long position = writePosition;
+        writeBytes(position, intToBytes(record.length));
+        writeBytes(position + 4, record);
+        writePosition += 4 + record.length;
+        numberOfPagedNodes += children.size();
+        return position;
+    }
+
+    /**
+     * Reads the record at the given position and re-creates the nodes as children of the given parent.
+     */
+    Map<Integer, TrieNode> readChildren(long position, TrieNode parent) {
+        byte[] length = new byte[4];
+        readBytes(position, length);
+        byte[] record = new byte[bytesToInt(length)];
+        readBytes(position + 4, record);
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+            int numberOfChildren = in.readInt();
+            Map<Integer, TrieNode> children = new HashMap<>(numberOfChildren * 4 / 3 + 1);
+            for (int i = 0; i < numberOfChildren; i++) {
+                TrieNode child = TrieNode.readFrom(in, this, parent);
+                children.put(child.getChoice(), child);
+            }
+            numberOfPagedNodes -= numberOfChildren;
+            numberOfFaultedRecords++;
+            return children;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt record in trie store " + file + " at " + position, e);
+        }
+    }
+
+    int getMethodNameId(String methodName) {
+        if (methodName == null) {
+            return -1;
+        }
+        Integer id = methodNameIds.get(methodName);
+        if (id == null) {
+            id = methodNames.size();
+            methodNames.add(methodName);
+            methodNameIds.put(methodName, id);
+        }
+        return id;
+    }
+
+    String getMethodName(int id) {
+        return id < 0 ? null : methodNames.get(id);
+    }
+
+    private MappedByteBuffer getSegment(int index) {
+        try {
+            while (segments.size() <= index) {
+                segments.add(randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE,
+                        (long) segments.size() * SEGMENT_SIZE, SEGMENT_SIZE));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map trie store " + file, e);
+        }
+        return segments.get(index);
+    }
+
+    /* Records can span segment boundaries, so they are copied in chunks. */
+    private void writeBytes(long position, byte[] data) {
+        int written = 0;
+        while (written < data.length) {
+            MappedByteBuffer segment = getSegment((int) (position / SEGMENT_SIZE));
+            int offset = (int) (position % SEGMENT_SIZE);
+            int length = Math.min(data.length - written, SEGMENT_SIZE - offset);
+            segment.position(offset);
+            segment.put(data, written, length);
+            written += length;
+            position += length;
+        }
+    }
+
+    private void readBytes(long position, byte[] data) {
+        int read = 0;
+        while (read < data.length) {
+            MappedByteBuffer segment = getSegment((int) (position / SEGMENT_SIZE));
+            int offset = (int) (position % SEGMENT_SIZE);
+            int length = Math.min(data.length - read, SEGMENT_SIZE - offset);
+            segment.position(offset);
+            segment.get(data, read, length);
+            read += length;
+            position += length;
+        }
+    }
+
+    private static byte[] intToBytes(int value) {
+        return new byte[] { (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value };
+    }
+
+    private static int bytesToInt(byte[] bytes) {
+        return ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+    }
+
+    /**
+     * @return number of nodes that are currently only stored in the file.
+     */
+    public int getNumberOfPagedNodes() {
+        return numberOfPagedNodes;
+    }
+
+    public long getNumberOfFaultedRecords() {
+        return numberOfFaultedRecords;
+    }
+
+    public long getFileSize() {
+        return writePosition;
+    }
+
+}
@@ -37,19 +37,18 @@ public class TriePrintToConsole {
 		printNode(n);
 	}
 	
-	static void printNode(TrieNode n){
-		System.out.println("\n Node " + n.hashCode());
-		System.out.println(">>> choice: " + n.getChoice());
-		System.out.println(">>> offset: " + n.getOffset());
-		System.out.println(">>> methodName: " + n.getMethodName());
-		System.out.println(">>> type: " + n.getType());
-		
-		System.out.println("");
-		
-		//print the children's children recursively
-		for(TrieNode child: n.getChildren()){
-			printNode(child);			
-		}
+	static void printNode(TrieNode root){
+		//print the children's children in depth-first order
+		TrieTraversal.depthFirst(root, n -> {
+			System.out.println("\n Node " + n.hashCode());
+			System.out.println(">>> choice: " + n.getChoice());
+			System.out.println(">>> offset: " + n.getOffset());
+			System.out.println(">>> methodName: " + n.getMethodName());
+			System.out.println(">>> type: " + n.getType());
+			
+			System.out.println("");
+			return true;
+		});
 	}
 	
 	public static void main(String[] args){
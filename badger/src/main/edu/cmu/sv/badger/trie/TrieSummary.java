@@ -0,0 +1,61 @@
+package edu.cmu.sv.badger.trie;
+
+import java.io.Serializable;
+
+/**
+ * Aggregated information about a pruned subtree. The summary is attached to the root of the subtree, which stays in
+ * the trie, while all nodes below are removed. The metric values of the direct children are kept, so that the metric
+ * of the summary node can still be computed correctly if some of its children are rebuilt later.
+ */
+public class TrieSummary implements Serializable {
+
+    private static final long serialVersionUID = 2947310536715938610L;
+
+    private final int numberOfPrunedNodes;
+    private final int numberOfLeaves;
+    private final double maxLeafMetricValue;
+    private final int[] childChoices;
+    private final double[] childMetricValues; // NaN for children without metric value, e.g. unsat nodes
+
+    public TrieSummary(int numberOfPrunedNodes, int numberOfLeaves, double maxLeafMetricValue, int[] childChoices,
+            double[] childMetricValues) {
+        this.numberOfPrunedNodes = numberOfPrunedNodes;
+        this.numberOfLeaves = numberOfLeaves;
+        this.maxLeafMetricValue = maxLeafMetricValue;
+        this.childChoices = childChoices;
+        this.childMetricValues = childMetricValues;
+    }
+
+    /**
+     * @return number of removed nodes, including the nodes of nested summaries.
+     */
+    public int getNumberOfPrunedNodes() {
+        return numberOfPrunedNodes;
+    }
+
+    /**
+     * @return number of leaf nodes, i.e. paths, in the pruned subtree.
+     */
+    public int getNumberOfLeaves() {
+        return numberOfLeaves;
+    }
+
+    public double getMaxLeafMetricValue() {
+        return maxLeafMetricValue;
+    }
+
+    /**
+     * @return choices that were observed at the summary node.
+     */
+    public int[] getChildChoices() {
+        return childChoices;
+    }
+
+    /**
+     * @return metric values of the children in the order of {@link #getChildChoices()}.
+     */
+    public double[] getChildMetricValues() {
+        return childMetricValues;
+    }
+
+}
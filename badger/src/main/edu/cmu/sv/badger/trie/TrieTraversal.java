@@ -0,0 +1,159 @@
+package edu.cmu.sv.badger.trie;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Traversals of the trie with explicit stacks. Paths in the trie can be tens of thousands of nodes deep, which is more
+ * than the call stack can take for recursive walks.
+ *
+ * The parallel mode of {@link #reduce} splits the trie into subtrees for the common fork-join pool. It is only meant for
+ * read-only aggregations while the trie is not modified, and it must not be used if children are paged out to the trie
+ * store, because faulting them in modifies the nodes.
+ */
+public final class TrieTraversal {
+
+    /* Subtrees are only forked while the pool has less queued tasks than this, otherwise they are processed inline. */
+    private static final int MAX_SURPLUS_TASKS = 2;
+
+    private TrieTraversal() {
+    }
+
+    public interface Visitor {
+
+        /**
+         * Called before the children of the node are visited.
+         *
+         * @return false to skip the children of this node
+         */
+        boolean enter(TrieNode node);
+
+        /**
+         * Called after all children of the node were visited, or directly after {@link #enter(TrieNode)} if the
+         * children were skipped.
+         */
+        default void exit(TrieNode node) {
+        }
+
+    }
+
+    /* Traversal state of a node, whose children are visited. */
+    private static final class Frame {
+        final TrieNode node;
+        final Iterator<TrieNode> children;
+
+        Frame(TrieNode node, boolean visitChildren) {
+            this.node = node;
+            this.children = visitChildren ? node.getChildren().iterator() : null;
+        }
+    }
+
+    /**
+     * Visits the subtree of the given node in depth-first order.
+     */
+    public static void depthFirst(TrieNode root, Visitor visitor) {
+        if (root == null) {
+            return;
+        }
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(root, visitor.enter(root)));
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            if (frame.children != null && frame.children.hasNext()) {
+                TrieNode child = frame.children.next();
+                stack.push(new Frame(child, visitor.enter(child)));
+            } else {
+                stack.pop();
+                visitor.exit(frame.node);
+            }
+        }
+    }
+
+    /**
+     * Aggregates the nodes of the subtree of the given node in an unspecified order.
+     *
+     * @param identity
+     *            - creates an empty accumulator
+     * @param accumulator
+     *            - adds a node to an accumulator
+     * @param combiner
+     *            - merges two accumulators, only used in parallel mode
+     * @param descend
+     *            - whether the children of a node are part of the aggregation
+     * @param parallel
+     *            - whether the subtrees are aggregated in the common fork-join pool
+     */
+    public static <A> A reduce(TrieNode root, Supplier<A> identity, BiConsumer<A, TrieNode> accumulator,
+            BinaryOperator<A> combiner, Predicate<TrieNode> descend, boolean parallel) {
+        if (root == null) {
+            return identity.get();
+        }
+        ReduceTask<A> task = new ReduceTask<>(root, identity, accumulator, combiner, descend, parallel);
+        return parallel ? ForkJoinPool.commonPool().invoke(task) : task.compute();
+    }
+
+    private static final class ReduceTask<A> extends RecursiveTask<A> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final TrieNode root;
+        private final Supplier<A> identity;
+        private final BiConsumer<A, TrieNode> accumulator;
+        private final BinaryOperator<A> combiner;
+        private final Predicate<TrieNode> descend;
+        private final boolean parallel;
+
+        ReduceTask(TrieNode root, Supplier<A> identity, BiConsumer<A, TrieNode> accumulator, BinaryOperator<A> combiner,
+                Predicate<TrieNode> descend, boolean parallel) {
+            this.root = root;
+            this.identity = identity;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+            this.descend = descend;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected A compute() {
+            A result = identity.get();
+            List<ReduceTask<A>> forkedTasks = new ArrayList<>();
+            Deque<TrieNode> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                TrieNode node = stack.pop();
+                accumulator.accept(result, node);
+                if (!descend.test(node)) {
+                    continue;
+                }
+                List<TrieNode> children = node.getChildren();
+                for (int i = 0; i < children.size(); i++) {
+                    // Keep one child for this task and hand the inner siblings to idle workers.
+                    if (parallel && i > 0 && children.get(i).getNumberOfChildren() > 0
+                            && getSurplusQueuedTaskCount() < MAX_SURPLUS_TASKS) {
+                        ReduceTask<A> task = new ReduceTask<>(children.get(i), identity, accumulator, combiner,
+                                descend, true);
+                        task.fork();
+                        forkedTasks.add(task);
+                    } else {
+                        stack.push(children.get(i));
+                    }
+                }
+            }
+            for (ReduceTask<A> task : forkedTasks) {
+                result = combiner.apply(result, task.join());
+            }
+            return result;
+        }
+
+    }
+
+}
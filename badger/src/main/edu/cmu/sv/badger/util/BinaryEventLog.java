@@ -0,0 +1,211 @@
+package edu.cmu.sv.badger.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import edu.cmu.sv.badger.util.StatisticsEvent.ExportEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.GenerationEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.ImportEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.JPFRunEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.PhaseSummaryEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.SolverCallEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.TrieSnapshotEvent;
+
+/**
+ * Writes all statistic events into one binary file. The file starts with the magic number and the format version,
+ * followed by the records. Each record starts with its type (byte) and its time stamp in milliseconds (long):
+ *
+ * <pre>
+ * STRING      id (int), length (int), value (UTF-8 bytes)
+ * IMPORT      file (UTF), cost (double, NaN if unknown), flags (byte: 2 = score, 4 = duplicate)
+ * GENERATION  file (UTF), pc (int, string id or -1)
+ * EXPORT      kind (byte), tmpFile (UTF), file (UTF), flags (byte: 1 = branch, 2 = score), cost (double)
+ * TRIE        number of values (int), values (long...)
+ * SOLVER      caller (int, string id), result (byte), number of constraints (int, -1 if unknown), number of variables
+ *             (int, -1 if unknown), duration in ns (long)
+ * JPF_RUN     mode (int, string id), duration in ms (long), aborted (boolean)
+ * PHASE       cycle (long), phase (int, string id), cumulative (boolean), count (long), total, p50, p90, p99 and max
+ *             duration in ns (long...)
+ * </pre>
+ *
+ * Path conditions, solver callers, JPF modes and phases are interned: the first occurrence of a value is written as
+ * STRING record and all records refer to its id. Almost every path condition is distinct, so they are only remembered
+ * by their 64-bit digest in a table of the most recently used path conditions, an evicted path condition is written
+ * again with a new id. Use {@link EventLogReader} to convert the file into CSV or JSON.
+ */
+final class BinaryEventLog implements StatisticsSink {
+
+    static final int MAGIC = 0x42444752; // "BDGR"
+    static final byte VERSION = 3;
+
+    static final byte STRING = 0;
+    static final byte IMPORT = 1;
+    static final byte GENERATION = 2;
+    static final byte EXPORT = 3;
+    static final byte TRIE = 4;
+    static final byte SOLVER = 5;
+    static final byte JPF_RUN = 6;
+    static final byte PHASE = 7;
+
+    static final byte FLAG_BRANCH = 1;
+    static final byte FLAG_SCORE = 2;
+    static final byte FLAG_DUPLICATE = 4;
+
+    static final int MAX_INTERNED_PATH_CONDITIONS = 4096;
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> internedStrings = new HashMap<>(); // solver callers, JPF modes and phases
+    private final Map<Long, Integer> internedPathConditions = new LinkedHashMap<Long, Integer>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+            return size() > MAX_INTERNED_PATH_CONDITIONS;
+        }
+    };
+    private int nextStringId = 0;
+
+    BinaryEventLog(String fileName) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    @Override
+    public void write(StatisticsEvent event) throws IOException {
+        if (event instanceof ImportEvent) {
+            ImportEvent e = (ImportEvent) event;
+            writeHeader(IMPORT, e);
+            out.writeUTF(e.file);
+            out.writeDouble(e.cost != null ? e.cost : Double.NaN);
+            out.writeByte((e.betterScore ? FLAG_SCORE : 0) | (e.duplicate ? FLAG_DUPLICATE : 0));
+        } else if (event instanceof GenerationEvent) {
+            GenerationEvent e = (GenerationEvent) event;
+            int pcId = e.pathCondition != null ? internPathCondition(e.pathCondition.toString(), e) : -1;
+            writeHeader(GENERATION, e);
+            out.writeUTF(e.file);
+            out.writeInt(pcId);
+        } else if (event instanceof ExportEvent) {
+            ExportEvent e = (ExportEvent) event;
+            writeHeader(EXPORT, e);
+            out.writeByte(e.kind.ordinal());
+            out.writeUTF(e.tmpFile);
+            out.writeUTF(e.file);
+            out.writeByte((e.newBranch ? FLAG_BRANCH : 0) | (e.betterScore ? FLAG_SCORE : 0));
+            out.writeDouble(e.cost != null ? e.cost : Double.NaN);
+        } else if (event instanceof TrieSnapshotEvent) {
+            TrieSnapshotEvent e = (TrieSnapshotEvent) event;
+            writeHeader(TRIE, e);
+            out.writeInt(e.values.length);
+            for (long value : e.values) {
+                out.writeLong(value);
+            }
+        } else if (event instanceof SolverCallEvent) {
+            SolverCallEvent e = (SolverCallEvent) event;
+            int callerId = intern(e.caller, e);
+            writeHeader(SOLVER, e);
+            out.writeInt(callerId);
+            out.writeByte(e.result.ordinal());
+            out.writeInt(e.constraints);
+            out.writeInt(e.variables);
+            out.writeLong(e.durationNanos);
+        } else if (event instanceof JPFRunEvent) {
+            JPFRunEvent e = (JPFRunEvent) event;
+            int modeId = intern(e.mode, e);
+            writeHeader(JPF_RUN, e);
+            out.writeInt(modeId);
+            out.writeLong(e.durationMillis);
+            out.writeBoolean(e.aborted);
+        } else if (event instanceof PhaseSummaryEvent) {
+            PhaseSummaryEvent e = (PhaseSummaryEvent) event;
+            int phaseId = intern(e.phase, e);
+            writeHeader(PHASE, e);
+            out.writeLong(e.cycle);
+            out.writeInt(phaseId);
+            out.writeBoolean(e.cumulative);
+            out.writeLong(e.count);
+            out.writeLong(e.totalNanos);
+            out.writeLong(e.p50Nanos);
+            out.writeLong(e.p90Nanos);
+            out.writeLong(e.p99Nanos);
+            out.writeLong(e.maxNanos);
+        }
+    }
+
+    private void writeHeader(byte type, StatisticsEvent event) throws IOException {
+        out.writeByte(type);
+        out.writeLong(event.timeMillis);
+    }
+
+    /**
+     * @return the id of the given string, writes a STRING record for its first occurrence.
+     */
+    private int intern(String value, StatisticsEvent event) throws IOException {
+        Integer id = internedStrings.get(value);
+        if (id == null) {
+            id = writeString(value, event);
+            internedStrings.put(value, id);
+        }
+        return id;
+    }
+
+    /**
+     * @return the id of the given path condition, writes a STRING record if it is not in the table of recently used
+     *         path conditions.
+     */
+    private int internPathCondition(String pathCondition, StatisticsEvent event) throws IOException {
+        long digest = digest(pathCondition);
+        Integer id = internedPathConditions.get(digest);
+        if (id == null) {
+            id = writeString(pathCondition, event);
+            internedPathConditions.put(digest, id);
+        }
+        return id;
+    }
+
+    private int writeString(String value, StatisticsEvent event) throws IOException {
+        int id = nextStringId++;
+        writeHeader(STRING, event);
+        out.writeInt(id);
+        writeLongUTF(value);
+        return id;
+    }
+
+    /**
+     * @return 64-bit FNV-1a hash of the characters of the given string.
+     */
+    static long digest(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Path conditions can exceed the 64KB limit of {@link DataOutputStream#writeUTF(String)}, so the STRING records
+     * store the length as int followed by the UTF-8 bytes.
+     */
+    private void writeLongUTF(String value) throws IOException {
+        byte[] bytes = value.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+}
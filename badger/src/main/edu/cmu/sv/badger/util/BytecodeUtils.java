@@ -279,4 +279,38 @@ public class BytecodeUtils {
         return numberOfChoices;
     }
 
+    /**
+     * @return size in bytes of the element accessed by the given array load or store instruction, 0 for all other
+     *         instructions. References are counted with 4 bytes, as for compressed oops.
+     */
+    public static int getArrayElementSize(Instruction instruction) {
+        if (instruction == null) {
+            return 0;
+        }
+        switch (instruction.getByteCode()) {
+        case Opcodes.BALOAD:
+        case Opcodes.BASTORE:
+            return 1;
+        case Opcodes.CALOAD:
+        case Opcodes.CASTORE:
+        case Opcodes.SALOAD:
+        case Opcodes.SASTORE:
+            return 2;
+        case Opcodes.IALOAD:
+        case Opcodes.IASTORE:
+        case Opcodes.FALOAD:
+        case Opcodes.FASTORE:
+        case Opcodes.AALOAD:
+        case Opcodes.AASTORE:
+            return 4;
+        case Opcodes.LALOAD:
+        case Opcodes.LASTORE:
+        case Opcodes.DALOAD:
+        case Opcodes.DASTORE:
+            return 8;
+        default:
+            return 0;
+        }
+    }
+
 }
@@ -0,0 +1,102 @@
+package edu.cmu.sv.badger.util;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+import edu.cmu.sv.badger.util.StatisticsEvent.ExportEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.GenerationEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.ImportEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.PhaseSummaryEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.TrieSnapshotEvent;
+
+/**
+ * Writes the statistic events into the separate text files for import, generation, export, trie statistics, phase
+ * latencies and pc mapping. Every row of a file has the columns of its header, flags are written as true/false and
+ * unknown costs as empty value. Solver calls and JPF runs are not part of this format.
+ */
+final class CsvStatisticsSink implements StatisticsSink {
+
+    private final Writer importWriter;
+    private final Writer pcMappingWriter;
+    private final Writer generationWriter;
+    private final Writer exportWriter;
+    private final Writer trieWriter;
+    private final Writer phaseWriter;
+
+    /**
+     * Opens the given files in append mode, i.e. the headers need to be written before.
+     */
+    CsvStatisticsSink(String importFile, String pcMappingFile, String generationFile, String exportFile,
+            String trieFile, String phaseFile) throws IOException {
+        this.importWriter = new BufferedWriter(new FileWriter(importFile, true));
+        this.pcMappingWriter = new BufferedWriter(new FileWriter(pcMappingFile, true));
+        this.generationWriter = new BufferedWriter(new FileWriter(generationFile, true));
+        this.exportWriter = new BufferedWriter(new FileWriter(exportFile, true));
+        this.trieWriter = new BufferedWriter(new FileWriter(trieFile, true));
+        this.phaseWriter = new BufferedWriter(new FileWriter(phaseFile, true));
+    }
+
+    @Override
+    public void write(StatisticsEvent event) throws IOException {
+        long time = event.timeMillis / 1000L;
+        if (event instanceof ImportEvent) {
+            ImportEvent e = (ImportEvent) event;
+            importWriter.write(time + "," + e.file + "," + toString(e.cost) + "," + e.betterScore + "," + e.duplicate
+                    + "\n");
+        } else if (event instanceof GenerationEvent) {
+            GenerationEvent e = (GenerationEvent) event;
+            generationWriter.write(time + "," + e.file + "\n");
+            if (e.pathCondition != null) {
+                pcMappingWriter.write(time + "," + e.file + "," + e.pathCondition + "\n");
+            }
+        } else if (event instanceof ExportEvent) {
+            ExportEvent e = (ExportEvent) event;
+            exportWriter.write(time + "," + e.kind.name().toLowerCase() + "," + e.tmpFile + "," + e.file + ","
+                    + e.newBranch + "," + e.betterScore + "," + toString(e.cost) + "\n");
+        } else if (event instanceof TrieSnapshotEvent) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(time);
+            for (long value : ((TrieSnapshotEvent) event).values) {
+                sb.append(',').append(value);
+            }
+            trieWriter.write(sb.append('\n').toString());
+        } else if (event instanceof PhaseSummaryEvent) {
+            PhaseSummaryEvent e = (PhaseSummaryEvent) event;
+            phaseWriter.write(time + "," + e.cycle + "," + e.phase + "," + (e.cumulative ? "total" : "cycle") + ","
+                    + e.count + "," + toMillis(e.totalNanos) + "," + toMillis(e.p50Nanos) + "," + toMillis(e.p90Nanos)
+                    + "," + toMillis(e.p99Nanos) + "," + toMillis(e.maxNanos) + "\n");
+        }
+    }
+
+    private static String toString(Double cost) {
+        return cost != null ? cost.toString() : "";
+    }
+
+    private static String toMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        importWriter.flush();
+        pcMappingWriter.flush();
+        generationWriter.flush();
+        exportWriter.flush();
+        trieWriter.flush();
+        phaseWriter.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        importWriter.close();
+        pcMappingWriter.close();
+        generationWriter.close();
+        exportWriter.close();
+        trieWriter.close();
+        phaseWriter.close();
+    }
+
+}
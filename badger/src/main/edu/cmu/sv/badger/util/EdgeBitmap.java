@@ -0,0 +1,77 @@
+package edu.cmu.sv.badger.util;
+
+import java.util.Arrays;
+
+/**
+ * Coverage bitmap of the edges in {@link EdgeTrace}, organized like the virgin bits of AFL: one byte per edge, in which
+ * every bit stands for a hit count bucket that was not observed yet. A fresh map is all 0xFF, covered buckets clear
+ * their bit. The edges are numbered by SymExe, so the map cannot be compared with the bitmap of the fuzzer.
+ */
+public class EdgeBitmap {
+
+    public static final int MAP_SIZE = 1 << 16;
+
+    /* Maps raw hit counts to AFL's buckets 1, 2, 3, 4-7, 8-15, 16-31, 32-127, 128+. */
+    private static final byte[] COUNT_CLASS = new byte[256];
+    static {
+        COUNT_CLASS[0] = 0;
+        COUNT_CLASS[1] = 1;
+        COUNT_CLASS[2] = 2;
+        COUNT_CLASS[3] = 4;
+        for (int i = 4; i < 256; i++) {
+            COUNT_CLASS[i] = (byte) (i < 8 ? 8 : i < 16 ? 16 : i < 32 ? 32 : i < 128 ? 64 : 128);
+        }
+    }
+
+    private final byte[] virginBits = new byte[MAP_SIZE];
+
+    public EdgeBitmap() {
+        Arrays.fill(virginBits, (byte) 0xFF);
+    }
+
+    /**
+     * Replaces the raw hit counts of an execution trace by their buckets.
+     */
+    public static void classify(byte[] trace) {
+        for (int i = 0; i < trace.length; i++) {
+            trace[i] = COUNT_CLASS[trace[i] & 0xFF];
+        }
+    }
+
+    /**
+     * @param classifiedTrace
+     *            - trace with hit count buckets, see {@link #classify(byte[])}
+     * @return true if the trace covers an edge or hit count bucket that is not covered by this map.
+     */
+    public boolean hasNewBits(byte[] classifiedTrace) {
+        for (int i = 0; i < MAP_SIZE; i++) {
+            if ((classifiedTrace[i] & virginBits[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the given trace to the covered edges.
+     */
+    public void merge(byte[] classifiedTrace) {
+        for (int i = 0; i < MAP_SIZE; i++) {
+            virginBits[i] &= ~classifiedTrace[i];
+        }
+    }
+
+    /**
+     * @return number of edges with at least one covered bucket.
+     */
+    public int getNumberOfCoveredEdges() {
+        int covered = 0;
+        for (int i = 0; i < MAP_SIZE; i++) {
+            if (virginBits[i] != (byte) 0xFF) {
+                covered++;
+            }
+        }
+        return covered;
+    }
+
+}
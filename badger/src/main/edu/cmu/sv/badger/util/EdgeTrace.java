@@ -0,0 +1,50 @@
+package edu.cmu.sv.badger.util;
+
+import java.util.Arrays;
+
+/**
+ * Records the branch decisions of one execution as edge trace. Like in AFL, the index of an edge is the location of
+ * the current decision XOR the shifted location of the previous one. The location of a decision is derived from the
+ * key of the instruction in {@link InstructionIds} and the choice, i.e. it is not the block id that the fuzzer
+ * instruments, so the traces can only be compared with each other.
+ */
+public class EdgeTrace {
+
+    private static int[] locationHashes = new int[1024];
+
+    private final byte[] trace = new byte[EdgeBitmap.MAP_SIZE];
+    private int previousLocation = 0;
+
+    public void record(int instructionId, int choice) {
+        if (instructionId < 0) {
+            return;
+        }
+        int location = location(instructionId, choice);
+        int index = location ^ previousLocation;
+        trace[index]++;
+        previousLocation = location >>> 1;
+    }
+
+    private static int location(int instructionId, int choice) {
+        if (instructionId >= locationHashes.length) {
+            locationHashes = Arrays.copyOf(locationHashes, Math.max(locationHashes.length * 2, instructionId + 1));
+        }
+        int hash = locationHashes[instructionId];
+        if (hash == 0) {
+            hash = InstructionIds.getKey(instructionId).hashCode() | 1; // 0 marks a missing hash
+            locationHashes[instructionId] = hash;
+        }
+        int mixed = (hash * 31 + choice) * 0x9E3779B1; // spread the choices over the map
+        return (mixed >>> 16) & (EdgeBitmap.MAP_SIZE - 1);
+    }
+
+    /**
+     * @return copy of the trace with hit count buckets.
+     */
+    public byte[] getClassifiedTrace() {
+        byte[] classified = Arrays.copyOf(trace, trace.length);
+        EdgeBitmap.classify(classified);
+        return classified;
+    }
+
+}
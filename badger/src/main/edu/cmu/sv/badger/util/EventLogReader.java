@@ -0,0 +1,217 @@
+package edu.cmu.sv.badger.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.cmu.sv.badger.util.StatisticsEvent.ExportEvent;
+
+/**
+ * Converts the binary event log written by {@link BinaryEventLog} into CSV or JSON (one object per line). The output is
+ * written to stdout.
+ *
+ * Usage: EventLogReader &lt;event log&gt; [csv|json]
+ */
+public class EventLogReader {
+
+    private final DataInputStream in;
+    private final PrintStream out;
+    private final boolean json;
+    private final List<String> strings = new ArrayList<>();
+
+    public EventLogReader(DataInputStream in, PrintStream out, boolean json) {
+        this.in = in;
+        this.out = out;
+        this.json = json;
+    }
+
+    public void convert() throws IOException {
+        if (in.readInt() != BinaryEventLog.MAGIC) {
+            throw new IOException("Not a Badger event log!");
+        }
+        byte version = in.readByte();
+        if (version != BinaryEventLog.VERSION) {
+            throw new IOException("Unsupported event log version: " + version);
+        }
+
+        try {
+            while (true) {
+                readRecord();
+            }
+        } catch (EOFException e) {
+            // end of log, the last record might be incomplete if Badger was killed
+        }
+        out.flush();
+    }
+
+    private void readRecord() throws IOException {
+        byte type = in.readByte();
+        long time = in.readLong();
+        switch (type) {
+        case BinaryEventLog.STRING:
+            in.readInt(); // ids are assigned in order
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            strings.add(new String(bytes, "UTF-8"));
+            break;
+        case BinaryEventLog.IMPORT: {
+            String file = in.readUTF();
+            double cost = in.readDouble();
+            byte flags = in.readByte();
+            print("import", time, "file", file, "cost", cost, "score", (flags & BinaryEventLog.FLAG_SCORE) != 0,
+                    "duplicate", (flags & BinaryEventLog.FLAG_DUPLICATE) != 0);
+            break;
+        }
+        case BinaryEventLog.GENERATION: {
+            String file = in.readUTF();
+            int pcId = in.readInt();
+            print("generation", time, "file", file, "pc", pcId >= 0 ? strings.get(pcId) : null);
+            break;
+        }
+        case BinaryEventLog.EXPORT: {
+            ExportEvent.Kind kind = ExportEvent.Kind.values()[in.readByte()];
+            String tmpFile = in.readUTF();
+            String file = in.readUTF();
+            byte flags = in.readByte();
+            double cost = in.readDouble();
+            print("export", time, "kind", kind.name().toLowerCase(), "tmpFile", tmpFile, "file", file, "branch",
+                    (flags & BinaryEventLog.FLAG_BRANCH) != 0, "score", (flags & BinaryEventLog.FLAG_SCORE) != 0,
+                    "cost", cost);
+            break;
+        }
+        case BinaryEventLog.TRIE: {
+            int numberOfValues = in.readInt();
+            Object[] fields = new Object[2 * numberOfValues];
+            for (int i = 0; i < numberOfValues; i++) {
+                fields[2 * i] = i < Statistics.TRIE_STATISTICS_COLUMNS.length
+                        ? Statistics.TRIE_STATISTICS_COLUMNS[i]
+                        : "value" + i;
+                fields[2 * i + 1] = in.readLong();
+            }
+            print("trie", time, fields);
+            break;
+        }
+        case BinaryEventLog.SOLVER: {
+            String caller = strings.get(in.readInt());
+            SolverCalls.Result result = SolverCalls.Result.values()[in.readByte()];
+            int constraints = in.readInt();
+            int variables = in.readInt();
+            long durationNanos = in.readLong();
+            print("solver", time, "caller", caller, "result", result.name().toLowerCase(), "constraints", constraints,
+                    "variables", variables, "durationNanos", durationNanos);
+            break;
+        }
+        case BinaryEventLog.JPF_RUN: {
+            String mode = strings.get(in.readInt());
+            long durationMillis = in.readLong();
+            boolean aborted = in.readBoolean();
+            print("jpf", time, "mode", mode, "durationMillis", durationMillis, "aborted", aborted);
+            break;
+        }
+        case BinaryEventLog.PHASE: {
+            long cycle = in.readLong();
+            String phase = strings.get(in.readInt());
+            boolean cumulative = in.readBoolean();
+            print("phase", time, "cycle", cycle, "phase", phase, "scope", cumulative ? "total" : "cycle", "count",
+                    in.readLong(), "totalNanos", in.readLong(), "p50Nanos", in.readLong(), "p90Nanos", in.readLong(),
+                    "p99Nanos", in.readLong(), "maxNanos", in.readLong());
+            break;
+        }
+        default:
+            throw new IOException("Unknown record type: " + type);
+        }
+    }
+
+    /**
+     * Prints one record, the fields are given as name-value pairs.
+     */
+    private void print(String type, long time, Object... fields) {
+        StringBuilder sb = new StringBuilder();
+        if (json) {
+            sb.append("{\"type\":\"").append(type).append("\",\"time\":").append(time);
+            for (int i = 0; i < fields.length; i += 2) {
+                sb.append(",\"").append(fields[i]).append("\":");
+                Object value = fields[i + 1];
+                if (value == null || (value instanceof Double && ((Double) value).isNaN())) {
+                    sb.append("null");
+                } else if (value instanceof String) {
+                    appendJsonString(sb, (String) value);
+                } else {
+                    sb.append(value);
+                }
+            }
+            sb.append('}');
+        } else {
+            sb.append(type).append(',').append(time);
+            for (int i = 0; i < fields.length; i += 2) {
+                Object value = fields[i + 1];
+                sb.append(',');
+                if (value instanceof String) {
+                    appendCsvString(sb, (String) value);
+                } else if (value != null && !(value instanceof Double && ((Double) value).isNaN())) {
+                    sb.append(value);
+                }
+            }
+        }
+        out.println(sb);
+    }
+
+    private static void appendJsonString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static void appendCsvString(StringBuilder sb, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            sb.append(value);
+        } else {
+            sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2 || (args.length == 2 && !args[1].equals("csv")
+                && !args[1].equals("json"))) {
+            System.out.println("Usage: EventLogReader <event log> [csv|json]");
+            return;
+        }
+        boolean json = args.length == 2 && args[1].equals("json");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(args[0])))) {
+            new EventLogReader(in, System.out, json).convert();
+        } catch (IOException e) {
+            throw new RuntimeException("[ERROR] Unable to read event log: " + args[0], e);
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package edu.cmu.sv.badger.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.MethodInfo;
+
+/**
+ * Interning table that maps instructions to dense int ids. The id is determined by the class, the method signature and
+ * the bytecode offset of the instruction, so it stays the same across JPF runs, although every run loads new
+ * Instruction objects with a new identity hash code. The table is only used from the JPF listeners, which run on the
+ * SymExe thread, i.e. there is no synchronization.
+ */
+public class InstructionIds {
+
+    private static final Map<String, Integer> ids = new HashMap<>();
+    private static final List<String> keys = new ArrayList<>();
+
+    /* Ids by instruction index for the methods of the current runs, so that the key is only built once per method. */
+    private static final Map<MethodInfo, int[]> methodCache = new WeakHashMap<>();
+
+    /**
+     * @return stable id of the given instruction, or -1 for null.
+     */
+    public static int getId(Instruction instruction) {
+        if (instruction == null) {
+            return -1;
+        }
+        MethodInfo methodInfo = instruction.getMethodInfo();
+        if (methodInfo == null) {
+            return intern("?:" + instruction.getPosition());
+        }
+        int[] methodIds = methodCache.get(methodInfo);
+        if (methodIds == null) {
+            methodIds = new int[methodInfo.getNumberOfInstructions()];
+            Arrays.fill(methodIds, -1);
+            methodCache.put(methodInfo, methodIds);
+        }
+        int index = instruction.getInstructionIndex();
+        if (index < 0 || index >= methodIds.length) {
+            return intern(methodInfo.getFullName() + ":" + instruction.getPosition());
+        }
+        if (methodIds[index] < 0) {
+            methodIds[index] = intern(methodInfo.getFullName() + ":" + instruction.getPosition());
+        }
+        return methodIds[index];
+    }
+
+    private static int intern(String key) {
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = keys.size();
+            keys.add(key);
+            ids.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * @return number of interned instructions, i.e. all ids are smaller than this value.
+     */
+    public static int size() {
+        return keys.size();
+    }
+
+    /**
+     * @return key of the given id in the form class.method(signature):offset
+     */
+    public static String getKey(int id) {
+        return id < 0 || id >= keys.size() ? null : keys.get(id);
+    }
+
+    /**
+     * @return all keys in the order of their ids, e.g. to store them next to a serialized trie.
+     */
+    public static List<String> getKeys() {
+        return Collections.unmodifiableList(keys);
+    }
+
+    /**
+     * Merges the given keys into the table, so that the ids of a trie from another process are valid in this one. This
+     * is only possible if the ids of this process are a prefix of the stored ids or vice versa, e.g. if the table is
+     * still empty. The table is not changed if the ids cannot be merged.
+     *
+     * @throws IllegalStateException
+     *             if an instruction has already a different id in this process.
+     */
+    public static void restore(List<String> storedKeys) {
+        int numberOfCommonKeys = Math.min(keys.size(), storedKeys.size());
+        for (int i = 0; i < numberOfCommonKeys; i++) {
+            if (!keys.get(i).equals(storedKeys.get(i))) {
+                throw new IllegalStateException("Instruction id " + i + " is already used for " + keys.get(i)
+                        + ", but the stored id belongs to " + storedKeys.get(i));
+            }
+        }
+        for (int i = numberOfCommonKeys; i < storedKeys.size(); i++) {
+            intern(storedKeys.get(i));
+        }
+    }
+
+}
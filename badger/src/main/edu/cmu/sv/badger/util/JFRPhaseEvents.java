@@ -0,0 +1,47 @@
+package edu.cmu.sv.badger.util;
+
+import edu.cmu.sv.badger.util.PhaseTimer.Phase;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events for the SymExe phases. This class is only loaded if the JFR events are enabled, so Badger
+ * still runs on JVMs without JFR (compilation requires JDK 8u262+ or 11+).
+ */
+final class JFRPhaseEvents {
+
+    @Name("edu.cmu.sv.badger.Phase")
+    @Label("SymExe Phase")
+    @Category("Badger")
+    @Description("Phase of a SymExe cycle")
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Cycle")
+        long cycle;
+    }
+
+    /* Phases can be nested (solving happens during replay), but the same phase is never nested in itself. */
+    private static final PhaseEvent[] openEvents = new PhaseEvent[Phase.values().length];
+
+    static void begin(Phase phase, long cycle) {
+        PhaseEvent event = new PhaseEvent();
+        event.phase = phase.name();
+        event.cycle = cycle;
+        event.begin();
+        openEvents[phase.ordinal()] = event;
+    }
+
+    static void commit(Phase phase) {
+        PhaseEvent event = openEvents[phase.ordinal()];
+        if (event != null) {
+            openEvents[phase.ordinal()] = null;
+            event.commit(); // implicitly ends the event, no-op if there is no recording
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+package edu.cmu.sv.badger.util;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import gov.nasa.jpf.vm.MethodInfo;
+
+/**
+ * Set of methods given by patterns on their qualified name <code>package.Class.method</code>. A pattern can use
+ * <code>*</code> as wildcard, e.g. <code>regexjdk8.*</code> for a package, and can contain a parameter list as in
+ * symbolic.method, e.g. <code>regexjdk8.Pattern.matches(con#con)</code>, which is ignored.
+ */
+public class MethodScope {
+
+    private final String definition;
+    private final Pattern pattern;
+
+    /* Decision per method, because the name is only matched once per JPF run and method. */
+    private final Map<MethodInfo, Boolean> decisions = new IdentityHashMap<>();
+
+    /**
+     * @param patterns
+     *            - comma separated list of patterns
+     */
+    public MethodScope(String patterns) {
+        this.definition = patterns;
+        StringBuilder regex = new StringBuilder();
+        for (String methodPattern : patterns.split(",")) {
+            methodPattern = methodPattern.trim();
+            int parameterStart = methodPattern.indexOf('(');
+            if (parameterStart >= 0) {
+                methodPattern = methodPattern.substring(0, parameterStart);
+            }
+            if (methodPattern.isEmpty()) {
+                continue;
+            }
+            if (regex.length() > 0) {
+                regex.append('|');
+            }
+            String[] parts = methodPattern.split("\\*", -1);
+            for (int i = 0; i < parts.length; i++) {
+                if (i > 0) {
+                    regex.append(".*");
+                }
+                regex.append(Pattern.quote(parts[i]));
+            }
+        }
+        if (regex.length() == 0) {
+            throw new IllegalArgumentException("No method pattern in: " + patterns);
+        }
+        this.pattern = Pattern.compile(regex.toString());
+    }
+
+    public boolean contains(MethodInfo methodInfo) {
+        Boolean contained = decisions.get(methodInfo);
+        if (contained == null) {
+            contained = matches(methodInfo.getClassName() + "." + methodInfo.getName());
+            decisions.put(methodInfo, contained);
+        }
+        return contained;
+    }
+
+    /**
+     * @param qualifiedName
+     *            - method name in the form package.Class.method
+     */
+    boolean matches(String qualifiedName) {
+        return pattern.matcher(qualifiedName).matches();
+    }
+
+    /**
+     * @return new instance with the same patterns, but without the decisions for the methods of a previous JPF run.
+     */
+    public MethodScope copy() {
+        return new MethodScope(definition);
+    }
+
+    @Override
+    public String toString() {
+        return definition;
+    }
+
+}
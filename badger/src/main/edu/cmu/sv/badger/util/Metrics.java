@@ -0,0 +1,389 @@
+package edu.cmu.sv.badger.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import com.sun.net.httpserver.HttpServer;
+
+import edu.cmu.sv.badger.app.BadgerInput;
+
+/**
+ * Live metrics of a running Badger instance. Counters and histograms are updated in constant time by the components
+ * that observe the events, gauges are only evaluated when the metrics are read. The metrics can be exposed via JMX and
+ * via a local HTTP endpoint in the Prometheus text format.
+ *
+ * Gauges read the state of the exploration from another thread without synchronization, i.e. the values are not
+ * necessarily consistent with each other, which is fine for monitoring.
+ */
+public class Metrics {
+
+    private static abstract class Metric {
+        final String name;
+        final String help;
+        final String labels; // Prometheus label set without braces, empty if there is no label
+
+        Metric(String name, String help, String labels) {
+            this.name = name;
+            this.help = help;
+            this.labels = labels;
+        }
+
+        abstract String getType();
+
+        abstract void writePrometheus(StringBuilder sb);
+
+        String getJMXName() {
+            return labels.isEmpty() ? name : name + "_" + labels.replaceAll("[^A-Za-z0-9_]+", "_").replaceAll("_$", "");
+        }
+    }
+
+    public static final class Counter extends Metric {
+        private final AtomicLong value = new AtomicLong();
+
+        Counter(String name, String help) {
+            super(name, help, "");
+        }
+
+        public void inc() {
+            value.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        public long get() {
+            return value.get();
+        }
+
+        @Override
+        String getType() {
+            return "counter";
+        }
+
+        @Override
+        void writePrometheus(StringBuilder sb) {
+            sb.append(name).append(' ').append(value.get()).append('\n');
+        }
+    }
+
+    private static final class Gauge extends Metric {
+        private final LongSupplier supplier;
+
+        Gauge(String name, String help, LongSupplier supplier) {
+            super(name, help, "");
+            this.supplier = supplier;
+        }
+
+        @Override
+        String getType() {
+            return "gauge";
+        }
+
+        @Override
+        void writePrometheus(StringBuilder sb) {
+            sb.append(name).append(' ').append(supplier.getAsLong()).append('\n');
+        }
+    }
+
+    /**
+     * Histogram of durations with fixed bucket bounds, observations are recorded in nanoseconds and reported in
+     * seconds.
+     */
+    public static final class Histogram extends Metric {
+        private static final double[] BUCKET_BOUNDS_SECONDS = { 0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5,
+                1.0, 5.0, 10.0, 30.0, 60.0, 300.0 };
+        private static final long[] BUCKET_BOUNDS_NANOS = new long[BUCKET_BOUNDS_SECONDS.length];
+        static {
+            for (int i = 0; i < BUCKET_BOUNDS_SECONDS.length; i++) {
+                BUCKET_BOUNDS_NANOS[i] = (long) (BUCKET_BOUNDS_SECONDS[i] * 1e9);
+            }
+        }
+
+        // last bucket is +Inf
+        private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_BOUNDS_NANOS.length + 1);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sumNanos = new AtomicLong();
+
+        Histogram(String name, String help, String labels) {
+            super(name, help, labels);
+        }
+
+        public void observeNanos(long nanos) {
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_NANOS.length && nanos > BUCKET_BOUNDS_NANOS[bucket]) {
+                bucket++;
+            }
+            bucketCounts.incrementAndGet(bucket);
+            count.incrementAndGet();
+            sumNanos.addAndGet(nanos);
+        }
+
+        public void observeMillis(long millis) {
+            observeNanos(millis * 1000000L);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public double getSumSeconds() {
+            return sumNanos.get() / 1e9;
+        }
+
+        @Override
+        String getType() {
+            return "histogram";
+        }
+
+        @Override
+        void writePrometheus(StringBuilder sb) {
+            String labelPrefix = labels.isEmpty() ? "" : labels + ",";
+            long cumulativeCount = 0;
+            for (int i = 0; i < BUCKET_BOUNDS_SECONDS.length; i++) {
+                cumulativeCount += bucketCounts.get(i);
+                sb.append(name).append("_bucket{").append(labelPrefix).append("le=\"")
+                        .append(BUCKET_BOUNDS_SECONDS[i]).append("\"} ").append(cumulativeCount).append('\n');
+            }
+            cumulativeCount += bucketCounts.get(BUCKET_BOUNDS_SECONDS.length);
+            sb.append(name).append("_bucket{").append(labelPrefix).append("le=\"+Inf\"} ").append(cumulativeCount)
+                    .append('\n');
+            String labelSet = labels.isEmpty() ? "" : "{" + labels + "}";
+            sb.append(name).append("_sum").append(labelSet).append(' ')
+                    .append(String.format(Locale.ROOT, "%.6f", getSumSeconds())).append('\n');
+            sb.append(name).append("_count").append(labelSet).append(' ').append(count.get()).append('\n');
+        }
+    }
+
+    private static final List<Metric> metrics = new CopyOnWriteArrayList<>();
+    private static final Map<String, Histogram> jpfRunHistograms = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> solverCallHistograms = new ConcurrentHashMap<>();
+
+    /* Metrics that are updated by the Badger components. */
+    public static final Counter IMPORTED_INPUTS = counter("badger_imported_inputs_total",
+            "Input files imported from the fuzzer.");
+    public static final Counter DUPLICATE_INPUTS = counter("badger_duplicate_inputs_total",
+            "Input files skipped because the same input was already executed.");
+    public static final Counter DUPLICATE_PATHS = counter("badger_duplicate_paths_total",
+            "Executed inputs that followed a path, which was already executed by another input.");
+    public static final Counter GENERATED_INPUTS = counter("badger_generated_inputs_total",
+            "Input files generated from solved path conditions.");
+    public static final Counter EXPORTED_INPUTS = counter("badger_exported_inputs_total",
+            "Input files exported to the fuzzer.");
+    public static final Counter SKIPPED_EXPORTS = counter("badger_skipped_exports_total",
+            "Inputs with new behavior that were not exported, because they cover no new edges.");
+    public static final Counter SKIPPED_DUPLICATE_EXPORTS = counter("badger_skipped_duplicate_exports_total",
+            "Inputs with new behavior that were not exported, because another input already followed their path.");
+    public static final Counter HANG_INPUTS = counter("badger_hang_inputs_total",
+            "Input files whose execution exceeded the execution budget.");
+    public static final Counter HIGHSCORES = counter("badger_highscores_total", "Executions with a new highscore.");
+    public static final Counter UNSAT_SOLVER_CALLS = counter("badger_unsat_solver_calls_total",
+            "Constraint solver calls with an unsatisfiable result.");
+    public static final Counter FAILED_SOLVER_CALLS = counter("badger_failed_solver_calls_total",
+            "Constraint solver calls that failed with an exception, e.g. a timeout.");
+
+    static {
+        gauge("badger_heap_used_bytes", "Used heap of the JVM.",
+                () -> ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+    }
+
+    private static HttpServer httpServer;
+
+    public static Counter counter(String name, String help) {
+        Counter counter = new Counter(name, help);
+        metrics.add(counter);
+        return counter;
+    }
+
+    public static void gauge(String name, String help, LongSupplier supplier) {
+        metrics.add(new Gauge(name, help, supplier));
+    }
+
+    public static Histogram histogram(String name, String help, String labels) {
+        Histogram histogram = new Histogram(name, help, labels);
+        metrics.add(histogram);
+        return histogram;
+    }
+
+    /**
+     * @return histogram of the JPF run times for the given mode.
+     */
+    public static Histogram jpfRun(String mode) {
+        Histogram histogram = jpfRunHistograms.get(mode);
+        if (histogram == null) {
+            synchronized (jpfRunHistograms) {
+                histogram = jpfRunHistograms.get(mode);
+                if (histogram == null) {
+                    histogram = histogram("badger_jpf_run_seconds", "Duration of JPF runs by mode.",
+                            "mode=\"" + mode + "\"");
+                    jpfRunHistograms.put(mode, histogram);
+                }
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * @return histogram of the constraint solver latency for the given caller, see {@link SolverCalls.Caller}.
+     */
+    public static Histogram solverCall(String caller) {
+        Histogram histogram = solverCallHistograms.get(caller);
+        if (histogram == null) {
+            synchronized (solverCallHistograms) {
+                histogram = solverCallHistograms.get(caller);
+                if (histogram == null) {
+                    histogram = histogram("badger_solver_call_seconds", "Latency of constraint solver calls by caller.",
+                            "caller=\"" + caller + "\"");
+                    solverCallHistograms.put(caller, histogram);
+                }
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text format.
+     */
+    public static String toPrometheusText() {
+        StringBuilder sb = new StringBuilder();
+        Set<String> describedNames = new HashSet<>();
+        // Metrics with the same name but different labels need to be reported as one group.
+        List<Metric> sortedMetrics = new ArrayList<>(metrics);
+        sortedMetrics.sort((m1, m2) -> m1.name.compareTo(m2.name));
+        for (Metric metric : sortedMetrics) {
+            if (describedNames.add(metric.name)) {
+                sb.append("# HELP ").append(metric.name).append(' ').append(metric.help).append('\n');
+                sb.append("# TYPE ").append(metric.name).append(' ').append(metric.getType()).append('\n');
+            }
+            metric.writePrometheus(sb);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Starts the configured endpoints. The HTTP endpoint only binds to the loopback address.
+     */
+    public static void start(BadgerInput input) {
+        if (input.metricsJMX) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(),
+                        new ObjectName("edu.cmu.sv.badger:type=Metrics"));
+            } catch (Exception e) {
+                throw new RuntimeException("[ERROR] Unable to register metrics MBean", e);
+            }
+        }
+        if (input.metricsPort > 0) {
+            try {
+                httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                        input.metricsPort), 0);
+            } catch (IOException e) {
+                throw new RuntimeException("[ERROR] Unable to start metrics endpoint on port " + input.metricsPort,
+                        e);
+            }
+            httpServer.createContext("/metrics", exchange -> {
+                byte[] response = toPrometheusText().getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(response);
+                }
+            });
+            httpServer.start(); // uses the default executor, i.e. the thread of the server
+            System.out.println("Metrics available at http://localhost:" + input.metricsPort + "/metrics");
+        }
+    }
+
+    /**
+     * Exposes every counter and gauge as attribute, and the count and sum of every histogram.
+     */
+    private static final class MetricsMBean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            for (Metric metric : metrics) {
+                String jmxName = metric.getJMXName();
+                if (metric instanceof Histogram) {
+                    if (attribute.equals(jmxName + "_count")) {
+                        return ((Histogram) metric).getCount();
+                    } else if (attribute.equals(jmxName + "_sum")) {
+                        return ((Histogram) metric).getSumSeconds();
+                    }
+                } else if (attribute.equals(jmxName)) {
+                    return metric instanceof Counter ? ((Counter) metric).get()
+                            : ((Gauge) metric).supplier.getAsLong();
+                }
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // skip unknown attributes
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (Metric metric : metrics) {
+                String jmxName = metric.getJMXName();
+                if (metric instanceof Histogram) {
+                    attributes.add(new MBeanAttributeInfo(jmxName + "_count", "long", metric.help, true, false,
+                            false));
+                    attributes.add(new MBeanAttributeInfo(jmxName + "_sum", "double", metric.help + " (seconds)",
+                            true, false, false));
+                } else {
+                    attributes.add(new MBeanAttributeInfo(jmxName, "long", metric.help, true, false, false));
+                }
+            }
+            return new MBeanInfo(Metrics.class.getName(), "Badger metrics",
+                    attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, null, null);
+        }
+    }
+
+}
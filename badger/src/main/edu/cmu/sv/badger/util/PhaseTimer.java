@@ -0,0 +1,111 @@
+package edu.cmu.sv.badger.util;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import edu.cmu.sv.badger.app.BadgerInput;
+
+/**
+ * Measures the latency of the phases of a SymExe cycle. Each phase has a histogram for the current cycle and one for
+ * the complete run, which are reported at the end of every cycle. The phases are only measured on the SymExe thread
+ * (the solving happens inside the JPF run of the replay phase), i.e. there is no synchronization.
+ *
+ * If enabled, every measured phase is also emitted as Java Flight Recorder event, so that the phases appear next to
+ * GC and thread activity in the recording.
+ */
+public class PhaseTimer {
+
+    public enum Phase {
+        REPLAY_BSE, // complete replay and bounded symbolic execution, includes SOLVING
+        SOLVING, // solving of new path conditions during BSE
+        INPUT_GENERATION, // generation of input files from the solutions
+        INPUT_PROCESSING, // IOUtils.processInput for imported and generated files
+        IMPORT_RUN, // symcrete execution of an input from the fuzzer
+        REIMPORT_RUN; // symcrete execution of a generated input
+    }
+
+    private static final Map<Phase, LatencyHistogram> cycleHistograms = new EnumMap<>(Phase.class);
+    private static final Map<Phase, LatencyHistogram> totalHistograms = new EnumMap<>(Phase.class);
+    private static final Map<Phase, Metrics.Histogram> metrics = new EnumMap<>(Phase.class);
+    static {
+        for (Phase phase : Phase.values()) {
+            cycleHistograms.put(phase, new LatencyHistogram());
+            totalHistograms.put(phase, new LatencyHistogram());
+            metrics.put(phase, Metrics.histogram("badger_phase_seconds", "Duration of the SymExe phases.",
+                    "phase=\"" + phase.name() + "\""));
+        }
+    }
+
+    private static boolean useJFR = false;
+    private static long cycle = 0;
+
+    public static void init(BadgerInput input) {
+        useJFR = input.usePhaseJFREvents && isJFRAvailable();
+        if (input.usePhaseJFREvents && !useJFR) {
+            System.out.println("[WARNING] Java Flight Recorder is not available, phase events are disabled.");
+        }
+    }
+
+    /* Checked before JFRPhaseEvents gets loaded, because it cannot be loaded without JFR. */
+    private static boolean isJFRAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Marks the start of the given phase.
+     *
+     * @return start time in nanoseconds, which needs to be passed to {@link #stop(Phase, long)}.
+     */
+    public static long start(Phase phase) {
+        if (useJFR) {
+            JFRPhaseEvents.begin(phase, cycle);
+        }
+        return System.nanoTime();
+    }
+
+    public static void stop(Phase phase, long startNanos) {
+        long duration = System.nanoTime() - startNanos;
+        if (useJFR) {
+            JFRPhaseEvents.commit(phase);
+        }
+        cycleHistograms.get(phase).record(duration);
+        totalHistograms.get(phase).record(duration);
+        metrics.get(phase).observeNanos(duration);
+    }
+
+    /**
+     * Reports the phase latencies of the finished cycle and of the complete run, and starts a new cycle.
+     */
+    public static void finishCycle(BadgerInput input) {
+        boolean measuredPhases = false;
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram cycleHistogram = cycleHistograms.get(phase);
+            if (cycleHistogram.getCount() == 0) {
+                continue;
+            }
+            measuredPhases = true;
+            LatencyHistogram totalHistogram = totalHistograms.get(phase);
+            System.out.println("[SPF] phase " + phase.name().toLowerCase() + ": cycle " + summarize(cycleHistogram)
+                    + ", total " + summarize(totalHistogram));
+            Statistics.appendPhaseStatistics(input, cycle, phase.name(), false, cycleHistogram);
+            Statistics.appendPhaseStatistics(input, cycle, phase.name(), true, totalHistogram);
+            cycleHistogram.reset();
+        }
+        if (measuredPhases) {
+            cycle++;
+        }
+    }
+
+    private static String summarize(LatencyHistogram histogram) {
+        return String.format("n=%d sum=%.1fms p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms", histogram.getCount(),
+                histogram.getTotalNanos() / 1e6, histogram.getPercentileNanos(50) / 1e6,
+                histogram.getPercentileNanos(90) / 1e6, histogram.getPercentileNanos(99) / 1e6,
+                histogram.getMaxNanos() / 1e6);
+    }
+
+}
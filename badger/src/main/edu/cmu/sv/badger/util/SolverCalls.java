@@ -0,0 +1,102 @@
+package edu.cmu.sv.badger.util;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import gov.nasa.jpf.symbc.numeric.Constraint;
+import gov.nasa.jpf.symbc.numeric.ConstraintExpressionVisitor;
+import gov.nasa.jpf.symbc.numeric.PathCondition;
+import gov.nasa.jpf.symbc.numeric.SymbolicInteger;
+import gov.nasa.jpf.symbc.numeric.SymbolicReal;
+
+/**
+ * Records every invocation of the constraint solver with its caller, the size of the path condition, the result and
+ * the wall time, both in the statistics and in the live metrics. Calls made by Badger go through
+ * {@link #solveWithValuation}, the calls that SPF makes itself during the bounded symbolic execution are measured by
+ * the {@link edu.cmu.sv.badger.listener.SolverCallListener}.
+ */
+public class SolverCalls {
+
+    public enum Caller {
+        BSE("bse"), // satisfiability checks of SPF at branches during the bounded symbolic execution
+        OPTIMIZE("optimize"), // solving the path condition of a symcrete execution for the cost optimization
+        NEW_PATH_CONDITION("new-pc"); // solving the path condition of a newly explored trie node
+
+        public final String id;
+
+        private Caller(String id) {
+            this.id = id;
+        }
+    }
+
+    public enum Result {
+        SAT, UNSAT, ERROR;
+    }
+
+    /**
+     * Solves the given path condition and records the call. PathCondition.isReplay is reset to false during the call,
+     * otherwise the PathCondition will always return true.
+     *
+     * @return the solution, null or empty if the path condition is unsatisfiable.
+     */
+    public static Map<String, Object> solveWithValuation(Caller caller, PathCondition pc) {
+        boolean isReplay = PathCondition.isReplay;
+        PathCondition.setReplay(false);
+        Result result = Result.ERROR;
+        long startTime = System.nanoTime();
+        try {
+            Map<String, Object> solution = pc.solveWithValuation();
+            result = solution != null && !solution.isEmpty() ? Result.SAT : Result.UNSAT;
+            return solution;
+        } finally {
+            record(caller, pc, result, System.nanoTime() - startTime);
+            PathCondition.setReplay(isReplay);
+        }
+    }
+
+    /**
+     * Records a solver call that was made outside of Badger.
+     *
+     * @param pc
+     *            - solved path condition, null if unknown
+     */
+    public static void record(Caller caller, PathCondition pc, Result result, long durationNanos) {
+        Metrics.solverCall(caller.id).observeNanos(durationNanos);
+        if (result == Result.UNSAT) {
+            Metrics.UNSAT_SOLVER_CALLS.inc();
+        } else if (result == Result.ERROR) {
+            Metrics.FAILED_SOLVER_CALLS.inc();
+        }
+        // Counting the variables walks the whole path condition, so skip it if nobody reads it.
+        if (Statistics.isRecording()) {
+            int constraints = pc != null ? pc.count() : -1;
+            int variables = pc != null ? countVariables(pc) : -1;
+            Statistics.appendSolverCall(caller.id, result, constraints, variables, durationNanos);
+        }
+    }
+
+    /**
+     * @return the number of distinct numeric symbolic variables in the given path condition.
+     */
+    static int countVariables(PathCondition pc) {
+        final Set<Object> variables = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        ConstraintExpressionVisitor visitor = new ConstraintExpressionVisitor() {
+            @Override
+            public void preVisit(SymbolicInteger expr) {
+                variables.add(expr);
+            }
+
+            @Override
+            public void preVisit(SymbolicReal expr) {
+                variables.add(expr);
+            }
+        };
+        for (Constraint constraint = pc.header; constraint != null; constraint = constraint.and) {
+            constraint.accept(visitor);
+        }
+        return variables.size();
+    }
+
+}
@@ -7,127 +7,204 @@ import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 
 import edu.cmu.sv.badger.app.BadgerInput;
+import edu.cmu.sv.badger.util.StatisticsEvent.ExportEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.GenerationEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.ImportEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.JPFRunEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.PhaseSummaryEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.SolverCallEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.TrieSnapshotEvent;
 
 /**
- * Utility to write statistic files.
+ * Utility to write statistic files. Depending on the configured format, the statistics are either written into separate
+ * text files or into one binary event log, which can be converted with {@link EventLogReader}.
  * 
  * @author Yannic Noller <nolleryc@gmail.com> - YN
  */
 public class Statistics {
 
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_BINARY = "binary";
+
+    /* Columns of the trie statistics (without time). */
+    static final String[] TRIE_STATISTICS_COLUMNS = { "numberOfNodes", "lengthPrioQueue", "instructionMapping",
+            "sizeSolutionQueue", "alreadyReadInputFiles", "dedupLookups", "dedupHits" };
+
+    private static volatile StatisticsWriter writer;
+
     public static void initFiles(BadgerInput input) {
         if (input.printStatistics) {
 
-            File f1 = new File(input.importStatisticsFile);
-            f1.delete();
-            try {
-                f1.createNewFile();
-                Files.write(Paths.get(input.importStatisticsFile), ("# time, file, cost \n").getBytes(),
-                        StandardOpenOption.APPEND);
-            } catch (IOException e) {
-                throw new RuntimeException("[ERROR] Unable to initialize: " + input.importStatisticsFile, e);
+            StatisticsSink sink;
+            if (input.statisticsFormat.equals(FORMAT_BINARY)) {
+                new File(input.eventLogFile).delete();
+                try {
+                    sink = new BinaryEventLog(input.eventLogFile);
+                } catch (IOException e) {
+                    throw new RuntimeException("[ERROR] Unable to initialize: " + input.eventLogFile, e);
+                }
+            } else {
+                sink = initCsvFiles(input);
             }
+            writer = new StatisticsWriter(sink);
 
-            File f2 = new File(input.pcMappingFile);
-            f2.delete();
-            try {
-                f2.createNewFile();
-                Files.write(Paths.get(input.pcMappingFile), ("# time, file, pc \n").getBytes(),
-                        StandardOpenOption.APPEND);
-            } catch (IOException e) {
-                throw new RuntimeException("[ERROR] Unable to initialize: " + input.pcMappingFile, e);
-            }
+            // SymExe runs until it gets killed, so make sure that the pending statistics get written.
+            Runtime.getRuntime().addShutdownHook(new Thread(Statistics::close));
 
-            File f3 = new File(input.generationStatisticsFile);
-            f3.delete();
-            try {
-                f3.createNewFile();
-                Files.write(Paths.get(input.generationStatisticsFile), ("# time, file \n").getBytes(),
-                        StandardOpenOption.APPEND);
-            } catch (IOException e) {
-                throw new RuntimeException("[ERROR] Unable to initialize: " + input.generationStatisticsFile, e);
-            }
+        }
+    }
 
-            File f4 = new File(input.exportStatisticsFile);
-            f4.delete();
-            try {
-                f4.createNewFile();
-                Files.write(Paths.get(input.exportStatisticsFile),
-                        ("# time, tmpFile, file, branch, highscore \n").getBytes(), StandardOpenOption.APPEND);
-            } catch (IOException e) {
-                throw new RuntimeException("[ERROR] Unable to initialize: " + input.exportStatisticsFile, e);
-            }
+    private static StatisticsSink initCsvFiles(BadgerInput input) {
+        File f1 = new File(input.importStatisticsFile);
+        f1.delete();
+        try {
+            f1.createNewFile();
+            Files.write(Paths.get(input.importStatisticsFile),
+                    ("# time, file, cost, score, duplicate \n").getBytes(), StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new RuntimeException("[ERROR] Unable to initialize: " + input.importStatisticsFile, e);
+        }
 
-            File f5 = new File(input.trieStatisticsFile);
-            f5.delete();
-            try {
-                f5.createNewFile();
-                Files.write(Paths.get(input.trieStatisticsFile),
-                        ("# time, numberOfNodes, lengthPrioQueue, instructionMapping, sizeSolutionQueue , alreadyReadInputFiles \n")
-                                .getBytes(),
-                        StandardOpenOption.APPEND);
-            } catch (IOException e) {
-                throw new RuntimeException("[ERROR] Unable to initialize: " + input.trieStatisticsFile, e);
-            }
+        File f2 = new File(input.pcMappingFile);
+        f2.delete();
+        try {
+            f2.createNewFile();
+            Files.write(Paths.get(input.pcMappingFile), ("# time, file, pc \n").getBytes(),
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new RuntimeException("[ERROR] Unable to initialize: " + input.pcMappingFile, e);
+        }
+
+        File f3 = new File(input.generationStatisticsFile);
+        f3.delete();
+        try {
+            f3.createNewFile();
+            Files.write(Paths.get(input.generationStatisticsFile), ("# time, file \n").getBytes(),
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new RuntimeException("[ERROR] Unable to initialize: " + input.generationStatisticsFile, e);
+        }
+
+        File f4 = new File(input.exportStatisticsFile);
+        f4.delete();
+        try {
+            f4.createNewFile();
+            Files.write(Paths.get(input.exportStatisticsFile),
+                    ("# time, kind, tmpFile, file, branch, score, cost \n").getBytes(), StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new RuntimeException("[ERROR] Unable to initialize: " + input.exportStatisticsFile, e);
+        }
 
+        File f5 = new File(input.trieStatisticsFile);
+        f5.delete();
+        try {
+            f5.createNewFile();
+            Files.write(Paths.get(input.trieStatisticsFile),
+                    ("# time, " + String.join(", ", TRIE_STATISTICS_COLUMNS) + " \n").getBytes(),
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new RuntimeException("[ERROR] Unable to initialize: " + input.trieStatisticsFile, e);
+        }
+
+        File f6 = new File(input.phaseStatisticsFile);
+        f6.delete();
+        try {
+            f6.createNewFile();
+            Files.write(Paths.get(input.phaseStatisticsFile),
+                    ("# time, cycle, phase, scope, count, totalMs, p50Ms, p90Ms, p99Ms, maxMs \n").getBytes(),
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new RuntimeException("[ERROR] Unable to initialize: " + input.phaseStatisticsFile, e);
+        }
+
+        try {
+            return new CsvStatisticsSink(input.importStatisticsFile, input.pcMappingFile,
+                    input.generationStatisticsFile, input.exportStatisticsFile, input.trieStatisticsFile,
+                    input.phaseStatisticsFile);
+        } catch (IOException e) {
+            throw new RuntimeException("[ERROR] Unable to open statistic files", e);
         }
     }
 
-    public static void appendTrieStatistics(BadgerInput input, String trieStatistics, int pcAndSolutionQueueSize,
-            int numberOfAlreadyReadInputFiles) {
+    /**
+     * Records a snapshot of the trie statistics, the values are in the order of {@link #TRIE_STATISTICS_COLUMNS}.
+     */
+    public static void appendTrieStatistics(BadgerInput input, int numberOfNodes, int lengthPrioQueue,
+            long instructionMapping, int sizeSolutionQueue, int alreadyReadInputFiles, long dedupLookups,
+            long dedupHits) {
         if (input.printStatistics) {
-            String statistics = String.valueOf((System.currentTimeMillis() / 1000L)) + "," + trieStatistics + ","
-                    + pcAndSolutionQueueSize + "," + numberOfAlreadyReadInputFiles + "\n";
-            try {
-                Files.write(Paths.get(input.trieStatisticsFile), (statistics).getBytes(), StandardOpenOption.APPEND);
-            } catch (IOException e) {
-                throw new RuntimeException("[ERROR] Unable to write trie statistics file", e);
-            }
+            append(new TrieSnapshotEvent(new long[] { numberOfNodes, lengthPrioQueue, instructionMapping,
+                    sizeSolutionQueue, alreadyReadInputFiles, dedupLookups, dedupHits }));
         }
     }
 
-    public static void appendImportStatistics(BadgerInput input, String statistics) {
+    public static void appendImportStatistics(BadgerInput input, String file, Double cost, boolean betterScore,
+            boolean duplicate) {
         if (input.printStatistics) {
-            try {
-                Files.write(Paths.get(input.importStatisticsFile), (statistics).getBytes(), StandardOpenOption.APPEND);
-            } catch (IOException e) {
-                throw new RuntimeException("[ERROR] Unable to write import statistics file", e);
-            }
+            append(new ImportEvent(file, cost, betterScore, duplicate));
         }
     }
 
-    public static void appendExportStatistics(BadgerInput input, String statistics) {
+    public static void appendExportStatistics(BadgerInput input, ExportEvent.Kind kind, String tmpFile, String file,
+            boolean newBranch, boolean betterScore, Double cost) {
         if (input.printStatistics) {
-            try {
-                Files.write(Paths.get(input.exportStatisticsFile), (statistics).getBytes(), StandardOpenOption.APPEND);
-            } catch (IOException e) {
-                throw new RuntimeException("[ERROR] Unable to write export statistics file", e);
-            }
+            append(new ExportEvent(kind, tmpFile, file, newBranch, betterScore, cost));
         }
     }
 
-    public static void appendGenerationStatistics(BadgerInput input, String generatedFile) {
+    /**
+     * @param pcSolution
+     *            - only recorded if path conditions are recorded (stat.print.pc), it must not be changed afterwards.
+     */
+    public static void appendGenerationStatistics(BadgerInput input, String generatedFile, Object pcSolution) {
         if (input.printStatistics) {
-            try {
-                Files.write(Paths.get(input.generationStatisticsFile),
-                        ((System.currentTimeMillis() / 1000L) + "," + generatedFile + "\n").getBytes(),
-                        StandardOpenOption.APPEND);
-            } catch (IOException e) {
-                throw new RuntimeException("[ERROR] Unable to write generation statistics file", e);
-            }
+            append(new GenerationEvent(generatedFile, input.printPC ? pcSolution : null));
         }
     }
 
-    public static void appendPCMapping(BadgerInput input, String generatedFile, String pcSolution) {
-        if (input.printPC) {
-            try {
-                Files.write(Paths.get(input.pcMappingFile),
-                        ((System.currentTimeMillis() / 1000L) + "," + generatedFile + "," + pcSolution + "\n")
-                                .getBytes(),
-                        StandardOpenOption.APPEND);
-            } catch (IOException e) {
-                throw new RuntimeException("[ERROR] Unable to write pc mapping file", e);
-            }
+    /**
+     * Records a solver call. Listeners have no access to the configuration, so the call is only recorded if the
+     * statistics are enabled, see {@link #isRecording()}.
+     */
+    public static void appendSolverCall(String caller, SolverCalls.Result result, int constraints, int variables,
+            long durationNanos) {
+        append(new SolverCallEvent(caller, result, constraints, variables, durationNanos));
+    }
+
+    public static void appendJPFRun(BadgerInput input, String mode, long durationMillis, boolean aborted) {
+        if (input.printStatistics) {
+            append(new JPFRunEvent(mode, durationMillis, aborted));
+        }
+    }
+
+    public static void appendPhaseStatistics(BadgerInput input, long cycle, String phase, boolean cumulative,
+            LatencyHistogram histogram) {
+        if (input.printStatistics) {
+            append(new PhaseSummaryEvent(cycle, phase, cumulative, histogram));
+        }
+    }
+
+    /**
+     * @return true if the statistics are enabled, i.e. if appended events are written.
+     */
+    public static boolean isRecording() {
+        return writer != null;
+    }
+
+    private static void append(StatisticsEvent event) {
+        StatisticsWriter currentWriter = writer;
+        if (currentWriter != null) {
+            currentWriter.append(event);
+        }
+    }
+
+    /**
+     * Writes all pending statistics and closes the statistic files.
+     */
+    public static synchronized void close() {
+        if (writer != null) {
+            writer.close();
+            writer = null;
         }
     }
 
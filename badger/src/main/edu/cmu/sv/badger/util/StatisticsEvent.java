@@ -0,0 +1,146 @@
+package edu.cmu.sv.badger.util;
+
+/**
+ * Typed statistic records, which are written by a {@link StatisticsSink}. The time stamp is taken when the event is
+ * created, i.e. it does not depend on when the background writer handles the event.
+ */
+public abstract class StatisticsEvent {
+
+    public final long timeMillis;
+
+    protected StatisticsEvent() {
+        this.timeMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Input file from the fuzzer that was added to the trie.
+     */
+    public static final class ImportEvent extends StatisticsEvent {
+        public final String file;
+        public final Double cost;
+        public final boolean betterScore;
+        public final boolean duplicate;
+
+        public ImportEvent(String file, Double cost, boolean betterScore, boolean duplicate) {
+            this.file = file;
+            this.cost = cost;
+            this.betterScore = betterScore;
+            this.duplicate = duplicate;
+        }
+    }
+
+    /**
+     * Input file generated from a solved path condition. The path condition is only converted to a string by the
+     * writer, because this can take longer than the generation of the input.
+     */
+    public static final class GenerationEvent extends StatisticsEvent {
+        public final String file;
+        public final Object pathCondition; // null if path conditions are not recorded
+
+        public GenerationEvent(String file, Object pathCondition) {
+            this.file = file;
+            this.pathCondition = pathCondition;
+        }
+    }
+
+    /**
+     * Input file moved to the export directory (or the hang directory).
+     */
+    public static final class ExportEvent extends StatisticsEvent {
+
+        public enum Kind {
+            NEW_BEHAVIOR, MAXIMIZED, HANG;
+        }
+
+        public final Kind kind;
+        public final String tmpFile;
+        public final String file;
+        public final boolean newBranch;
+        public final boolean betterScore;
+        public final Double cost;
+
+        public ExportEvent(Kind kind, String tmpFile, String file, boolean newBranch, boolean betterScore,
+                Double cost) {
+            this.kind = kind;
+            this.tmpFile = tmpFile;
+            this.file = file;
+            this.newBranch = newBranch;
+            this.betterScore = betterScore;
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * Snapshot of the internal trie statistics, see {@link Statistics#TRIE_STATISTICS_COLUMNS}.
+     */
+    public static final class TrieSnapshotEvent extends StatisticsEvent {
+        public final long[] values;
+
+        public TrieSnapshotEvent(long[] values) {
+            this.values = values;
+        }
+    }
+
+    /**
+     * Call of the constraint solver.
+     */
+    public static final class SolverCallEvent extends StatisticsEvent {
+        public final String caller;
+        public final SolverCalls.Result result;
+        public final int constraints; // -1 if unknown
+        public final int variables; // -1 if unknown
+        public final long durationNanos;
+
+        public SolverCallEvent(String caller, SolverCalls.Result result, int constraints, int variables,
+                long durationNanos) {
+            this.caller = caller;
+            this.result = result;
+            this.constraints = constraints;
+            this.variables = variables;
+            this.durationNanos = durationNanos;
+        }
+    }
+
+    /**
+     * Latency summary of a SymExe phase, either for one cycle or cumulated up to this cycle.
+     */
+    public static final class PhaseSummaryEvent extends StatisticsEvent {
+        public final long cycle;
+        public final String phase;
+        public final boolean cumulative;
+        public final long count;
+        public final long totalNanos;
+        public final long p50Nanos;
+        public final long p90Nanos;
+        public final long p99Nanos;
+        public final long maxNanos;
+
+        public PhaseSummaryEvent(long cycle, String phase, boolean cumulative, LatencyHistogram histogram) {
+            this.cycle = cycle;
+            this.phase = phase;
+            this.cumulative = cumulative;
+            this.count = histogram.getCount();
+            this.totalNanos = histogram.getTotalNanos();
+            this.p50Nanos = histogram.getPercentileNanos(50);
+            this.p90Nanos = histogram.getPercentileNanos(90);
+            this.p99Nanos = histogram.getPercentileNanos(99);
+            this.maxNanos = histogram.getMaxNanos();
+        }
+    }
+
+    /**
+     * Complete JPF run.
+     */
+    public static final class JPFRunEvent extends StatisticsEvent {
+        public final String mode;
+        public final long durationMillis;
+        public final boolean aborted;
+
+        public JPFRunEvent(String mode, long durationMillis, boolean aborted) {
+            this.mode = mode;
+            this.durationMillis = durationMillis;
+            this.aborted = aborted;
+        }
+    }
+
+}
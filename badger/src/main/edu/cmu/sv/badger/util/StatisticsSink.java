@@ -0,0 +1,17 @@
+package edu.cmu.sv.badger.util;
+
+import java.io.IOException;
+
+/**
+ * Output format for the statistic events. A sink is only used by the background writer thread, so implementations do
+ * not need to be thread-safe.
+ */
+interface StatisticsSink {
+
+    void write(StatisticsEvent event) throws IOException;
+
+    void flush() throws IOException;
+
+    void close() throws IOException;
+
+}
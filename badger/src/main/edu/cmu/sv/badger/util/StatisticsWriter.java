@@ -0,0 +1,93 @@
+package edu.cmu.sv.badger.util;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background thread that writes the statistic events into a {@link StatisticsSink}. The sink stays open during the
+ * whole run and the events are passed via a lock-free queue, so that the exploration never waits for the file system.
+ * The writer flushes the sink after a number of events or after some time, whatever comes first.
+ */
+final class StatisticsWriter implements Runnable {
+
+    private static final int FLUSH_SIZE = 256;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final StatisticsSink sink;
+    private final ConcurrentLinkedQueue<StatisticsEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numberOfPendingRecords = new AtomicInteger(0);
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Starts the writer thread for the given sink.
+     */
+    StatisticsWriter(StatisticsSink sink) {
+        this.sink = sink;
+        this.thread = new Thread(this, "badger-statistics");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Adds an event to the queue, never blocks.
+     */
+    void append(StatisticsEvent event) {
+        queue.offer(event);
+        if (numberOfPendingRecords.incrementAndGet() >= FLUSH_SIZE) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            LockSupport.parkNanos(this, FLUSH_INTERVAL_NANOS);
+            writePendingRecords();
+        }
+        writePendingRecords();
+    }
+
+    private void writePendingRecords() {
+        StatisticsEvent event;
+        boolean wroteRecords = false;
+        while ((event = queue.poll()) != null) {
+            numberOfPendingRecords.decrementAndGet();
+            try {
+                sink.write(event);
+                wroteRecords = true;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (wroteRecords) {
+            try {
+                sink.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Writes all pending events, stops the writer thread and closes the sink.
+     */
+    void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            sink.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package edu.cmu.sv.badger.analysis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class ParetoFrontTest {
+
+    private static double[] v(double... values) {
+        return values;
+    }
+
+    @Test
+    public void dominanceForMaximization() {
+        assertTrue(ParetoFront.dominates(v(2, 2), v(1, 2), true));
+        assertFalse(ParetoFront.dominates(v(2, 2), v(2, 2), true));
+        assertFalse(ParetoFront.dominates(v(3, 1), v(1, 3), true));
+        assertFalse(ParetoFront.dominates(v(1, 2), v(2, 2), true));
+    }
+
+    @Test
+    public void dominanceForMinimization() {
+        assertTrue(ParetoFront.dominates(v(1, 2), v(2, 2), false));
+        assertFalse(ParetoFront.dominates(v(2, 2), v(1, 2), false));
+    }
+
+    @Test
+    public void dominatedAndEqualVectorsAreRejected() {
+        ParetoFront front = new ParetoFront(true);
+        assertTrue(front.add(v(2, 2)));
+        assertFalse(front.add(v(1, 2)));
+        assertFalse(front.add(v(2, 2)));
+        assertEquals(1, front.size());
+    }
+
+    @Test
+    public void dominatedMembersAreRemoved() {
+        ParetoFront front = new ParetoFront(true);
+        assertTrue(front.add(v(3, 1)));
+        assertTrue(front.add(v(1, 3)));
+        assertTrue(front.add(v(2, 2)));
+        assertEquals(3, front.size());
+
+        assertTrue(front.add(v(3, 3)));
+        assertEquals(1, front.size());
+        assertArrayEquals(v(3, 3), front.getFront().get(0), 0.0);
+    }
+
+    @Test
+    public void addedVectorIsCopied() {
+        ParetoFront front = new ParetoFront(false);
+        double[] vector = v(1, 1);
+        front.add(vector);
+        vector[0] = 5;
+        assertArrayEquals(v(1, 1), front.getFront().get(0), 0.0);
+    }
+
+    @Test
+    public void crowdingDistancePrefersBoundaries() {
+        double[] distances = ParetoFront
+                .getCrowdingDistances(Arrays.asList(v(0, 4), v(1, 3), v(3, 1), v(4, 0)));
+        assertEquals(Double.POSITIVE_INFINITY, distances[0], 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, distances[3], 0.0);
+        // (3 - 0) / 4 in both objectives
+        assertEquals(1.5, distances[1], 1e-9);
+        assertEquals(1.5, distances[2], 1e-9);
+    }
+
+    @Test
+    public void crowdingDistanceOfSmallFronts() {
+        assertEquals(0, ParetoFront.getCrowdingDistances(Collections.emptyList()).length);
+        assertArrayEquals(v(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY),
+                ParetoFront.getCrowdingDistances(Arrays.asList(v(1, 2), v(2, 1))), 0.0);
+    }
+
+    @Test
+    public void constantObjectiveDoesNotContribute() {
+        double[] distances = ParetoFront.getCrowdingDistances(Arrays.asList(v(0, 1), v(1, 1), v(2, 1)));
+        assertEquals(1.0, distances[1], 1e-9);
+    }
+
+}
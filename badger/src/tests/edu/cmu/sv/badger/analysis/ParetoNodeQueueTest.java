@@ -0,0 +1,220 @@
+package edu.cmu.sv.badger.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.cmu.sv.badger.listener.IBehavior;
+import edu.cmu.sv.badger.trie.Trie;
+import edu.cmu.sv.badger.trie.TrieNode;
+
+public class ParetoNodeQueueTest {
+
+    /* Prefers the nodes with the smallest id, i.e. the nodes created first. */
+    private static final ExplorationHeuristic OLDEST_FIRST = new ExplorationHeuristic("oldest-first") {
+
+        @Override
+        public int compare(TrieNode o1, TrieNode o2) {
+            return Integer.compare(o1.getId(), o2.getId());
+        }
+
+        @Override
+        public boolean didObserveNewBehavior(IBehavior behaviorListener) {
+            return false;
+        }
+
+    };
+
+    private Trie trie;
+    private TrieNode root;
+    private ParetoNodeQueue queue;
+
+    @Before
+    public void setUp() {
+        trie = new Trie(null);
+        root = new TrieNode(trie, -1, -1, null, -1, null);
+        trie.setRoot(root);
+        queue = new ParetoNodeQueue(OLDEST_FIRST);
+    }
+
+    private TrieNode createNode(double... vector) {
+        TrieNode node = new TrieNode(trie, 0, 0, "m", -1, root);
+        node.setMetricVector(vector.length > 0 ? vector : null);
+        return node;
+    }
+
+    private TrieNode createNewBranchNode(double... vector) {
+        TrieNode node = new TrieNode(trie, 0, 0, "m", -1, root) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public boolean canExposeNewBranches() {
+                return true;
+            }
+        };
+        node.setMetricVector(vector);
+        return node;
+    }
+
+    @Test
+    public void emptyQueue() {
+        assertNull(queue.peek());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void dominatedNodesComeAfterTheFront() {
+        TrieNode dominated = createNode(1, 1);
+        TrieNode best = createNode(3, 3);
+        queue.offer(dominated);
+        queue.offer(best);
+
+        assertSame(best, queue.poll());
+        assertSame(dominated, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void minimizationInvertsDominance() {
+        queue.setMaximize(false);
+        TrieNode high = createNode(3, 3);
+        TrieNode low = createNode(1, 1);
+        queue.offer(high);
+        queue.offer(low);
+
+        assertSame(low, queue.poll());
+        assertSame(high, queue.poll());
+    }
+
+    @Test
+    public void boundariesOfTheFrontComeFirst() {
+        TrieNode middle = createNode(2, 2);
+        TrieNode left = createNode(1, 3);
+        TrieNode right = createNode(3, 1);
+        queue.offer(middle);
+        queue.offer(left);
+        queue.offer(right);
+
+        // Both boundaries have an infinite crowding distance, the heuristic breaks the tie.
+        assertSame(left, queue.poll());
+        // Then the remaining two nodes are both boundaries.
+        assertSame(middle, queue.poll());
+        assertSame(right, queue.poll());
+    }
+
+    @Test
+    public void removedFrontMemberUncoversDominatedNodes() {
+        TrieNode best = createNode(5, 5);
+        TrieNode a = createNode(4, 1);
+        TrieNode b = createNode(1, 4);
+        TrieNode c = createNode(1, 1);
+        queue.offer(a);
+        queue.offer(b);
+        queue.offer(c);
+        queue.offer(best);
+
+        assertTrue(queue.remove(best));
+        assertEquals(3, queue.size());
+        assertSame(a, queue.poll());
+        assertSame(b, queue.poll());
+        assertSame(c, queue.poll());
+    }
+
+    @Test
+    public void nodesWithoutVectorAreSelectedLast() {
+        TrieNode withoutVector = createNode();
+        TrieNode withVector = createNode(1, 1);
+        queue.offer(withoutVector);
+        queue.offer(withVector);
+
+        assertSame(withVector, queue.poll());
+        assertSame(withoutVector, queue.poll());
+    }
+
+    @Test
+    public void newBranchesArePreferred() {
+        TrieNode best = createNode(5, 5);
+        TrieNode newBranch = createNewBranchNode(1, 1);
+        queue.offer(best);
+        queue.offer(newBranch);
+
+        assertSame(newBranch, queue.poll());
+        assertSame(best, queue.poll());
+    }
+
+    @Test
+    public void vectorIsTakenAtOffer() {
+        TrieNode node = createNode(1, 1);
+        TrieNode other = createNode(2, 2);
+        queue.offer(node);
+        queue.offer(other);
+
+        // Without re-adding the node, the queue keeps the old vector.
+        node.setMetricVector(new double[] { 3, 3 });
+        assertSame(other, queue.peek());
+
+        queue.remove(node);
+        queue.offer(node);
+        assertSame(node, queue.peek());
+    }
+
+    @Test
+    public void pollsInTheOrderOfTheFullRecomputation() {
+        Random random = new Random(42);
+        List<TrieNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            // Distinct values, because the crowding distance of equal values depends on the order of the front.
+            TrieNode node = createNode(random.nextDouble(), random.nextDouble(), random.nextDouble());
+            nodes.add(node);
+            queue.offer(node);
+        }
+
+        while (!nodes.isEmpty()) {
+            TrieNode expected = selectByFullRecomputation(nodes);
+            assertSame(expected, queue.poll());
+            nodes.remove(expected);
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    /* Selection of the head by recomputing the first front from scratch. */
+    private static TrieNode selectByFullRecomputation(List<TrieNode> nodes) {
+        List<TrieNode> front = new ArrayList<>();
+        for (TrieNode node : nodes) {
+            boolean dominated = false;
+            for (TrieNode other : nodes) {
+                if (ParetoFront.dominates(other.getMetricVector(), node.getMetricVector(), true)) {
+                    dominated = true;
+                    break;
+                }
+            }
+            if (!dominated) {
+                front.add(node);
+            }
+        }
+        List<double[]> vectors = new ArrayList<>();
+        for (TrieNode member : front) {
+            vectors.add(member.getMetricVector());
+        }
+        double[] distances = ParetoFront.getCrowdingDistances(vectors);
+        TrieNode head = null;
+        double headDistance = 0;
+        for (int i = 0; i < front.size(); i++) {
+            if (head == null || distances[i] > headDistance
+                    || (distances[i] == headDistance && OLDEST_FIRST.compare(front.get(i), head) < 0)) {
+                head = front.get(i);
+                headDistance = distances[i];
+            }
+        }
+        return head;
+    }
+
+}
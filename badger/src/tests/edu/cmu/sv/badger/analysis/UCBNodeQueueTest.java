@@ -0,0 +1,192 @@
+package edu.cmu.sv.badger.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.cmu.sv.badger.listener.IBehavior;
+import edu.cmu.sv.badger.trie.Trie;
+import edu.cmu.sv.badger.trie.TrieNode;
+
+public class UCBNodeQueueTest {
+
+    /* Prefers the nodes with the smallest id, i.e. the nodes created first. */
+    private static final ExplorationHeuristic OLDEST_FIRST = new ExplorationHeuristic("oldest-first") {
+
+        @Override
+        public int compare(TrieNode o1, TrieNode o2) {
+            return Integer.compare(o1.getId(), o2.getId());
+        }
+
+        @Override
+        public boolean didObserveNewBehavior(IBehavior behaviorListener) {
+            return false;
+        }
+
+    };
+
+    private Trie trie;
+    private TrieNode root;
+
+    @Before
+    public void setUp() {
+        trie = new Trie(null);
+        root = new TrieNode(trie, -1, -1, null, -1, null);
+        trie.setRoot(root);
+    }
+
+    private TrieNode createChild(TrieNode parent, int choice) {
+        return new TrieNode(trie, choice, 0, "m", -1, parent);
+    }
+
+    @Test
+    public void emptyQueue() {
+        UCBNodeQueue queue = new UCBNodeQueue(OLDEST_FIRST, MCTSAnalyzer.DEFAULT_EXPLORATION_CONSTANT);
+        assertNull(queue.peek());
+        assertNull(queue.poll());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void unexploredNodesAreOrderedByHeuristic() {
+        UCBNodeQueue queue = new UCBNodeQueue(OLDEST_FIRST, MCTSAnalyzer.DEFAULT_EXPLORATION_CONSTANT);
+        TrieNode a = createChild(root, 0);
+        TrieNode b = createChild(root, 1);
+        queue.offer(b);
+        queue.offer(a);
+        queue.offer(b);
+        assertEquals(2, queue.size());
+        assertSame(a, queue.poll());
+        assertSame(b, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void unexploredSubtreesComeFirst() {
+        UCBNodeQueue queue = new UCBNodeQueue(OLDEST_FIRST, MCTSAnalyzer.DEFAULT_EXPLORATION_CONSTANT);
+        TrieNode left = createChild(root, 0);
+        TrieNode right = createChild(root, 1);
+        TrieNode leftChild = createChild(left, 0);
+        TrieNode rightChild = createChild(right, 0);
+
+        queue.backpropagate(left, 1.0);
+        queue.offer(leftChild);
+        queue.offer(rightChild);
+
+        // The root is explored, but the right subtree is not.
+        queue.removeStatistics(root);
+        assertSame(rightChild, queue.peek());
+    }
+
+    @Test
+    public void rewardingSubtreeIsPreferred() {
+        UCBNodeQueue queue = new UCBNodeQueue(OLDEST_FIRST, 0.0);
+        TrieNode left = createChild(root, 0);
+        TrieNode right = createChild(root, 1);
+        TrieNode leftChild = createChild(left, 0);
+        TrieNode rightChild = createChild(right, 0);
+        queue.offer(leftChild);
+        queue.offer(rightChild);
+
+        queue.backpropagate(left, 0.0);
+        queue.backpropagate(right, 1.0);
+        assertSame(rightChild, queue.peek());
+
+        queue.backpropagate(right, 0.0);
+        queue.backpropagate(right, 0.0);
+        queue.backpropagate(left, 1.0);
+        assertSame(leftChild, queue.peek());
+        assertEquals(5, queue.getNumberOfExplorations());
+    }
+
+    @Test
+    public void rarelyExploredSubtreeIsPreferredWithExploration() {
+        UCBNodeQueue queue = new UCBNodeQueue(OLDEST_FIRST, 10.0);
+        TrieNode left = createChild(root, 0);
+        TrieNode right = createChild(root, 1);
+        TrieNode leftChild = createChild(left, 0);
+        TrieNode rightChild = createChild(right, 0);
+        queue.offer(leftChild);
+        queue.offer(rightChild);
+
+        for (int i = 0; i < 10; i++) {
+            queue.backpropagate(left, 1.0);
+        }
+        queue.backpropagate(right, 0.0);
+        assertSame(rightChild, queue.poll());
+        assertSame(leftChild, queue.poll());
+    }
+
+    @Test
+    public void nodesMoveToNewlyExploredSubtree() {
+        UCBNodeQueue queue = new UCBNodeQueue(OLDEST_FIRST, 0.0);
+        TrieNode left = createChild(root, 0);
+        TrieNode right = createChild(root, 1);
+        TrieNode leftChild = createChild(left, 0);
+        TrieNode leftGrandChild = createChild(leftChild, 0);
+        TrieNode rightChild = createChild(right, 0);
+        queue.offer(leftGrandChild);
+        queue.offer(rightChild);
+
+        // Both nodes are in the region of the root, the heuristic decides.
+        queue.backpropagate(root, 0.5);
+        assertSame(leftGrandChild, queue.peek());
+
+        // Only the right node is below the newly explored subtree.
+        queue.backpropagate(right, 1.0);
+        assertSame(rightChild, queue.peek());
+
+        // The left node moves from the region of the root to the deeper explored subtree.
+        queue.backpropagate(leftChild, 1.0);
+        queue.backpropagate(leftChild, 1.0);
+        queue.backpropagate(right, 0.0);
+        assertSame(leftGrandChild, queue.peek());
+    }
+
+    @Test
+    public void removedStatisticsFallBackToAncestor() {
+        UCBNodeQueue queue = new UCBNodeQueue(OLDEST_FIRST, 0.0);
+        TrieNode left = createChild(root, 0);
+        TrieNode right = createChild(root, 1);
+        TrieNode leftChild = createChild(left, 0);
+        TrieNode rightChild = createChild(right, 0);
+        queue.offer(leftChild);
+        queue.offer(rightChild);
+
+        queue.backpropagate(left, 0.0);
+        queue.backpropagate(right, 1.0);
+        assertSame(rightChild, queue.peek());
+
+        // Without the statistics of both nodes, they share the region of the root.
+        queue.removeStatistics(right);
+        assertSame(rightChild, queue.peek());
+        queue.removeStatistics(left);
+        assertSame(leftChild, queue.peek());
+    }
+
+    @Test
+    public void removeAndClear() {
+        UCBNodeQueue queue = new UCBNodeQueue(OLDEST_FIRST, 0.0);
+        TrieNode a = createChild(root, 0);
+        TrieNode b = createChild(root, 1);
+        queue.offer(a);
+        queue.offer(b);
+        queue.backpropagate(a, 1.0);
+
+        assertTrue(queue.contains(a));
+        assertTrue(queue.remove(a));
+        assertFalse(queue.remove(a));
+        assertFalse(queue.contains(a));
+        assertSame(b, queue.peek());
+
+        queue.clear();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+    }
+
+}
@@ -0,0 +1,89 @@
+package edu.cmu.sv.badger.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImportQueueTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String createFile(String name, int size) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), new byte[size]);
+        return file.getPath();
+    }
+
+    private static List<String> pollAll(ImportQueue queue) {
+        List<String> files = new ArrayList<>();
+        String file;
+        while ((file = queue.poll()) != null) {
+            files.add(new File(file).getName());
+        }
+        return files;
+    }
+
+    @Test
+    public void valueOrderRanksByAflMetaData() throws IOException {
+        ImportQueue queue = new ImportQueue(ImportQueue.ORDER_VALUE);
+        queue.addAll(Arrays.asList(createFile("id:000003,src:000001,op:havoc", 1),
+                createFile("id:000004,src:000001,op:havoc,+cov", 1),
+                createFile("id:000005,src:000002,op:havoc,highscore", 1),
+                createFile("id:000000,orig:seed", 1)));
+
+        assertEquals(Arrays.asList("id:000005,src:000002,op:havoc,highscore", "id:000004,src:000001,op:havoc,+cov",
+                "id:000000,orig:seed", "id:000003,src:000001,op:havoc"), pollAll(queue));
+    }
+
+    @Test
+    public void valueOrderPrefersHigherCostThenSmallerFiles() throws IOException {
+        ImportQueue queue = new ImportQueue(ImportQueue.ORDER_VALUE);
+        queue.addAll(Arrays.asList(createFile("id:000001,src:000000,cost:10", 1),
+                createFile("id:000002,src:000000,cost:20", 100), createFile("id:000003,src:000000,cost:20", 10),
+                createFile("id:000004,src:000000,cost:20", 10)));
+
+        assertEquals(Arrays.asList("id:000003,src:000000,cost:20", "id:000004,src:000000,cost:20",
+                "id:000002,src:000000,cost:20", "id:000001,src:000000,cost:10"), pollAll(queue));
+    }
+
+    @Test
+    public void malformedCostIsIgnored() throws IOException {
+        ImportQueue queue = new ImportQueue(ImportQueue.ORDER_VALUE);
+        queue.addAll(Arrays.asList(createFile("id:000001,src:000000,cost:abc", 1),
+                createFile("id:000002,src:000000,cost:1", 1)));
+
+        assertEquals(Arrays.asList("id:000002,src:000000,cost:1", "id:000001,src:000000,cost:abc"),
+                pollAll(queue));
+    }
+
+    @Test
+    public void fifoOrderKeepsInsertionOrder() throws IOException {
+        ImportQueue queue = new ImportQueue(ImportQueue.ORDER_FIFO);
+        queue.addAll(Arrays.asList(createFile("id:000003,src:000001", 1), createFile("id:000001,highscore", 1)));
+        queue.addAll(Arrays.asList(createFile("id:000002,+cov", 1)));
+
+        assertEquals(3, queue.size());
+        assertEquals(Arrays.asList("id:000003,src:000001", "id:000001,highscore", "id:000002,+cov"),
+                pollAll(queue));
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownOrderIsRejected() {
+        new ImportQueue("random");
+    }
+
+}
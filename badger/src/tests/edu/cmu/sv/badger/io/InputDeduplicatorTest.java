@@ -0,0 +1,88 @@
+package edu.cmu.sv.badger.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class InputDeduplicatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String createFile(String name, byte[] content) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), content);
+        return file.getPath();
+    }
+
+    @Test
+    public void sameContentHasSameHash() throws IOException {
+        InputDeduplicator deduplicator = new InputDeduplicator();
+        String first = deduplicator.computeHash(createFile("a", new byte[] { 1, 2, 3 }));
+        String second = deduplicator.computeHash(createFile("b", new byte[] { 1, 2, 3 }));
+        String third = deduplicator.computeHash(createFile("c", new byte[] { 1, 2, 4 }));
+
+        assertEquals(first, second);
+        assertNotEquals(first, third);
+    }
+
+    @Test
+    public void unreadableFileHasNoHash() {
+        InputDeduplicator deduplicator = new InputDeduplicator();
+        assertNull(deduplicator.computeHash(new File(folder.getRoot(), "missing").getPath()));
+        assertFalse(deduplicator.isKnown(null));
+    }
+
+    @Test
+    public void registeredInputIsKnown() {
+        InputDeduplicator deduplicator = new InputDeduplicator();
+        assertFalse(deduplicator.isKnown("a"));
+        deduplicator.register("a", 5.0);
+        assertTrue(deduplicator.isKnown("a"));
+        assertEquals(5.0, deduplicator.getObservedCost("a"), 0.0);
+        assertEquals(0.5, deduplicator.getHitRate(), 0.0);
+        assertEquals(2, deduplicator.getNumberOfLookups());
+        assertEquals(1, deduplicator.getNumberOfHits());
+    }
+
+    @Test
+    public void pathDuplicatesAreDetected() {
+        InputDeduplicator deduplicator = new InputDeduplicator();
+        assertFalse(deduplicator.registerPath("a", 42L, 3.0));
+        assertTrue(deduplicator.registerPath("b", 42L, 3.0));
+        assertFalse(deduplicator.registerPath("c", 43L, 1.0));
+
+        assertEquals(Long.valueOf(42L), deduplicator.getPathSignature("a"));
+        assertEquals(Long.valueOf(42L), deduplicator.getPathSignature("b"));
+        assertTrue(deduplicator.isKnown("b"));
+        assertEquals(1.0 / 3, deduplicator.getPathHitRate(), 1e-9);
+    }
+
+    @Test
+    public void observedCostFollowsThePath() {
+        InputDeduplicator deduplicator = new InputDeduplicator();
+        deduplicator.registerPath("a", 42L, 3.0);
+        // A later input on the same path observed a different cost, e.g. for a user-defined cost.
+        deduplicator.registerPath("b", 42L, 7.0);
+        assertEquals(7.0, deduplicator.getObservedCost("a"), 0.0);
+    }
+
+    @Test
+    public void pathWithoutHashIsOnlyUsedForThePathCheck() {
+        InputDeduplicator deduplicator = new InputDeduplicator();
+        assertFalse(deduplicator.registerPath(null, 42L, 3.0));
+        assertTrue(deduplicator.registerPath("a", 42L, 3.0));
+        assertNull(deduplicator.getPathSignature(null));
+    }
+
+}
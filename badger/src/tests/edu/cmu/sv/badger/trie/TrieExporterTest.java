@@ -0,0 +1,122 @@
+package edu.cmu.sv.badger.trie;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TrieExporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static TrieNode createRoot(Trie trie) {
+        TrieNode root = new TrieNode(trie, -1, -1, null, -1, null);
+        trie.setRoot(root);
+        // Completed, so that the branch potential does not need an analyzer.
+        root.setCompleted();
+        return root;
+    }
+
+    private static TrieNode createLeaf(Trie trie, TrieNode parent, int choice, double metricValue) {
+        TrieNode node = new TrieNode(trie, choice, 0, "m", -1, parent, null, null, metricValue, -1);
+        node.setType(TrieNodeType.LEAF_NODE);
+        return node;
+    }
+
+    /* Snapshot headers are replaced by "#", nodes by their id, removals by their negated id. */
+    private static String summarize(List<String> lines) {
+        StringBuilder summary = new StringBuilder();
+        for (String line : lines) {
+            if (summary.length() > 0) {
+                summary.append(' ');
+            }
+            if (line.startsWith("{\"snapshot\"")) {
+                summary.append('#');
+            } else {
+                int id = Integer.parseInt(line.substring("{\"id\":".length(), line.indexOf(',')));
+                summary.append(line.contains("\"removed\":true") ? -id : id);
+            }
+        }
+        return summary.toString();
+    }
+
+    private String prefix;
+    private TrieExporter exporter;
+    private Trie trie;
+    private TrieNode root;
+    private TrieNode worseLeaf;
+    private TrieNode betterLeaf;
+
+    /* Exporter and trie with a root and two leaves with metric values 1.0 and 2.0, the first snapshot is taken. */
+    private void createExporter(int topN) {
+        prefix = new File(folder.getRoot(), "trie").getPath();
+        exporter = new TrieExporter(TrieExporter.FORMAT_JSON, prefix, null, null, null, TrieExporter.NODES_ALL,
+                topN);
+        trie = new Trie(null);
+        root = createRoot(trie);
+        worseLeaf = createLeaf(trie, root, 0, 1.0);
+        betterLeaf = createLeaf(trie, root, 1, 2.0);
+        exporter.attach(trie);
+        exporter.snapshot(trie, "initial");
+    }
+
+    private String closeAndSummarize() throws IOException {
+        exporter.close();
+        return summarize(Files.readAllLines(new File(prefix + ".jsonl").toPath()));
+    }
+
+    @Test
+    public void writesAllNodesWithoutTopN() throws IOException {
+        createExporter(0);
+        assertEquals("# 0 1 2", closeAndSummarize());
+    }
+
+    @Test
+    public void writesOnlyTheTopNodes() throws IOException {
+        createExporter(2);
+        // Root has metric value 0.0, so it is not selected. The best nodes are selected first.
+        assertEquals("# 2 1", closeAndSummarize());
+    }
+
+    @Test
+    public void unchangedSnapshotWritesNoNodes() throws IOException {
+        createExporter(2);
+        exporter.snapshot(trie, "explored");
+        assertEquals("# 2 1 #", closeAndSummarize());
+    }
+
+    @Test
+    public void betterNodeDisplacesWeakestSelectedNode() throws IOException {
+        createExporter(2);
+        TrieNode best = createLeaf(trie, root, 2, 3.0);
+        exporter.snapshot(trie, "extended");
+        // Removing the best node selects the displaced node again.
+        trie.markRemoved(best);
+        exporter.snapshot(trie, "pruned");
+        assertEquals("# 2 1 # 3 -1 # -3 1", closeAndSummarize());
+    }
+
+    @Test
+    public void removedNodesAreWrittenWithoutTopN() throws IOException {
+        createExporter(0);
+        trie.markRemoved(worseLeaf);
+        exporter.snapshot(trie, "pruned");
+        assertEquals("# 0 1 2 # -1", closeAndSummarize());
+    }
+
+    @Test
+    public void changedObservedChoicesAreSnapshotAgain() throws IOException {
+        createExporter(0);
+        betterLeaf.observedChoicesChanged();
+        exporter.snapshot(trie, "analyzed");
+        assertEquals("# 0 1 2 # 2", closeAndSummarize());
+    }
+
+}
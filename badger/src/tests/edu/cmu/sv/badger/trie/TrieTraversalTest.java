@@ -0,0 +1,135 @@
+package edu.cmu.sv.badger.trie;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TrieTraversalTest {
+
+    private static TrieNode createRoot(Trie trie) {
+        TrieNode root = new TrieNode(trie, -1, -1, null, -1, null);
+        trie.setRoot(root);
+        return root;
+    }
+
+    private static TrieNode createChild(Trie trie, TrieNode parent, int choice) {
+        return new TrieNode(trie, choice, 0, "m", -1, parent);
+    }
+
+    /* Complete binary tree with the given number of levels below the root. */
+    private static void createBinaryTree(Trie trie, TrieNode node, int levels) {
+        if (levels == 0) {
+            return;
+        }
+        createBinaryTree(trie, createChild(trie, node, 0), levels - 1);
+        createBinaryTree(trie, createChild(trie, node, 1), levels - 1);
+    }
+
+    @Test
+    public void depthFirstEntersAndExitsInOrder() {
+        Trie trie = new Trie(null);
+        TrieNode root = createRoot(trie);
+        TrieNode left = createChild(trie, root, 0);
+        createChild(trie, left, 0);
+        createChild(trie, root, 1);
+
+        List<String> events = new ArrayList<>();
+        TrieTraversal.depthFirst(root, new TrieTraversal.Visitor() {
+            @Override
+            public boolean enter(TrieNode node) {
+                events.add("enter " + node.getId());
+                return true;
+            }
+
+            @Override
+            public void exit(TrieNode node) {
+                events.add("exit " + node.getId());
+            }
+        });
+
+        assertEquals(Arrays.asList("enter 0", "enter 1", "enter 2", "exit 2", "exit 1", "enter 3", "exit 3",
+                "exit 0"), events);
+    }
+
+    @Test
+    public void depthFirstSkipsChildren() {
+        Trie trie = new Trie(null);
+        TrieNode root = createRoot(trie);
+        createBinaryTree(trie, root, 3);
+
+        List<Integer> depths = new ArrayList<>();
+        TrieTraversal.depthFirst(root, node -> {
+            depths.add(node.getDepth());
+            return node.getDepth() < 1;
+        });
+
+        assertEquals(Arrays.asList(0, 1, 1), depths);
+    }
+
+    @Test
+    public void deepPathDoesNotOverflowTheStack() {
+        Trie trie = new Trie(null);
+        TrieNode node = createRoot(trie);
+        for (int i = 0; i < 100000; i++) {
+            node = createChild(trie, node, 0);
+        }
+
+        int[] numberOfNodes = new int[1];
+        TrieTraversal.depthFirst(trie.getRoot(), n -> {
+            numberOfNodes[0]++;
+            return true;
+        });
+        assertEquals(100001, numberOfNodes[0]);
+
+        long[] sum = TrieTraversal.reduce(trie.getRoot(), () -> new long[1], (s, n) -> s[0] += n.getDepth(),
+                (s1, s2) -> {
+                    s1[0] += s2[0];
+                    return s1;
+                }, n -> true, false);
+        assertEquals(100000L * 100001 / 2, sum[0]);
+    }
+
+    @Test
+    public void parallelReduceEqualsSequentialReduce() {
+        Trie trie = new Trie(null);
+        TrieNode root = createRoot(trie);
+        createBinaryTree(trie, root, 14);
+
+        for (boolean parallel : new boolean[] { false, true }) {
+            long[] result = TrieTraversal.reduce(root, () -> new long[2], (s, n) -> {
+                s[0]++;
+                s[1] += n.getDepth();
+            }, (s1, s2) -> {
+                s1[0] += s2[0];
+                s1[1] += s2[1];
+                return s1;
+            }, n -> true, parallel);
+            assertEquals((1L << 15) - 1, result[0]);
+            assertEquals(13L * (1L << 15) + 2, result[1]); // sum of d * 2^d for d = 0..14
+        }
+    }
+
+    @Test
+    public void reduceRespectsDescendPredicate() {
+        Trie trie = new Trie(null);
+        TrieNode root = createRoot(trie);
+        createBinaryTree(trie, root, 4);
+
+        List<TrieNode> nodes = TrieTraversal.reduce(root, ArrayList::new, List::add, (l1, l2) -> {
+            l1.addAll(l2);
+            return l1;
+        }, n -> n.getDepth() < 2, false);
+        assertEquals(7, nodes.size());
+    }
+
+    @Test
+    public void emptyTrieReturnsIdentity() {
+        assertEquals(Integer.valueOf(0), TrieTraversal.reduce(null, () -> 0, (s, n) -> {
+        }, Integer::sum, n -> true, true));
+    }
+
+}
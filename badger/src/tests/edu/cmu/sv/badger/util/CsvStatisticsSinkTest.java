@@ -0,0 +1,68 @@
+package edu.cmu.sv.badger.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.cmu.sv.badger.util.StatisticsEvent.ExportEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.ImportEvent;
+
+public class CsvStatisticsSinkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File importFile;
+    private File exportFile;
+    private CsvStatisticsSink sink;
+
+    @Before
+    public void openSink() throws IOException {
+        importFile = folder.newFile("import");
+        exportFile = folder.newFile("export");
+        sink = new CsvStatisticsSink(importFile.getPath(), folder.newFile("pc").getPath(),
+                folder.newFile("generation").getPath(), exportFile.getPath(), folder.newFile("trie").getPath(),
+                folder.newFile("phase").getPath());
+    }
+
+    private static void assertColumns(int expected, File file) throws IOException {
+        List<String> lines = Files.readAllLines(file.toPath());
+        for (String line : lines) {
+            assertEquals(line, expected, line.split(",", -1).length);
+        }
+    }
+
+    @Test
+    public void importRowsHaveFixedColumns() throws IOException {
+        sink.write(new ImportEvent("id:1", 1.0, false, false));
+        sink.write(new ImportEvent("id:2", 2.0, true, false));
+        sink.write(new ImportEvent("id:3", null, false, true));
+        sink.close();
+
+        // time, file, cost, score, duplicate
+        assertColumns(5, importFile);
+        assertEquals("id:3,,false,true", Files.readAllLines(importFile.toPath()).get(2).split(",", 2)[1]);
+    }
+
+    @Test
+    public void exportRowsHaveFixedColumns() throws IOException {
+        sink.write(new ExportEvent(ExportEvent.Kind.NEW_BEHAVIOR, "tmp/1", "id:1", true, false, 1.0));
+        sink.write(new ExportEvent(ExportEvent.Kind.NEW_BEHAVIOR, "tmp/2", "id:2", false, true, 2.0));
+        sink.write(new ExportEvent(ExportEvent.Kind.MAXIMIZED, "tmp/3", "id:3", false, true, 3.0));
+        sink.write(new ExportEvent(ExportEvent.Kind.HANG, "tmp/4", "hang:1", false, false, null));
+        sink.close();
+
+        // time, kind, tmpFile, file, branch, score, cost
+        assertColumns(7, exportFile);
+        assertEquals("hang,tmp/4,hang:1,false,false,", Files.readAllLines(exportFile.toPath()).get(3).split(",", 2)[1]);
+    }
+
+}
@@ -0,0 +1,153 @@
+package edu.cmu.sv.badger.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.cmu.sv.badger.util.StatisticsEvent.ExportEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.GenerationEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.ImportEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.JPFRunEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.PhaseSummaryEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.SolverCallEvent;
+import edu.cmu.sv.badger.util.StatisticsEvent.TrieSnapshotEvent;
+
+public class EventLogReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String writeLog(StatisticsEvent... events) throws IOException {
+        String fileName = folder.newFile().getPath();
+        BinaryEventLog log = new BinaryEventLog(fileName);
+        for (StatisticsEvent event : events) {
+            log.write(event);
+        }
+        log.close();
+        return fileName;
+    }
+
+    private static String[] convert(String fileName, boolean json) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+            new EventLogReader(in, new PrintStream(bytes, true, "UTF-8"), json).convert();
+        }
+        String output = bytes.toString("UTF-8").replace("\r\n", "\n");
+        return output.isEmpty() ? new String[0] : output.split("\n");
+    }
+
+    /* Removes the time stamp, i.e. the second column. */
+    private static String[] withoutTime(String[] lines) {
+        String[] result = new String[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            String[] columns = lines[i].split(",", 3);
+            result[i] = columns[0] + (columns.length > 2 ? "," + columns[2] : "");
+        }
+        return result;
+    }
+
+    @Test
+    public void allEventTypesRoundTripAsCsv() throws IOException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        String fileName = writeLog(new ImportEvent("id:1", 2.5, true, false),
+                new ImportEvent("id:2", null, false, true), new GenerationEvent("tmp/1", "x > 0, y < 1"),
+                new GenerationEvent("tmp/2", null),
+                new ExportEvent(ExportEvent.Kind.NEW_BEHAVIOR, "tmp/1", "export/id:1", true, false, 3.0),
+                new ExportEvent(ExportEvent.Kind.HANG, "tmp/2", "hangs/id:1", false, false, null),
+                new TrieSnapshotEvent(new long[] { 1, 2, 3, 4, 5, 6, 7 }),
+                new SolverCallEvent("bse", SolverCalls.Result.UNSAT, 4, 2, 1500L), new JPFRunEvent("IMPORT", 12L, true),
+                new PhaseSummaryEvent(3, "solving", false, histogram));
+
+        assertArrayEquals(new String[] { "import,id:1,2.5,true,false", "import,id:2,,false,true",
+                "generation,tmp/1,\"x > 0, y < 1\"", "generation,tmp/2,",
+                "export,new_behavior,tmp/1,export/id:1,true,false,3.0", "export,hang,tmp/2,hangs/id:1,false,false,",
+                "trie,1,2,3,4,5,6,7", "solver,bse,unsat,4,2,1500", "jpf,IMPORT,12,true",
+                "phase,3,solving,cycle,1," + histogram.getTotalNanos() + "," + histogram.getPercentileNanos(50) + ","
+                        + histogram.getPercentileNanos(90) + "," + histogram.getPercentileNanos(99) + ","
+                        + histogram.getMaxNanos() },
+                withoutTime(convert(fileName, false)));
+    }
+
+    @Test
+    public void internedStringsAreResolved() throws IOException {
+        String fileName = writeLog(new SolverCallEvent("bse", SolverCalls.Result.SAT, 1, 1, 10L),
+                new SolverCallEvent("new-pc", SolverCalls.Result.ERROR, -1, -1, 20L),
+                new SolverCallEvent("bse", SolverCalls.Result.SAT, 2, 1, 30L));
+
+        assertArrayEquals(new String[] { "solver,bse,sat,1,1,10", "solver,new-pc,error,-1,-1,20",
+                "solver,bse,sat,2,1,30" }, withoutTime(convert(fileName, false)));
+    }
+
+    @Test
+    public void evictedPathConditionsAreWrittenAgain() throws IOException {
+        int n = BinaryEventLog.MAX_INTERNED_PATH_CONDITIONS + 1;
+        StatisticsEvent[] events = new StatisticsEvent[n + 2];
+        String[] expected = new String[n + 2];
+        for (int i = 0; i < n; i++) {
+            events[i] = new GenerationEvent("tmp/" + i, "x == " + i);
+            expected[i] = "generation,tmp/" + i + ",x == " + i;
+        }
+        // The first path condition was evicted, the last one is still known.
+        events[n] = new GenerationEvent("tmp/a", "x == 0");
+        expected[n] = "generation,tmp/a,x == 0";
+        events[n + 1] = new GenerationEvent("tmp/b", "x == " + (n - 1));
+        expected[n + 1] = "generation,tmp/b,x == " + (n - 1);
+
+        assertArrayEquals(expected, withoutTime(convert(writeLog(events), false)));
+    }
+
+    @Test
+    public void pathConditionObjectIsConvertedToString() throws IOException {
+        StringBuilder pathCondition = new StringBuilder("x > 0");
+        String fileName = writeLog(new GenerationEvent("tmp/1", pathCondition));
+
+        assertArrayEquals(new String[] { "generation,tmp/1,x > 0" }, withoutTime(convert(fileName, false)));
+    }
+
+    @Test
+    public void jsonKeepsTimeAndEscapesStrings() throws IOException {
+        ImportEvent event = new ImportEvent("id:\"1\"", null, false, false);
+        String[] lines = convert(writeLog(event), true);
+
+        assertEquals(1, lines.length);
+        assertEquals("{\"type\":\"import\",\"time\":" + event.timeMillis
+                + ",\"file\":\"id:\\\"1\\\"\",\"cost\":null,\"score\":false,\"duplicate\":false}", lines[0]);
+    }
+
+    @Test
+    public void incompleteLastRecordIsIgnored() throws IOException {
+        String fileName = writeLog(new JPFRunEvent("REPLAY", 1L, false), new JPFRunEvent("REPLAY", 2L, false));
+        File file = new File(fileName);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        assertArrayEquals(new String[] { "jpf,REPLAY,1,false" }, withoutTime(convert(fileName, false)));
+    }
+
+    @Test(expected = IOException.class)
+    public void otherVersionIsRejected() throws IOException {
+        String fileName = folder.newFile().getPath();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(fileName))) {
+            out.writeInt(BinaryEventLog.MAGIC);
+            out.writeByte(BinaryEventLog.VERSION - 1);
+        }
+        convert(fileName, false);
+    }
+
+}
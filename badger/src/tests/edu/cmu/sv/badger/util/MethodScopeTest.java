@@ -0,0 +1,68 @@
+package edu.cmu.sv.badger.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MethodScopeTest {
+
+    @Test
+    public void exactMethodMatches() {
+        MethodScope scope = new MethodScope("regexjdk8.Pattern.matches");
+        assertTrue(scope.matches("regexjdk8.Pattern.matches"));
+        assertFalse(scope.matches("regexjdk8.Pattern.matchesAll"));
+        assertFalse(scope.matches("regexjdk8.Pattern.compile"));
+    }
+
+    @Test
+    public void wildcardMatchesPackage() {
+        MethodScope scope = new MethodScope("regexjdk8.*");
+        assertTrue(scope.matches("regexjdk8.Pattern.matches"));
+        assertTrue(scope.matches("regexjdk8.sub.Matcher.find"));
+        assertFalse(scope.matches("java.util.regex.Pattern.matches"));
+    }
+
+    @Test
+    public void wildcardInTheMiddle() {
+        MethodScope scope = new MethodScope("*.Pattern.*atch*");
+        assertTrue(scope.matches("regexjdk8.Pattern.matches"));
+        assertTrue(scope.matches("java.util.regex.Pattern.dispatch"));
+        assertFalse(scope.matches("regexjdk8.Matcher.matches"));
+    }
+
+    @Test
+    public void parameterListIsIgnored() {
+        MethodScope scope = new MethodScope("regexjdk8.Pattern.matches(con#con)");
+        assertTrue(scope.matches("regexjdk8.Pattern.matches"));
+    }
+
+    @Test
+    public void patternCharactersAreQuoted() {
+        MethodScope scope = new MethodScope("a.B.c");
+        assertFalse(scope.matches("aXB.c"));
+        assertTrue(new MethodScope("a.B$Inner.<init>").matches("a.B$Inner.<init>"));
+    }
+
+    @Test
+    public void listOfPatterns() {
+        MethodScope scope = new MethodScope(" a.B.c , , d.*");
+        assertTrue(scope.matches("a.B.c"));
+        assertTrue(scope.matches("d.E.f"));
+        assertFalse(scope.matches("a.B.d"));
+    }
+
+    @Test
+    public void copyHasSamePatterns() {
+        MethodScope scope = new MethodScope("a.*");
+        assertEquals("a.*", scope.copy().toString());
+        assertTrue(scope.copy().matches("a.B.c"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyDefinitionIsRejected() {
+        new MethodScope(" , ()");
+    }
+
+}
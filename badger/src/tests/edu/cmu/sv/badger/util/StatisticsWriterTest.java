@@ -0,0 +1,95 @@
+package edu.cmu.sv.badger.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.cmu.sv.badger.util.StatisticsEvent.ImportEvent;
+
+public class StatisticsWriterTest {
+
+    /* Sink that remembers the written events, accessed by the writer thread and the test. */
+    private static class RecordingSink implements StatisticsSink {
+        final List<StatisticsEvent> events = new ArrayList<>();
+        int numberOfFlushes = 0;
+        boolean closed = false;
+
+        @Override
+        public synchronized void write(StatisticsEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public synchronized void flush() {
+            numberOfFlushes++;
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+        }
+
+        synchronized int size() {
+            return events.size();
+        }
+    }
+
+    private static ImportEvent event(int i) {
+        return new ImportEvent("id:" + i, (double) i, false, false);
+    }
+
+    @Test
+    public void closeWritesAllPendingEventsInOrder() {
+        RecordingSink sink = new RecordingSink();
+        StatisticsWriter writer = new StatisticsWriter(sink);
+        List<StatisticsEvent> appended = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ImportEvent event = event(i);
+            appended.add(event);
+            writer.append(event);
+        }
+        writer.close();
+
+        assertTrue(sink.closed);
+        assertEquals(appended.size(), sink.events.size());
+        for (int i = 0; i < appended.size(); i++) {
+            assertSame(appended.get(i), sink.events.get(i));
+        }
+        assertTrue(sink.numberOfFlushes > 0);
+    }
+
+    @Test
+    public void fullBatchIsWrittenBeforeClose() throws InterruptedException {
+        RecordingSink sink = new RecordingSink();
+        StatisticsWriter writer = new StatisticsWriter(sink);
+        for (int i = 0; i < 1000; i++) {
+            writer.append(event(i));
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sink.size() < 1000 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1000, sink.size());
+        assertFalse(sink.closed);
+        writer.close();
+        assertEquals(1000, sink.size());
+    }
+
+    @Test
+    public void closeWithoutEventsOnlyClosesSink() {
+        RecordingSink sink = new RecordingSink();
+        StatisticsWriter writer = new StatisticsWriter(sink);
+        writer.close();
+
+        assertTrue(sink.closed);
+        assertEquals(0, sink.events.size());
+        assertEquals(0, sink.numberOfFlushes);
+    }
+
+}